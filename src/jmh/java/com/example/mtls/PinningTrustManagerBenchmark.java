@@ -0,0 +1,69 @@
+package com.example.mtls;
+
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g", "-Dlogback.configurationFile=logback-jmh.xml" })
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PinningTrustManagerBenchmark {
+    @Param({ "TRUSTSTORE", "PIN_FINGERPRINT", "PIN_SPKI" })
+    private PartnerMtlsProperties.ServerValidationMode mode;
+
+    private X509TrustManager delegate;
+    private String pin;
+    private PinningX509TrustManager trustManager;
+    private X509Certificate[] chain;
+
+    @Setup
+    public void setUp() throws Exception {
+        KeyStore trustStore = LocalMtlsServer.clientTrustStore();
+        X509Certificate partner = (X509Certificate) trustStore.getCertificate("partner");
+        chain = new X509Certificate[] { partner };
+
+        // The self-signed partner certificate is not in cacerts, so the truststore backs every mode here.
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        tmf.init(trustStore);
+        delegate = Arrays.stream(tmf.getTrustManagers())
+            .filter(X509TrustManager.class::isInstance)
+            .map(X509TrustManager.class::cast)
+            .findFirst()
+            .orElseThrow();
+
+        pin = switch (mode) {
+            case PIN_FINGERPRINT -> PinningUtils.certificateFingerprintSha256Hex(partner);
+            case PIN_SPKI -> PinningUtils.certificateSpkiSha256Base64(partner);
+            case TRUSTSTORE -> null;
+        };
+        trustManager = new PinningX509TrustManager(delegate, mode, pin);
+    }
+
+    // After the first invocation the leaf is in the verified-leaf cache: the cost of a handshake with a known leaf.
+    @Benchmark
+    public X509Certificate[] checkServerTrusted() throws Exception {
+        trustManager.checkServerTrusted(chain, "ECDHE_ECDSA");
+        return chain;
+    }
+
+    // A fresh manager has an empty cache, so every invocation hashes the leaf and compares pins: the first
+    // handshake after start, a reload or a partner certificate rotation.
+    @Benchmark
+    public X509Certificate[] checkServerTrustedUncached() throws Exception {
+        new PinningX509TrustManager(delegate, mode, pin).checkServerTrusted(chain, "ECDHE_ECDSA");
+        return chain;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.mtls;
+
+import java.io.InputStream;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g", "-Dlogback.configurationFile=logback-jmh.xml" })
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PinningUtilsBenchmark {
+    private static final String FINGERPRINT = "90:C0:EF:BC:96:79:47:DF:58:CD:95:C9:3D:D2:DA:C9:"
+        + "32:5A:2C:91:63:B6:5E:A0:87:BE:7A:16:23:6F:92:79";
+
+    private X509Certificate certificate;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws Exception {
+        try (InputStream inputStream = getClass().getResourceAsStream("/certs/test-cert.pem")) {
+            certificate = (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(inputStream);
+        }
+        encoded = certificate.getEncoded();
+    }
+
+    @Benchmark
+    public String normalizeHexFingerprint() {
+        return PinningUtils.normalizeHexFingerprint(FINGERPRINT);
+    }
+
+    @Benchmark
+    public byte[] decodeHexFingerprint() {
+        return PinningUtils.decodeHexFingerprint(FINGERPRINT);
+    }
+
+    @Benchmark
+    public String sha256Hex() {
+        return PinningUtils.sha256Hex(encoded);
+    }
+
+    @Benchmark
+    public String certificateFingerprintSha256Hex() throws Exception {
+        return PinningUtils.certificateFingerprintSha256Hex(certificate);
+    }
+
+    @Benchmark
+    public String certificateSpkiSha256Base64() {
+        return PinningUtils.certificateSpkiSha256Base64(certificate);
+    }
+}
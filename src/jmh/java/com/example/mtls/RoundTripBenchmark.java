@@ -0,0 +1,59 @@
+package com.example.mtls;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.util.TimeValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g", "-Dlogback.configurationFile=logback-jmh.xml" })
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RoundTripBenchmark {
+    private LocalMtlsServer server;
+    private PoolingHttpClientConnectionManager connectionManager;
+    private RestTemplate partnerRestTemplate;
+    private URI uri;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = LocalMtlsServer.start();
+        uri = server.uri();
+        PartnerMtlsProperties properties = LocalMtlsServer.clientProperties();
+        PartnerRestTemplateConfig config = new PartnerRestTemplateConfig(properties,
+            new PartnerSslContextFactory(properties), new SimpleMeterRegistry());
+        connectionManager = config.partnerConnectionManager(config.partnerSslContext());
+        partnerRestTemplate = config.partnerRestTemplate(connectionManager);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        connectionManager.close();
+        server.close();
+    }
+
+    @Benchmark
+    public ResponseEntity<String> pooledConnection() {
+        return partnerRestTemplate.getForEntity(uri, String.class);
+    }
+
+    @Benchmark
+    public ResponseEntity<String> newConnection() {
+        // Drops the idle connection so every call pays for a new TCP connection and (resumed) handshake.
+        connectionManager.closeIdle(TimeValue.ZERO_MILLISECONDS);
+        return partnerRestTemplate.getForEntity(uri, String.class);
+    }
+}
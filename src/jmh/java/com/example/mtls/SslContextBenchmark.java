@@ -0,0 +1,56 @@
+package com.example.mtls;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.X509ExtendedKeyManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g", "-Dlogback.configurationFile=logback-jmh.xml" })
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SslContextBenchmark {
+    private Path clientKeystore;
+    private PartnerSslContextFactory sslContextFactory;
+    private PartnerMtlsProperties pemProperties;
+    private PartnerSslContextFactory pemSslContextFactory;
+
+    @Setup
+    public void setUp() throws Exception {
+        clientKeystore = LocalMtlsServer.certPath("client.p12");
+        sslContextFactory = new PartnerSslContextFactory(LocalMtlsServer.clientProperties());
+        pemProperties = LocalMtlsServer.pemClientProperties(Files.createTempDirectory("jmh-pem"));
+        pemSslContextFactory = new PartnerSslContextFactory(pemProperties);
+    }
+
+    @Benchmark
+    public KeyStore loadClientKeystore() throws Exception {
+        return KeyStoreLoader.load(clientKeystore, "PKCS12", LocalMtlsServer.PASSWORD);
+    }
+
+    @Benchmark
+    public X509ExtendedKeyManager loadClientPem() throws Exception {
+        return PemKeyMaterial.keyManager(Path.of(pemProperties.getClientKeystorePath()),
+            Path.of(pemProperties.getClientKeyPath()));
+    }
+
+    @Benchmark
+    public SSLContext buildSslContext() throws Exception {
+        return sslContextFactory.build();
+    }
+
+    @Benchmark
+    public SSLContext buildSslContextFromPem() throws Exception {
+        return pemSslContextFactory.build();
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.mtls;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Resizes a pool between its configured bounds, AIMD style: routes whose leases queue grow by at least a fixed step,
+// routes that stop queueing shrink by a factor toward their measured demand. Demand follows Little's law, as the average
+// number of connections in use (leased time / interval). When the partner itself slows down, growth is held back,
+// since more connections would only queue at the partner.
+class AdaptivePoolController {
+    private static final Logger logger = LoggerFactory.getLogger(AdaptivePoolController.class);
+    // One daemon thread drives every pool; a tick is a few map lookups per route.
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+        Thread.ofPlatform().daemon().name("mtls-adaptive-pool").factory());
+    private static final double BASELINE_DRIFT = 0.1;
+
+    private final String name;
+    private final InstrumentedConnectionManager connectionManager;
+    private final PartnerMtlsProperties.Pool pool;
+    private final PartnerMtlsProperties.Adaptive adaptive;
+    private final MeterRegistry meterRegistry;
+    private final Map<HttpRoute, Double> baselineHoldNanos = new HashMap<>();
+    private final Map<HttpRoute, AtomicInteger> routeLimits = new ConcurrentHashMap<>();
+    private final Counter increases;
+    private final Counter decreases;
+    private final Counter held;
+    private volatile double demand;
+    private long lastTick = System.nanoTime();
+    private ScheduledFuture<?> task;
+
+    AdaptivePoolController(String name, InstrumentedConnectionManager connectionManager,
+                           PartnerMtlsProperties.Pool pool, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.connectionManager = connectionManager;
+        this.pool = pool;
+        this.adaptive = pool.getAdaptive();
+        this.meterRegistry = meterRegistry;
+        this.increases = decisions("increase");
+        this.decreases = decisions("decrease");
+        this.held = decisions("hold");
+        connectionManager.own(Gauge.builder("partner.mtls.pool.adaptive.demand", this, controller -> controller.demand)
+            .description("Average partner connections in use over the last adaptive sizing interval")
+            .tag("httpclient", name)
+            .register(meterRegistry));
+    }
+
+    synchronized void start() {
+        long intervalMillis = adaptive.getInterval().toMillis();
+        task = SCHEDULER.scheduleWithFixedDelay(this::adjustSafely, intervalMillis, intervalMillis,
+            TimeUnit.MILLISECONDS);
+    }
+
+    synchronized void stop() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+    }
+
+    synchronized void adjust() {
+        long now = System.nanoTime();
+        long elapsed = Math.max(1, now - lastTick);
+        lastTick = now;
+        Map<HttpRoute, InstrumentedConnectionManager.RouteLoad.Snapshot> load = connectionManager.drainLoad();
+        Set<HttpRoute> routes = new HashSet<>(connectionManager.getRoutes());
+        routes.addAll(load.keySet());
+
+        double totalDemand = 0;
+        int wantedTotal = 0;
+        boolean shrunk = false;
+        for (HttpRoute route : routes) {
+            InstrumentedConnectionManager.RouteLoad.Snapshot routeLoad =
+                load.getOrDefault(route, InstrumentedConnectionManager.RouteLoad.Snapshot.EMPTY);
+            double routeDemand = routeLoad.busyNanos() / (double) elapsed;
+            totalDemand += routeDemand;
+            int current = connectionManager.getMaxPerRoute(route);
+            int next = nextLimit(route, current, routeDemand, routeLoad, connectionManager.getStats(route));
+            if (next != current) {
+                connectionManager.setMaxPerRoute(route, next);
+                shrunk |= next < current;
+                logger.debug("Adaptive pool {}: {} max per route {} -> {} (demand {})", name, route, current, next,
+                    String.format("%.2f", routeDemand));
+            }
+            routeLimit(route).set(next);
+            wantedTotal += next;
+        }
+        demand = totalDemand;
+
+        int total = Math.max(adaptive.getMinTotal(), Math.min(pool.getMaxTotal(), wantedTotal));
+        if (total != connectionManager.getMaxTotal()) {
+            logger.debug("Adaptive pool {}: max total {} -> {}", name, connectionManager.getMaxTotal(), total);
+            connectionManager.setMaxTotal(total);
+        }
+        // Connections left idle for a whole interval were not needed at the old size either.
+        if (shrunk) {
+            connectionManager.closeIdle(TimeValue.ofNanoseconds(elapsed));
+        }
+    }
+
+    private int nextLimit(HttpRoute route, int current, double routeDemand,
+                          InstrumentedConnectionManager.RouteLoad.Snapshot routeLoad, PoolStats stats) {
+        boolean queued = stats.getPending() > 0 || (routeLoad.leases() > 0
+            && routeLoad.leaseWaitNanos() / routeLoad.leases() >= adaptive.getLeaseWaitThreshold().toNanos());
+        if (queued) {
+            if (partnerSlowedDown(route, routeLoad)) {
+                held.increment();
+                return current;
+            }
+            increases.increment();
+            // Waiting leases are demand the current limit could not serve; jump there rather than step by step.
+            int needed = (int) Math.ceil((routeDemand + stats.getPending()) * adaptive.getHeadroom());
+            return Math.min(pool.getMaxPerRoute(), Math.max(current + adaptive.getIncreaseStep(), needed));
+        }
+        partnerSlowedDown(route, routeLoad);
+        int needed = (int) Math.ceil(routeDemand * adaptive.getHeadroom());
+        if (needed >= current || current <= adaptive.getMinPerRoute()) {
+            return current;
+        }
+        decreases.increment();
+        int decreased = (int) Math.floor(current * adaptive.getDecreaseFactor());
+        return Math.max(adaptive.getMinPerRoute(), Math.max(needed, decreased));
+    }
+
+    // Mean time a connection stays leased (~ partner latency) against a baseline that follows drops immediately
+    // and rises only slowly, so a sustained slowdown is eventually accepted as the new normal.
+    private boolean partnerSlowedDown(HttpRoute route, InstrumentedConnectionManager.RouteLoad.Snapshot routeLoad) {
+        if (routeLoad.leases() == 0 || routeLoad.busyNanos() == 0) {
+            return false;
+        }
+        double hold = routeLoad.busyNanos() / (double) routeLoad.leases();
+        Double baseline = baselineHoldNanos.get(route);
+        if (baseline == null || hold < baseline) {
+            baselineHoldNanos.put(route, hold);
+            return false;
+        }
+        baselineHoldNanos.put(route, baseline + (hold - baseline) * BASELINE_DRIFT);
+        return hold > baseline * adaptive.getLatencyTolerance();
+    }
+
+    private AtomicInteger routeLimit(HttpRoute route) {
+        return routeLimits.computeIfAbsent(route, key -> {
+            AtomicInteger limit = new AtomicInteger();
+            connectionManager.own(Gauge.builder("partner.mtls.pool.adaptive.route.max", limit, AtomicInteger::get)
+                .description("Per-route connection limit chosen by adaptive pool sizing")
+                .tag("httpclient", name)
+                .tag("route", key.getTargetHost().toURI())
+                .register(meterRegistry));
+            return limit;
+        });
+    }
+
+    private void adjustSafely() {
+        try {
+            adjust();
+        } catch (RuntimeException ex) {
+            logger.warn("Adaptive pool sizing for {} failed: {}", name, ex.getMessage());
+        }
+    }
+
+    private Counter decisions(String decision) {
+        return connectionManager.own(Counter.builder("partner.mtls.pool.adaptive.decisions")
+            .description("Adaptive pool sizing decisions per route and interval that changed or held a limit")
+            .tag("httpclient", name)
+            .tag("decision", decision)
+            .register(meterRegistry));
+    }
+}
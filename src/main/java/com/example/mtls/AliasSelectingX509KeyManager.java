@@ -0,0 +1,236 @@
+package com.example.mtls;
+
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.Principal;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.X509ExtendedKeyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Picks the client certificate by partner host instead of letting the JDK key manager scan every keystore entry
+// against the server's issuers on each handshake. Keys are decrypted once at load and the choice is cached per peer
+// host and key type, so handshake cost does not grow with the keystore.
+public class AliasSelectingX509KeyManager extends X509ExtendedKeyManager {
+    private static final Logger logger = LoggerFactory.getLogger(AliasSelectingX509KeyManager.class);
+    private static final Entry NONE = new Entry(null, null, null);
+    // Hosts come from configuration and the pools' routes; the bound only guards against a caller spraying hosts.
+    private static final int MAX_CHOICES = 1024;
+
+    // Keyed by lower-cased alias, as JKS and PKCS12 keystores treat aliases case-insensitively.
+    private final Map<String, Entry> entries;
+    private final Map<String, String> hostAliases;
+    private final String defaultAlias;
+    private final String source;
+    private final Map<Choice, Entry> choices = new ConcurrentHashMap<>();
+    private volatile boolean fallbackWarned;
+
+    private AliasSelectingX509KeyManager(Map<String, Entry> entries, Map<String, String> hostAliases,
+                                         String defaultAlias, String source) {
+        this.entries = entries;
+        this.hostAliases = hostAliases;
+        this.defaultAlias = defaultAlias;
+        this.source = source;
+    }
+
+    static AliasSelectingX509KeyManager load(KeyStore keyStore, char[] password, Map<String, String> hostAliases,
+                                             String defaultAlias, String source) throws GeneralSecurityException {
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        for (String alias : Collections.list(keyStore.aliases())) {
+            if (!keyStore.isKeyEntry(alias)) {
+                continue;
+            }
+            Key key = keyStore.getKey(alias, password);
+            Certificate[] chain = keyStore.getCertificateChain(alias);
+            if (key instanceof PrivateKey privateKey && chain != null && chain.length > 0
+                && chain[0] instanceof X509Certificate) {
+                String normalized = alias.toLowerCase(Locale.ROOT);
+                entries.put(normalized,
+                    new Entry(normalized, privateKey, Arrays.copyOf(chain, chain.length, X509Certificate[].class)));
+            }
+        }
+        if (entries.isEmpty()) {
+            throw new IllegalStateException("Client keystore " + source + " has no private key entry");
+        }
+
+        Map<String, String> normalizedHosts = new LinkedHashMap<>();
+        hostAliases.forEach((host, alias) -> normalizedHosts.put(host.toLowerCase(Locale.ROOT),
+            requireEntry(entries, alias, "client-aliases[" + host + "]", source)));
+        String normalizedDefault = defaultAlias != null
+            ? requireEntry(entries, defaultAlias, "client-alias", source) : null;
+        return new AliasSelectingX509KeyManager(entries, normalizedHosts, normalizedDefault, source);
+    }
+
+    // Same parsed entries and host mapping, with another fallback alias (a registry partner's client-alias).
+    AliasSelectingX509KeyManager withDefaultAlias(String alias, String property) {
+        return new AliasSelectingX509KeyManager(entries, hostAliases, requireEntry(entries, alias, property, source),
+            source);
+    }
+
+    @Override
+    public String chooseClientAlias(String[] keyType, Principal[] issuers, Socket socket) {
+        SSLSession session = socket instanceof SSLSocket sslSocket ? sslSocket.getHandshakeSession() : null;
+        return choose(keyType, issuers, session != null ? session.getPeerHost() : null);
+    }
+
+    @Override
+    public String chooseEngineClientAlias(String[] keyType, Principal[] issuers, SSLEngine engine) {
+        return choose(keyType, issuers, engine != null ? engine.getPeerHost() : null);
+    }
+
+    @Override
+    public String[] getClientAliases(String keyType, Principal[] issuers) {
+        List<String> aliases = entries.values().stream()
+            .filter(entry -> matches(entry, keyType) && issuedBy(entry, issuers))
+            .map(Entry::alias)
+            // The configured default first, so callers taking aliases[0] see the certificate actually presented.
+            .sorted((left, right) -> Boolean.compare(right.equals(defaultAlias), left.equals(defaultAlias)))
+            .toList();
+        return aliases.isEmpty() ? null : aliases.toArray(new String[0]);
+    }
+
+    // Leaves this manager may present: the configured aliases, or every entry when none is configured.
+    List<X509Certificate> presentableCertificates() {
+        Set<String> configured = new LinkedHashSet<>(hostAliases.values());
+        if (defaultAlias != null) {
+            configured.add(defaultAlias);
+        }
+        Collection<Entry> presentable = configured.isEmpty() ? entries.values()
+            : configured.stream().map(entries::get).toList();
+        return presentable.stream().map(entry -> entry.chain()[0]).toList();
+    }
+
+    @Override
+    public X509Certificate[] getCertificateChain(String alias) {
+        Entry entry = alias != null ? entries.get(alias) : null;
+        return entry != null ? entry.chain().clone() : null;
+    }
+
+    @Override
+    public PrivateKey getPrivateKey(String alias) {
+        Entry entry = alias != null ? entries.get(alias) : null;
+        return entry != null ? entry.key() : null;
+    }
+
+    @Override
+    public String[] getServerAliases(String keyType, Principal[] issuers) {
+        return null;
+    }
+
+    @Override
+    public String chooseServerAlias(String keyType, Principal[] issuers, Socket socket) {
+        return null;
+    }
+
+    @Override
+    public String chooseEngineServerAlias(String keyType, Principal[] issuers, SSLEngine engine) {
+        return null;
+    }
+
+    int cachedChoices() {
+        return choices.size();
+    }
+
+    // A peer sends the same issuers on every handshake, so host and key type are enough to key the decision.
+    private String choose(String[] keyTypes, Principal[] issuers, String peerHost) {
+        if (keyTypes == null || keyTypes.length == 0) {
+            return null;
+        }
+        String host = peerHost != null ? peerHost : "";
+        Choice choice = new Choice(host, keyTypes.length == 1 ? keyTypes[0] : String.join(",", keyTypes));
+        Entry entry = choices.get(choice);
+        if (entry == null) {
+            entry = select(keyTypes, issuers, host);
+            if (choices.size() < MAX_CHOICES) {
+                choices.put(choice, entry);
+            }
+        }
+        return entry.alias();
+    }
+
+    // JSSE asks once per acceptable key type; NONE makes it move on to the next type.
+    private Entry select(String[] keyTypes, Principal[] issuers, String host) {
+        String alias = hostAliases.getOrDefault(host.toLowerCase(Locale.ROOT), defaultAlias);
+        if (alias != null) {
+            // An explicitly configured alias is presented whatever issuers the server lists.
+            Entry entry = entries.get(alias);
+            for (String keyType : keyTypes) {
+                if (matches(entry, keyType)) {
+                    return entry;
+                }
+            }
+            return NONE;
+        }
+        if (!hostAliases.isEmpty()) {
+            throw new IllegalStateException("No client certificate alias configured for partner host '" + host
+                + "' in " + source + ": add it to client-aliases or set client-alias as the default");
+        }
+        if (entries.size() > 1 && !fallbackWarned) {
+            fallbackWarned = true;
+            logger.warn("Client keystore {} has key entries {} and no client-alias; each partner host gets the first"
+                + " entry matching its key type and issuers", source, entries.keySet());
+        }
+        for (Entry entry : entries.values()) {
+            for (String keyType : keyTypes) {
+                if (matches(entry, keyType) && issuedBy(entry, issuers)) {
+                    return entry;
+                }
+            }
+        }
+        return NONE;
+    }
+
+    // Legacy TLS 1.2 key types carry the signing algorithm after an underscore, e.g. EC_EC.
+    private static boolean matches(Entry entry, String keyType) {
+        String algorithm = entry.key().getAlgorithm();
+        return keyType.equals(algorithm)
+            || (keyType.startsWith(algorithm) && keyType.length() > algorithm.length()
+                && keyType.charAt(algorithm.length()) == '_');
+    }
+
+    private static boolean issuedBy(Entry entry, Principal[] issuers) {
+        if (issuers == null || issuers.length == 0) {
+            return true;
+        }
+        for (X509Certificate certificate : entry.chain()) {
+            for (Principal issuer : issuers) {
+                if (certificate.getIssuerX500Principal().equals(issuer)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String requireEntry(Map<String, Entry> entries, String alias, String property, String source) {
+        String normalized = alias.toLowerCase(Locale.ROOT);
+        if (!entries.containsKey(normalized)) {
+            throw new IllegalStateException(property + ": alias '" + alias + "' has no private key entry in " + source
+                + " (key entries: " + entries.keySet() + ")");
+        }
+        return normalized;
+    }
+
+    private record Entry(String alias, PrivateKey key, X509Certificate[] chain) {
+    }
+
+    private record Choice(String host, String keyTypes) {
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.mtls;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Transfers borrow their copy buffer from a bounded free list instead of allocating one per call.
+public class ByteArrayPool {
+    private final int bufferSize;
+    private final BlockingQueue<byte[]> free;
+
+    public ByteArrayPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.free = new ArrayBlockingQueue<>(maxPooled);
+    }
+
+    public byte[] acquire() {
+        byte[] buffer = free.poll();
+        return buffer != null ? buffer : new byte[bufferSize];
+    }
+
+    public void release(byte[] buffer) {
+        free.offer(buffer);
+    }
+
+    int pooled() {
+        return free.size();
+    }
+}
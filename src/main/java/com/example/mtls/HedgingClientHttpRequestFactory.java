@@ -0,0 +1,195 @@
+package com.example.mtls;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.AbstractClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+
+public class HedgingClientHttpRequestFactory implements ClientHttpRequestFactory {
+    private static final int WINDOW = 256;
+    private static final int MIN_SAMPLES = 20;
+    private static final int RECOMPUTE_EVERY = 32;
+
+    private final ClientHttpRequestFactory delegate;
+    private final PartnerMtlsProperties.Hedging settings;
+    // Attempts run on virtual threads so cancelling the loser interrupts its blocking socket read.
+    private final ExecutorService attempts = Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("partner-hedge-", 0).factory());
+    private final AtomicLongArray latencies = new AtomicLongArray(WINDOW);
+    private final AtomicLong samples = new AtomicLong();
+    private volatile long hedgeDelayNanos = -1;
+    private final Counter hedgesSent;
+    private final Counter hedgesWon;
+
+    public HedgingClientHttpRequestFactory(String name, ClientHttpRequestFactory delegate,
+                                           PartnerMtlsProperties.Hedging settings, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.settings = settings;
+        this.hedgesSent = hedges(meterRegistry, name, "sent");
+        this.hedgesWon = hedges(meterRegistry, name, "won");
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+        if (!HttpMethod.GET.equals(httpMethod) && !HttpMethod.HEAD.equals(httpMethod)) {
+            return delegate.createRequest(uri, httpMethod);
+        }
+        return new HedgedRequest(uri, httpMethod);
+    }
+
+    long hedgeDelayNanos() {
+        return hedgeDelayNanos;
+    }
+
+    private void recordLatency(long nanos) {
+        long sample = samples.getAndIncrement();
+        latencies.set((int) (sample % WINDOW), nanos);
+        long recorded = sample + 1;
+        if (recorded == MIN_SAMPLES || (recorded > MIN_SAMPLES && recorded % RECOMPUTE_EVERY == 0)) {
+            long[] window = new long[(int) Math.min(recorded, WINDOW)];
+            for (int i = 0; i < window.length; i++) {
+                window[i] = latencies.get(i);
+            }
+            Arrays.sort(window);
+            long percentile = window[(int) Math.ceil(settings.getPercentile() * window.length) - 1];
+            hedgeDelayNanos = Math.max(percentile, settings.getMinDelay().toNanos());
+        }
+    }
+
+    private static Counter hedges(MeterRegistry meterRegistry, String name, String outcome) {
+        return Counter.builder("partner.mtls.hedges")
+            .description("Hedged partner requests sent, and how many answered before the original")
+            .tag("httpclient", name)
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    private final class HedgedRequest extends AbstractClientHttpRequest {
+        private final URI uri;
+        private final HttpMethod method;
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        private HedgedRequest(URI uri, HttpMethod method) {
+            this.uri = uri;
+            this.method = method;
+        }
+
+        @Override
+        public HttpMethod getMethod() {
+            return method;
+        }
+
+        @Override
+        public URI getURI() {
+            return uri;
+        }
+
+        @Override
+        protected OutputStream getBodyInternal(HttpHeaders headers) {
+            return body;
+        }
+
+        @Override
+        protected ClientHttpResponse executeInternal(HttpHeaders headers) throws IOException {
+            byte[] bytes = body.toByteArray();
+            AtomicReference<ClientHttpResponse> winner = new AtomicReference<>();
+            long delay = hedgeDelayNanos;
+            if (delay < 0) {
+                // Not enough latency samples yet to pick a hedge delay.
+                return attempt(headers, bytes, winner);
+            }
+
+            CompletionService<ClientHttpResponse> completion = new ExecutorCompletionService<>(attempts);
+            List<Future<ClientHttpResponse>> futures = new ArrayList<>(2);
+            futures.add(completion.submit(() -> attempt(headers, bytes, winner)));
+            try {
+                Future<ClientHttpResponse> done = completion.poll(delay, TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    futures.add(completion.submit(() -> attempt(headers, bytes, winner)));
+                    hedgesSent.increment();
+                    done = completion.take();
+                }
+                try {
+                    return result(done, futures);
+                } catch (IOException first) {
+                    if (futures.size() == 1) {
+                        throw first;
+                    }
+                    try {
+                        return result(completion.take(), futures);
+                    } catch (IOException second) {
+                        first.addSuppressed(second);
+                        throw first;
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for partner response");
+            } finally {
+                for (Future<ClientHttpResponse> future : futures) {
+                    future.cancel(true);
+                }
+            }
+        }
+
+        private ClientHttpResponse attempt(HttpHeaders headers, byte[] bytes,
+                                           AtomicReference<ClientHttpResponse> winner) throws IOException {
+            long start = System.nanoTime();
+            ClientHttpRequest request = delegate.createRequest(uri, method);
+            request.getHeaders().putAll(headers);
+            if (bytes.length > 0) {
+                request.getBody().write(bytes);
+            }
+            ClientHttpResponse response = request.execute();
+            if (!winner.compareAndSet(null, response)) {
+                response.close();
+                throw new CancellationException("Other attempt answered first");
+            }
+            recordLatency(System.nanoTime() - start);
+            return response;
+        }
+
+        private ClientHttpResponse result(Future<ClientHttpResponse> done, List<Future<ClientHttpResponse>> futures)
+            throws IOException, InterruptedException {
+            try {
+                ClientHttpResponse response = done.get();
+                if (futures.size() > 1 && done == futures.get(1)) {
+                    hedgesWon.increment();
+                }
+                return response;
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof IOException io) {
+                    throw io;
+                }
+                // A loser that finished after the winner fails with CancellationException; let the caller move on.
+                if (ex.getCause() instanceof RuntimeException runtime && !(runtime instanceof CancellationException)) {
+                    throw runtime;
+                }
+                throw new IOException(ex.getCause());
+            }
+        }
+    }
+}
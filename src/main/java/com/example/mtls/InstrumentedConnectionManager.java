@@ -0,0 +1,354 @@
+package com.example.mtls;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.search.Search;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.hc.client5.http.HttpRoute;
+import javax.net.ssl.SSLSession;
+import org.apache.hc.client5.http.impl.io.ManagedHttpClientConnectionFactory;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.client5.http.io.LeaseRequest;
+import org.apache.hc.client5.http.io.ManagedHttpClientConnection;
+import org.apache.hc.client5.http.socket.ConnectionSocketFactory;
+import org.apache.hc.client5.http.socket.LayeredConnectionSocketFactory;
+import org.apache.hc.client5.http.socket.PlainConnectionSocketFactory;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.EndpointDetails;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.ProtocolVersion;
+import org.apache.hc.core5.http.URIScheme;
+import org.apache.hc.core5.http.config.RegistryBuilder;
+import org.apache.hc.core5.http.io.HttpConnectionFactory;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.PoolConcurrencyPolicy;
+import org.apache.hc.core5.pool.PoolReusePolicy;
+import org.apache.hc.core5.util.Identifiable;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+
+public final class InstrumentedConnectionManager extends PoolingHttpClientConnectionManager {
+    private static final String POOL_BINDER_PREFIX = "httpcomponents.httpclient.pool.";
+    private static final String POOL_METER_PREFIX = "partner.mtls.pool.";
+
+    private final String name;
+    private final MeterRegistry meterRegistry;
+    // Meters registered by this manager and its adaptive controller; close() removes only these.
+    private final List<Meter> meters = new CopyOnWriteArrayList<>();
+    private final Timer leaseWait;
+    // Lease counts, lease wait and leased time per route since the last drain; only kept while adaptive sizing is on.
+    private final Map<HttpRoute, RouteLoad> load = new ConcurrentHashMap<>();
+    private final Map<ConnectionEndpoint, Lease> leased = new ConcurrentHashMap<>();
+    private volatile boolean trackLoad;
+    private volatile AdaptivePoolController controller;
+
+    public InstrumentedConnectionManager(String name, LayeredConnectionSocketFactory sslSocketFactory,
+                                         MeterRegistry meterRegistry) {
+        this(name, sslSocketFactory, meterRegistry, staleDropped(name, meterRegistry));
+    }
+
+    private InstrumentedConnectionManager(String name, LayeredConnectionSocketFactory sslSocketFactory,
+                                          MeterRegistry meterRegistry, Counter staleDropped) {
+        super(RegistryBuilder.<ConnectionSocketFactory>create()
+                .register(URIScheme.HTTP.id, PlainConnectionSocketFactory.getSocketFactory())
+                .register(URIScheme.HTTPS.id, sslSocketFactory)
+                .build(),
+            PoolConcurrencyPolicy.STRICT, PoolReusePolicy.LIFO, TimeValue.NEG_ONE_MILLISECOND,
+            staleCheckedConnections(staleDropped));
+        this.name = name;
+        this.meterRegistry = meterRegistry;
+        meters.add(staleDropped);
+        this.leaseWait = own(Timer.builder("partner.mtls.pool.lease.wait")
+            .description("Time spent waiting for a pooled partner connection")
+            .tag("httpclient", name)
+            .publishPercentileHistogram()
+            .register(meterRegistry));
+        new PoolingHttpClientConnectionManagerMetricsBinder(this, name).bindTo(meterRegistry);
+        meters.addAll(Search.in(meterRegistry)
+            .name(meterName -> meterName.startsWith(POOL_BINDER_PREFIX))
+            .tag("httpclient", name)
+            .meters());
+    }
+
+    AdaptivePoolController adaptive(PartnerMtlsProperties.Pool pool) {
+        trackLoad = true;
+        AdaptivePoolController adaptive = new AdaptivePoolController(name, this, pool, meterRegistry);
+        controller = adaptive;
+        adaptive.start();
+        return adaptive;
+    }
+
+    @Override
+    public void close(CloseMode closeMode) {
+        AdaptivePoolController adaptive = controller;
+        if (adaptive != null) {
+            adaptive.stop();
+        }
+        super.close(closeMode);
+        // Pool gauges keep their id after this manager is gone. A manager rebuilt under the same name has already
+        // replaced them with its own, which must survive this (possibly late) close.
+        for (Meter meter : meters) {
+            Meter.Id id = meter.getId();
+            boolean stillOurs = Search.in(meterRegistry).name(id.getName()).tags(id.getTagsAsIterable()).meters()
+                .stream()
+                .anyMatch(registered -> registered == meter);
+            if (stillOurs) {
+                meterRegistry.remove(meter);
+            }
+        }
+        meters.clear();
+    }
+
+    <M extends Meter> M own(M meter) {
+        meters.add(meter);
+        return meter;
+    }
+
+    @Override
+    public LeaseRequest lease(String id, HttpRoute route, Timeout requestTimeout, Object state) {
+        long start = System.nanoTime();
+        LeaseRequest request = super.lease(id, route, requestTimeout, state);
+        return new LeaseRequest() {
+            @Override
+            public ConnectionEndpoint get(Timeout timeout)
+                throws InterruptedException, ExecutionException, TimeoutException {
+                ConnectionEndpoint endpoint = null;
+                try {
+                    endpoint = request.get(timeout);
+                    return endpoint;
+                } finally {
+                    long leasedAt = System.nanoTime();
+                    leaseWait.record(leasedAt - start, TimeUnit.NANOSECONDS);
+                    if (trackLoad) {
+                        RouteLoad routeLoad = load.computeIfAbsent(route, key -> new RouteLoad());
+                        routeLoad.leases.increment();
+                        routeLoad.leaseWaitNanos.add(leasedAt - start);
+                        if (endpoint != null) {
+                            leased.put(endpoint, new Lease(routeLoad, leasedAt));
+                        }
+                    }
+                }
+            }
+
+            @Override
+            public boolean cancel() {
+                return request.cancel();
+            }
+        };
+    }
+
+    @Override
+    public void release(ConnectionEndpoint endpoint, Object state, TimeValue keepAlive) {
+        Lease lease = leased.remove(endpoint);
+        if (lease != null) {
+            lease.load().busyNanos.add(System.nanoTime() - lease.leasedAt());
+        }
+        super.release(endpoint, state, keepAlive);
+    }
+
+    // Snapshot of each route's load since the previous call, resetting the counters.
+    Map<HttpRoute, RouteLoad.Snapshot> drainLoad() {
+        Map<HttpRoute, RouteLoad.Snapshot> snapshot = new HashMap<>();
+        load.forEach((route, routeLoad) -> snapshot.put(route, routeLoad.drain()));
+        return snapshot;
+    }
+
+    // First meter of a new manager: retires the pool meters of a predecessor with the same name, which may still be
+    // draining calls, so that the registrations below bind to this manager rather than reuse the old gauges.
+    private static Counter staleDropped(String name, MeterRegistry meterRegistry) {
+        Search.in(meterRegistry)
+            .name(meterName -> meterName.startsWith(POOL_BINDER_PREFIX) || meterName.startsWith(POOL_METER_PREFIX))
+            .tag("httpclient", name)
+            .meters()
+            .forEach(meterRegistry::remove);
+        return Counter.builder("partner.mtls.pool.stale.dropped")
+            .description("Pooled partner connections found closed by the peer when validated before reuse")
+            .tag("httpclient", name)
+            .register(meterRegistry);
+    }
+
+    // The pool discards a connection whose isStale() is true after validate-after-inactivity; this is the only
+    // place that decision is visible.
+    private static HttpConnectionFactory<ManagedHttpClientConnection> staleCheckedConnections(Counter staleDropped) {
+        return socket -> new StaleCheckedConnection(
+            ManagedHttpClientConnectionFactory.INSTANCE.createConnection(socket), staleDropped);
+    }
+
+    static final class RouteLoad {
+        private final LongAdder leases = new LongAdder();
+        private final LongAdder leaseWaitNanos = new LongAdder();
+        private final LongAdder busyNanos = new LongAdder();
+
+        private Snapshot drain() {
+            return new Snapshot(leases.sumThenReset(), leaseWaitNanos.sumThenReset(), busyNanos.sumThenReset());
+        }
+
+        record Snapshot(long leases, long leaseWaitNanos, long busyNanos) {
+            static final Snapshot EMPTY = new Snapshot(0, 0, 0);
+        }
+    }
+
+    private record Lease(RouteLoad load, long leasedAt) {
+    }
+
+    private static final class StaleCheckedConnection implements ManagedHttpClientConnection, Identifiable {
+        private final ManagedHttpClientConnection delegate;
+        private final Counter staleDropped;
+
+        private StaleCheckedConnection(ManagedHttpClientConnection delegate, Counter staleDropped) {
+            this.delegate = delegate;
+            this.staleDropped = staleDropped;
+        }
+
+        @Override
+        public boolean isStale() throws IOException {
+            boolean stale;
+            try {
+                stale = delegate.isStale();
+            } catch (IOException ex) {
+                staleDropped.increment();
+                throw ex;
+            }
+            if (stale) {
+                staleDropped.increment();
+            }
+            return stale;
+        }
+
+        @Override
+        public String getId() {
+            return delegate instanceof Identifiable identifiable ? identifiable.getId() : delegate.toString();
+        }
+
+        @Override
+        public void bind(Socket socket) throws IOException {
+            delegate.bind(socket);
+        }
+
+        @Override
+        public Socket getSocket() {
+            return delegate.getSocket();
+        }
+
+        @Override
+        public SSLSession getSSLSession() {
+            return delegate.getSSLSession();
+        }
+
+        @Override
+        public void passivate() {
+            delegate.passivate();
+        }
+
+        @Override
+        public void activate() {
+            delegate.activate();
+        }
+
+        @Override
+        public boolean isConsistent() {
+            return delegate.isConsistent();
+        }
+
+        @Override
+        public void sendRequestHeader(ClassicHttpRequest request) throws HttpException, IOException {
+            delegate.sendRequestHeader(request);
+        }
+
+        @Override
+        public void terminateRequest(ClassicHttpRequest request) throws HttpException, IOException {
+            delegate.terminateRequest(request);
+        }
+
+        @Override
+        public void sendRequestEntity(ClassicHttpRequest request) throws HttpException, IOException {
+            delegate.sendRequestEntity(request);
+        }
+
+        @Override
+        public ClassicHttpResponse receiveResponseHeader() throws HttpException, IOException {
+            return delegate.receiveResponseHeader();
+        }
+
+        @Override
+        public void receiveResponseEntity(ClassicHttpResponse response) throws HttpException, IOException {
+            delegate.receiveResponseEntity(response);
+        }
+
+        @Override
+        public boolean isDataAvailable(Timeout timeout) throws IOException {
+            return delegate.isDataAvailable(timeout);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public EndpointDetails getEndpointDetails() {
+            return delegate.getEndpointDetails();
+        }
+
+        @Override
+        public SocketAddress getLocalAddress() {
+            return delegate.getLocalAddress();
+        }
+
+        @Override
+        public SocketAddress getRemoteAddress() {
+            return delegate.getRemoteAddress();
+        }
+
+        @Override
+        public ProtocolVersion getProtocolVersion() {
+            return delegate.getProtocolVersion();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return delegate.isOpen();
+        }
+
+        @Override
+        public Timeout getSocketTimeout() {
+            return delegate.getSocketTimeout();
+        }
+
+        @Override
+        public void setSocketTimeout(Timeout timeout) {
+            delegate.setSocketTimeout(timeout);
+        }
+
+        @Override
+        public void close(CloseMode closeMode) {
+            delegate.close(closeMode);
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public String toString() {
+            return delegate.toString();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.mtls;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.Socket;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactory;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class InstrumentedSslSocketFactory extends SSLConnectionSocketFactory {
+    private static final Logger logger = LoggerFactory.getLogger(InstrumentedSslSocketFactory.class);
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final String name;
+    private final PartnerMtlsProperties.Handshake handshake;
+    private final MeterRegistry meterRegistry;
+    private final PartnerMtlsStatus status;
+    private final String mode;
+    private final Counter hits;
+    private final Counter misses;
+
+    public InstrumentedSslSocketFactory(String name, SSLContext sslContext, PartnerMtlsProperties.Handshake handshake,
+                                        HostnameVerifier hostnameVerifier, MeterRegistry meterRegistry,
+                                        PartnerMtlsStatus status, PartnerMtlsProperties.ServerValidationMode mode) {
+        super(sslContext, orNull(handshake.getProtocols()), orNull(handshake.getCipherSuites()), hostnameVerifier);
+        this.name = name;
+        this.handshake = handshake;
+        this.meterRegistry = meterRegistry;
+        this.status = status;
+        this.mode = mode.name();
+        this.hits = resumptionCounter(meterRegistry, "hit");
+        this.misses = resumptionCounter(meterRegistry, "miss");
+    }
+
+    @Override
+    protected void prepareSocket(SSLSocket socket, HttpContext context) {
+        if (handshake.getNamedGroups().isEmpty() && handshake.getSignatureSchemes().isEmpty()) {
+            return;
+        }
+        SSLParameters parameters = socket.getSSLParameters();
+        if (!handshake.getNamedGroups().isEmpty()) {
+            parameters.setNamedGroups(handshake.getNamedGroups().toArray(new String[0]));
+        }
+        if (!handshake.getSignatureSchemes().isEmpty()) {
+            parameters.setSignatureSchemes(handshake.getSignatureSchemes().toArray(new String[0]));
+        }
+        socket.setSSLParameters(parameters);
+    }
+
+    @Override
+    public Socket createLayeredSocket(Socket socket, String target, int port, Object attachment, HttpContext context)
+        throws IOException {
+        long handshakeStartMillis = System.currentTimeMillis();
+        long handshakeStart = System.nanoTime();
+        long cpuStart = cpuTime();
+        Socket layered;
+        try {
+            layered = super.createLayeredSocket(socket, target, port, attachment, context);
+        } catch (IOException ex) {
+            recordFailure(target + ":" + port, ex);
+            throw ex;
+        }
+        if (layered instanceof SSLSocket sslSocket) {
+            SSLSession session = sslSocket.getSession();
+            // A session created before this handshake came from the client cache (TLS 1.2 ID/ticket or TLS 1.3 PSK).
+            boolean resumed = session.getCreationTime() < handshakeStartMillis;
+            long cpuEnd = cpuTime();
+            (resumed ? hits : misses).increment();
+            String peerKey = peerKey(session);
+            Timer.builder("partner.mtls.tls.handshake")
+                .description("Outbound mTLS handshake latency, including hostname verification")
+                .tag("httpclient", name)
+                .tag("mode", mode)
+                .tag("protocol", session.getProtocol())
+                .tag("cipher", session.getCipherSuite())
+                .tag("peer_key", peerKey)
+                .tag("resumed", Boolean.toString(resumed))
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(System.nanoTime() - handshakeStart, TimeUnit.NANOSECONDS);
+            // Thread CPU time is only available on platform threads; virtual-thread callers skip this timer.
+            if (cpuStart >= 0 && cpuEnd >= 0) {
+                Timer.builder("partner.mtls.tls.handshake.cpu")
+                    .description("CPU time the calling thread spent in the outbound mTLS handshake")
+                    .tag("httpclient", name)
+                    .tag("protocol", session.getProtocol())
+                    .tag("cipher", session.getCipherSuite())
+                    .tag("peer_key", peerKey)
+                    .tag("resumed", Boolean.toString(resumed))
+                    .register(meterRegistry)
+                    .record(cpuEnd - cpuStart, TimeUnit.NANOSECONDS);
+            }
+            status.handshakeSucceeded(target + ":" + port, session.getProtocol());
+            logger.debug("{} TLS handshake for {}:{} ({}, {}, peer key {})", resumed ? "Resumed" : "Full",
+                target, port, session.getProtocol(), session.getCipherSuite(), peerKey);
+        }
+        return layered;
+    }
+
+    static String failureCause(Throwable throwable) {
+        return TlsFailureEvents.Kind.of(throwable).tag();
+    }
+
+    private void recordFailure(String target, IOException ex) {
+        String cause = failureCause(ex);
+        status.handshakeFailed(target, cause);
+        Counter.builder("partner.mtls.tls.handshake.failures")
+            .description("Outbound mTLS handshakes that failed, by cause")
+            .tag("httpclient", name)
+            .tag("mode", mode)
+            .tag("cause", cause)
+            .register(meterRegistry)
+            .increment();
+        if ("pin_mismatch".equals(cause)) {
+            Counter.builder("partner.mtls.tls.pin.mismatches")
+                .description("Partner certificates rejected by pinning")
+                .tag("mode", mode)
+                .register(meterRegistry)
+                .increment();
+        }
+    }
+
+    static long cpuTime() {
+        return Thread.currentThread().isVirtual() || !THREADS.isCurrentThreadCpuTimeSupported()
+            ? -1 : THREADS.getCurrentThreadCpuTime();
+    }
+
+    // Key type and size of the partner certificate, which dominate the cost of verifying its handshake signature.
+    private static String peerKey(SSLSession session) {
+        try {
+            PublicKey key = session.getPeerCertificates()[0].getPublicKey();
+            if (key instanceof ECPublicKey ec) {
+                return "EC-" + ec.getParams().getCurve().getField().getFieldSize();
+            }
+            if (key instanceof RSAPublicKey rsa) {
+                return "RSA-" + rsa.getModulus().bitLength();
+            }
+            return key.getAlgorithm();
+        } catch (SSLPeerUnverifiedException ex) {
+            return "none";
+        }
+    }
+
+    private static String[] orNull(List<String> values) {
+        return values.isEmpty() ? null : values.toArray(new String[0]);
+    }
+
+    private static Counter resumptionCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("partner.mtls.tls.session.resumption")
+            .description("Outbound mTLS handshakes by session cache result")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+}
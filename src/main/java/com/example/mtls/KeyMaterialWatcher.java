@@ -0,0 +1,179 @@
+package com.example.mtls;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnProperty(prefix = "partner.mtls", name = { "enabled", "reload.enabled" }, havingValue = "true")
+public class KeyMaterialWatcher implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(KeyMaterialWatcher.class);
+
+    private final PartnerSslContextFactory sslContextFactory;
+    private final PartnerClientRegistry clientRegistry;
+    private final PartnerMtlsProperties properties;
+    private final Map<Path, String> fingerprints = new HashMap<>();
+
+    private volatile WatchService watchService;
+    private volatile Thread watcherThread;
+
+    public KeyMaterialWatcher(PartnerSslContextFactory sslContextFactory, PartnerClientRegistry clientRegistry,
+                              PartnerMtlsProperties properties) {
+        this.sslContextFactory = sslContextFactory;
+        this.clientRegistry = clientRegistry;
+        this.properties = properties;
+    }
+
+    @Override
+    public void start() {
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            // Kubernetes swaps Secret contents through a "..data" symlink, so watch directories rather than files.
+            for (Path directory : watchedDirectories()) {
+                directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                logger.info("Watching {} for key material changes", directory);
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Unable to watch key material directories", ex);
+        }
+        for (Path file : watchedFiles()) {
+            fingerprints.put(file, fingerprint(file));
+        }
+        // Assigned before starting: watch() exits as soon as it sees no thread.
+        Thread thread = Thread.ofPlatform().daemon().name("mtls-key-material-watcher").unstarted(this::watch);
+        watcherThread = thread;
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        Thread thread = watcherThread;
+        watcherThread = null;
+        try {
+            if (watchService != null) {
+                watchService.close();
+            }
+        } catch (IOException ex) {
+            logger.debug("Error closing key material watch service: {}", ex.getMessage());
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return watcherThread != null;
+    }
+
+    private void watch() {
+        long debounceMillis = properties.getReload().getDebounce().toMillis();
+        try {
+            while (watcherThread != null) {
+                WatchKey key = watchService.take();
+                // Secret updates arrive as a burst of events; wait for it to settle before reparsing.
+                WatchKey next = key;
+                while (next != null) {
+                    next.pollEvents();
+                    next.reset();
+                    next = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS);
+                }
+                reloadIfChanged();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException ex) {
+            logger.debug("Key material watch service closed");
+        }
+    }
+
+    void reloadIfChanged() {
+        Map<Path, String> current = new HashMap<>();
+        for (Path file : watchedFiles()) {
+            current.put(file, fingerprint(file));
+        }
+        if (current.equals(fingerprints) || current.containsValue(null)) {
+            return;
+        }
+        Set<Path> changed = new HashSet<>();
+        current.forEach((file, fingerprint) -> {
+            if (!fingerprint.equals(fingerprints.get(file))) {
+                changed.add(file);
+            }
+        });
+        if (!Collections.disjoint(changed, defaultFiles())) {
+            try {
+                // New handshakes start from an empty session cache, so nothing resumes the previous identity.
+                sslContextFactory.reload();
+                logger.info("Key material reloaded; pooled connections drain as they reach their time to live");
+            } catch (Exception ex) {
+                // Fingerprints stay stale so the next change event retries, e.g. after a partially written file.
+                logger.warn("Key material reload failed, keeping previous material: {}", ex.getMessage());
+                return;
+            }
+        }
+        fingerprints.putAll(current);
+        List<String> retired = clientRegistry.retirePartnersUsing(changed);
+        if (!retired.isEmpty()) {
+            logger.info("Key material of partners {} changed; their clients are rebuilt on the next call", retired);
+        }
+    }
+
+    private Set<Path> watchedFiles() {
+        Set<Path> files = new LinkedHashSet<>(defaultFiles());
+        for (PartnerMtlsProperties.Partner partner : properties.getPartners().values()) {
+            files.addAll(sslContextFactory.materialFiles(partner));
+        }
+        return files;
+    }
+
+    private List<Path> defaultFiles() {
+        List<Path> files = new ArrayList<>();
+        files.add(Path.of(properties.getClientKeystorePath()).toAbsolutePath());
+        if (properties.getClientKeyPath() != null) {
+            files.add(Path.of(properties.getClientKeyPath()).toAbsolutePath());
+        }
+        PartnerMtlsProperties.ServerValidation validation = properties.getServerValidation();
+        if (validation.getMode() == PartnerMtlsProperties.ServerValidationMode.TRUSTSTORE) {
+            files.add(Path.of(validation.getTruststorePath()).toAbsolutePath());
+        }
+        return files;
+    }
+
+    private Set<Path> watchedDirectories() {
+        Set<Path> directories = new LinkedHashSet<>();
+        for (Path file : watchedFiles()) {
+            directories.add(file.getParent());
+        }
+        return directories;
+    }
+
+    private static String fingerprint(Path file) {
+        try {
+            return PinningUtils.sha256Hex(Files.readAllBytes(file));
+        } catch (IOException ex) {
+            logger.debug("Unable to read {}: {}", file, ex.getMessage());
+            return null;
+        }
+    }
+}
@@ -12,6 +12,9 @@ public final class KeyStoreLoader {
     }
 
     public static KeyStore load(Path path, String type, String password) throws IOException, GeneralSecurityException {
+        if (PemKeyMaterial.isPem(type)) {
+            return PemKeyMaterial.trustStore(path);
+        }
         KeyStore keyStore = KeyStore.getInstance(type);
         try (InputStream inputStream = Files.newInputStream(path)) {
             keyStore.load(inputStream, password != null ? password.toCharArray() : null);
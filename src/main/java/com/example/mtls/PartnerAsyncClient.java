@@ -0,0 +1,169 @@
+package com.example.mtls;
+
+import java.io.Closeable;
+import java.net.URI;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.net.ssl.SSLException;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.async.methods.SimpleRequestProducer;
+import org.apache.hc.client5.http.async.methods.SimpleResponseConsumer;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.io.CloseMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// HTTP/2 requests share one multiplexed connection per partner host; hosts that do not negotiate h2 are sent to
+// the pooled HTTP/1.1 client instead, and remembered so later requests skip the attempt.
+public class PartnerAsyncClient implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(PartnerAsyncClient.class);
+
+    private final CloseableHttpAsyncClient h2Client;
+    private final CloseableHttpAsyncClient http1Client;
+    private final Set<String> http1Routes = ConcurrentHashMap.newKeySet();
+    // Caps the streams open at once over h2; requests above it wait here instead of on the connection.
+    private final Semaphore streams;
+    private final Queue<Runnable> waitingStreams = new ConcurrentLinkedQueue<>();
+
+    // h2Client is null under FORCE_HTTP_1 and http1Client under FORCE_HTTP_2.
+    public PartnerAsyncClient(CloseableHttpAsyncClient h2Client, CloseableHttpAsyncClient http1Client,
+                              int maxConcurrentStreams) {
+        if (h2Client == null && http1Client == null) {
+            throw new IllegalArgumentException("At least one of the HTTP/2 and HTTP/1.1 clients is required");
+        }
+        this.h2Client = h2Client;
+        this.http1Client = http1Client;
+        this.streams = new Semaphore(maxConcurrentStreams);
+        if (h2Client != null) {
+            h2Client.start();
+        }
+        if (http1Client != null) {
+            http1Client.start();
+        }
+    }
+
+    public CompletableFuture<SimpleHttpResponse> get(URI uri) {
+        return execute(SimpleRequestBuilder.get(uri).build());
+    }
+
+    public CompletableFuture<SimpleHttpResponse> execute(SimpleHttpRequest request) {
+        CompletableFuture<SimpleHttpResponse> result = new CompletableFuture<>();
+        AtomicReference<Future<SimpleHttpResponse>> exchange = new AtomicReference<>();
+        String route = request.getScheme() + "://" + request.getAuthority();
+        if (h2Client != null && (http1Client == null || !http1Routes.contains(route))) {
+            waitingStreams.add(() -> send(h2Client, request, route, result, exchange));
+            startWaitingStreams();
+        } else {
+            send(http1Client, request, route, result, exchange);
+        }
+        result.whenComplete((response, ex) -> {
+            Future<SimpleHttpResponse> current = exchange.get();
+            if (result.isCancelled() && current != null) {
+                current.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private void send(CloseableHttpAsyncClient client, SimpleHttpRequest request, String route,
+                      CompletableFuture<SimpleHttpResponse> result,
+                      AtomicReference<Future<SimpleHttpResponse>> exchange) {
+        boolean overH2 = client == h2Client;
+        if (result.isDone()) {
+            if (overH2) {
+                streamFinished();
+            }
+            return;
+        }
+        exchange.set(client.execute(SimpleRequestProducer.create(request), SimpleResponseConsumer.create(),
+            new FutureCallback<>() {
+                @Override
+                public void completed(SimpleHttpResponse response) {
+                    if (overH2) {
+                        streamFinished();
+                    }
+                    logger.debug("{} {} -> {} over {}", request.getMethod(), request.getRequestUri(),
+                        response.getCode(), response.getVersion());
+                    result.complete(response);
+                }
+
+                @Override
+                public void failed(Exception ex) {
+                    if (overH2) {
+                        streamFinished();
+                    }
+                    if (overH2 && http1Client != null && isHttp2Unavailable(ex)) {
+                        if (http1Routes.add(route)) {
+                            logger.info("{} did not negotiate HTTP/2; using HTTP/1.1 for it", route);
+                        }
+                        send(http1Client, request, route, result, exchange);
+                    } else {
+                        result.completeExceptionally(ex);
+                    }
+                }
+
+                @Override
+                public void cancelled() {
+                    if (overH2) {
+                        streamFinished();
+                    }
+                    result.cancel(false);
+                }
+            }));
+    }
+
+    private void streamFinished() {
+        streams.release();
+        startWaitingStreams();
+    }
+
+    // Whoever frees a stream or queues a request drains the queue, so no request waits behind a free permit.
+    private void startWaitingStreams() {
+        while (!waitingStreams.isEmpty() && streams.tryAcquire()) {
+            Runnable next = waitingStreams.poll();
+            if (next == null) {
+                streams.release();
+            } else {
+                next.run();
+            }
+        }
+    }
+
+    private static boolean isHttp2Unavailable(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof Http2UnavailableException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void close() {
+        if (h2Client != null) {
+            h2Client.close(CloseMode.GRACEFUL);
+        }
+        if (http1Client != null) {
+            http1Client.close(CloseMode.GRACEFUL);
+        }
+    }
+
+    // Raised by the HTTP/2 client's TLS strategy when ALPN settles on anything but h2.
+    static final class Http2UnavailableException extends SSLException {
+        private static final long serialVersionUID = 1L;
+
+        Http2UnavailableException(String endpoint, String applicationProtocol) {
+            super(endpoint + " negotiated " + (applicationProtocol == null || applicationProtocol.isEmpty()
+                ? "no application protocol" : "'" + applicationProtocol + "'") + " instead of h2");
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.mtls;
+
+import java.net.SocketAddress;
+import javax.net.ssl.SSLContext;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.H2AsyncClientBuilder;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.ssl.ClientTlsStrategyBuilder;
+import org.apache.hc.client5.http.ssl.DefaultHostnameVerifier;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.nio.ssl.TlsStrategy;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.http2.config.H2Config;
+import org.apache.hc.core5.http2.ssl.ApplicationProtocol;
+import org.apache.hc.core5.net.NamedEndpoint;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.reactor.ssl.TlsDetails;
+import org.apache.hc.core5.reactor.ssl.TransportSecurityLayer;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(prefix = "partner.mtls", name = { "enabled", "async.enabled" }, havingValue = "true")
+public class PartnerAsyncClientConfig {
+    private final PartnerMtlsProperties properties;
+
+    public PartnerAsyncClientConfig(PartnerMtlsProperties properties) {
+        this.properties = properties;
+    }
+
+    // The async TLS strategy takes protocols and cipher suites only; named groups and signature schemes fall back
+    // to the JVM defaults (jdk.tls.namedGroups / jdk.tls.client.SignatureSchemes) on this client.
+    private static TlsStrategy tlsStrategy(SSLContext sslContext, PartnerMtlsProperties.Handshake handshake) {
+        ClientTlsStrategyBuilder builder = ClientTlsStrategyBuilder.create()
+            .setSslContext(sslContext)
+            .setHostnameVerifier(new DefaultHostnameVerifier());
+        if (!handshake.getProtocols().isEmpty()) {
+            builder.setTlsVersions(handshake.getProtocols().toArray(new String[0]));
+        }
+        if (!handshake.getCipherSuites().isEmpty()) {
+            builder.setCiphers(handshake.getCipherSuites().toArray(new String[0]));
+        }
+        return builder.build();
+    }
+
+    @Bean
+    public PartnerAsyncClient partnerAsyncClient(SSLContext partnerSslContext) {
+        PartnerMtlsProperties.Async async = properties.getAsync();
+        TlsStrategy tlsStrategy = tlsStrategy(partnerSslContext, properties.getHandshake());
+        HttpVersionPolicy versionPolicy = async.getVersionPolicy();
+        CloseableHttpAsyncClient h2Client = versionPolicy == HttpVersionPolicy.FORCE_HTTP_1 ? null
+            : h2Client(new H2OnlyTlsStrategy(tlsStrategy), async);
+        CloseableHttpAsyncClient http1Client = versionPolicy == HttpVersionPolicy.FORCE_HTTP_2 ? null
+            : http1Client(tlsStrategy, async);
+        return new PartnerAsyncClient(h2Client, http1Client, async.getMaxConcurrentStreams());
+    }
+
+    // One connection per host carrying every request as a stream; the pooled client leases each connection to a
+    // single request at a time, even over h2.
+    private CloseableHttpAsyncClient h2Client(TlsStrategy tlsStrategy, PartnerMtlsProperties.Async async) {
+        PartnerMtlsProperties.Pool pool = properties.getPool();
+        return H2AsyncClientBuilder.create()
+            .setTlsStrategy(tlsStrategy)
+            .setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(PartnerRestTemplateConfig.CONNECT_TIMEOUT)
+                .setTimeToLive(TimeValue.of(pool.getTimeToLive()))
+                .setValidateAfterInactivity(TimeValue.of(pool.getValidateAfterInactivity()))
+                .build())
+            .setH2Config(H2Config.custom()
+                .setPushEnabled(false)
+                .build())
+            .setIOReactorConfig(ioReactorConfig(async))
+            .setDefaultRequestConfig(RequestConfig.custom()
+                .setResponseTimeout(PartnerRestTemplateConfig.RESPONSE_TIMEOUT)
+                .build())
+            .evictIdleConnections(TimeValue.ofSeconds(30))
+            .build();
+    }
+
+    private CloseableHttpAsyncClient http1Client(TlsStrategy tlsStrategy, PartnerMtlsProperties.Async async) {
+        PartnerMtlsProperties.Pool pool = properties.getPool();
+        PoolingAsyncClientConnectionManager connectionManager = PoolingAsyncClientConnectionManagerBuilder.create()
+            .setTlsStrategy(tlsStrategy)
+            .setDefaultTlsConfig(TlsConfig.custom()
+                .setVersionPolicy(HttpVersionPolicy.FORCE_HTTP_1)
+                .build())
+            .setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(PartnerRestTemplateConfig.CONNECT_TIMEOUT)
+                .setTimeToLive(TimeValue.of(pool.getTimeToLive()))
+                .setValidateAfterInactivity(TimeValue.of(pool.getValidateAfterInactivity()))
+                .build())
+            .setMaxConnTotal(pool.getMaxTotal())
+            .setMaxConnPerRoute(pool.getMaxPerRoute())
+            .build();
+
+        return HttpAsyncClients.custom()
+            .setConnectionManager(connectionManager)
+            .setIOReactorConfig(ioReactorConfig(async))
+            .setDefaultRequestConfig(RequestConfig.custom()
+                .setResponseTimeout(PartnerRestTemplateConfig.RESPONSE_TIMEOUT)
+                .setConnectionRequestTimeout(Timeout.of(pool.getLeaseTimeout()))
+                .build())
+            .disableConnectionState()
+            .evictIdleConnections(TimeValue.ofSeconds(30))
+            .build();
+    }
+
+    private static IOReactorConfig ioReactorConfig(PartnerMtlsProperties.Async async) {
+        return IOReactorConfig.custom()
+            .setIoThreadCount(async.getIoThreads())
+            .build();
+    }
+
+    // Offers only h2 over ALPN and fails the handshake unless the partner picks it, so NEGOTIATE can fall back to
+    // HTTP/1.1 before any HTTP/2 preface reaches a server that would not understand it.
+    private static final class H2OnlyTlsStrategy implements TlsStrategy {
+        private static final TlsConfig H2_ONLY = TlsConfig.custom()
+            .setVersionPolicy(HttpVersionPolicy.FORCE_HTTP_2)
+            .build();
+
+        private final TlsStrategy delegate;
+
+        H2OnlyTlsStrategy(TlsStrategy delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void upgrade(TransportSecurityLayer tlsSession, NamedEndpoint endpoint, Object attachment,
+                            Timeout handshakeTimeout, FutureCallback<TransportSecurityLayer> callback) {
+            delegate.upgrade(tlsSession, endpoint, H2_ONLY, handshakeTimeout, new FutureCallback<>() {
+                @Override
+                public void completed(TransportSecurityLayer result) {
+                    TlsDetails details = result.getTlsDetails();
+                    String protocol = details != null ? details.getApplicationProtocol() : null;
+                    if (ApplicationProtocol.HTTP_2.id.equals(protocol)) {
+                        callback.completed(result);
+                    } else {
+                        callback.failed(new PartnerAsyncClient.Http2UnavailableException(
+                            endpoint.getHostName() + ":" + endpoint.getPort(), protocol));
+                    }
+                }
+
+                @Override
+                public void failed(Exception ex) {
+                    callback.failed(ex);
+                }
+
+                @Override
+                public void cancelled() {
+                    callback.cancelled();
+                }
+            });
+        }
+
+        // Without a callback the negotiated protocol cannot be checked here; the HTTP/2 connection pool only calls
+        // the variant above.
+        @Deprecated
+        @Override
+        public boolean upgrade(TransportSecurityLayer tlsSession, HttpHost host, SocketAddress localAddress,
+                               SocketAddress remoteAddress, Object attachment, Timeout handshakeTimeout) {
+            return delegate.upgrade(tlsSession, host, localAddress, remoteAddress, H2_ONLY, handshakeTimeout);
+        }
+    }
+}
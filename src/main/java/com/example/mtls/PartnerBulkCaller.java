@@ -0,0 +1,135 @@
+package com.example.mtls;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+@Component
+@ConditionalOnProperty(prefix = "partner.mtls", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class PartnerBulkCaller {
+    private static final Logger logger = LoggerFactory.getLogger(PartnerBulkCaller.class);
+
+    private final RestTemplate partnerRestTemplate;
+    private final PoolingHttpClientConnectionManager partnerConnectionManager;
+    private final ResizableSemaphore permits = new ResizableSemaphore();
+    private int maxConcurrency;
+
+    public PartnerBulkCaller(RestTemplate partnerRestTemplate,
+                             PoolingHttpClientConnectionManager partnerConnectionManager) {
+        this.partnerRestTemplate = partnerRestTemplate;
+        this.partnerConnectionManager = partnerConnectionManager;
+        resize();
+    }
+
+    public <T, R> List<Result<R>> callAll(List<T> inputs, PartnerCall<T, R> call, Duration deadline)
+        throws InterruptedException {
+        List<Callable<R>> tasks = new ArrayList<>(inputs.size());
+        for (T input : inputs) {
+            tasks.add(() -> {
+                resize();
+                permits.acquire();
+                try {
+                    return call.call(partnerRestTemplate, input);
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+
+        List<Future<R>> futures;
+        try (ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("partner-bulk-", 0).factory())) {
+            futures = executor.invokeAll(tasks, deadline.toNanos(), TimeUnit.NANOSECONDS);
+        }
+
+        List<Result<R>> results = new ArrayList<>(futures.size());
+        int failures = 0;
+        for (Future<R> future : futures) {
+            Result<R> result = toResult(future, deadline);
+            if (!result.isSuccess()) {
+                failures++;
+            }
+            results.add(result);
+        }
+        logger.debug("Bulk partner call finished: {} calls, {} failed", results.size(), failures);
+        return results;
+    }
+
+    public synchronized int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    // More in-flight calls than pooled connections would only queue inside the pool for a lease. The pool's limits
+    // move with the adaptive controller, so they are read again before every call; calls already holding a permit
+    // finish, and a shrink takes effect as they release.
+    private synchronized void resize() {
+        int perRoute = partnerConnectionManager.getRoutes().stream()
+            .mapToInt(partnerConnectionManager::getMaxPerRoute)
+            .max()
+            .orElse(partnerConnectionManager.getDefaultMaxPerRoute());
+        int limit = Math.max(1, Math.min(partnerConnectionManager.getMaxTotal(), perRoute));
+        if (limit > maxConcurrency) {
+            permits.release(limit - maxConcurrency);
+        } else if (limit < maxConcurrency) {
+            permits.reducePermits(maxConcurrency - limit);
+        }
+        maxConcurrency = limit;
+    }
+
+    private static <R> Result<R> toResult(Future<R> future, Duration deadline) throws InterruptedException {
+        try {
+            return Result.success(future.get());
+        } catch (CancellationException ex) {
+            return Result.failure(new TimeoutException("Partner call did not complete within " + deadline));
+        } catch (ExecutionException ex) {
+            return Result.failure(ex.getCause());
+        }
+    }
+
+    private static final class ResizableSemaphore extends Semaphore {
+        private static final long serialVersionUID = 1L;
+
+        ResizableSemaphore() {
+            super(0);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+
+    @FunctionalInterface
+    public interface PartnerCall<T, R> {
+        R call(RestTemplate restTemplate, T input) throws Exception;
+    }
+
+    public record Result<R>(R value, Throwable error) {
+        static <R> Result<R> success(R value) {
+            return new Result<>(value, null);
+        }
+
+        static <R> Result<R> failure(Throwable error) {
+            return new Result<>(null, error);
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+}
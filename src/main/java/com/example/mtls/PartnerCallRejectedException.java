@@ -0,0 +1,23 @@
+package com.example.mtls;
+
+import java.io.IOException;
+
+public class PartnerCallRejectedException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public enum Reason {
+        CIRCUIT_OPEN,
+        CONCURRENCY_LIMIT
+    }
+
+    private final Reason reason;
+
+    public PartnerCallRejectedException(String message, Reason reason) {
+        super(message);
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.mtls;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class PartnerCircuitBreaker {
+    private static final Logger logger = LoggerFactory.getLogger(PartnerCircuitBreaker.class);
+    private static final int CALLS = 0;
+    private static final int FAILURES = 1;
+    private static final int SLOW = 2;
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final PartnerMtlsProperties.CircuitBreaker settings;
+    private final LongSupplier clock;
+    private final long bucketNanos;
+    private final long slowCallNanos;
+    // Per bucket: the epoch it currently counts for, and its call/failure/slow counters.
+    private final AtomicLongArray bucketEpochs;
+    private final AtomicLongArray counts;
+    private final AtomicReference<Phase> phase;
+
+    public PartnerCircuitBreaker(String name, PartnerMtlsProperties.CircuitBreaker settings) {
+        this(name, settings, System::nanoTime);
+    }
+
+    PartnerCircuitBreaker(String name, PartnerMtlsProperties.CircuitBreaker settings, LongSupplier clock) {
+        this.name = name;
+        this.settings = settings;
+        this.clock = clock;
+        this.bucketNanos = settings.getWindow().toNanos() / PartnerMtlsProperties.CircuitBreaker.BUCKETS;
+        this.slowCallNanos = settings.getSlowCallThreshold().toNanos();
+        this.bucketEpochs = new AtomicLongArray(PartnerMtlsProperties.CircuitBreaker.BUCKETS);
+        this.counts = new AtomicLongArray(PartnerMtlsProperties.CircuitBreaker.BUCKETS * 3);
+        for (int i = 0; i < PartnerMtlsProperties.CircuitBreaker.BUCKETS; i++) {
+            bucketEpochs.set(i, Long.MIN_VALUE);
+        }
+        this.phase = new AtomicReference<>(new Phase(State.CLOSED, clock.getAsLong(), 0));
+    }
+
+    public State state() {
+        return phase.get().state;
+    }
+
+    // The phase that admitted the call, to be handed back to record(); null when the call is rejected.
+    public Phase tryAcquire() {
+        while (true) {
+            Phase current = phase.get();
+            switch (current.state) {
+                case CLOSED:
+                    return current;
+                case OPEN:
+                    if (clock.getAsLong() - current.since < settings.getOpenDuration().toNanos()) {
+                        return null;
+                    }
+                    if (transition(current, new Phase(State.HALF_OPEN, clock.getAsLong(), settings.getHalfOpenCalls()))) {
+                        logger.info("Circuit for {} half-open, allowing {} trial calls", name, settings.getHalfOpenCalls());
+                    }
+                    break;
+                default:
+                    return current.permits.getAndDecrement() > 0 ? current : null;
+            }
+        }
+    }
+
+    public void record(Phase admittedIn, long durationNanos, boolean failed) {
+        boolean slow = durationNanos >= slowCallNanos;
+        Phase current = phase.get();
+        // A call that outlived the phase admitting it says nothing about the current one; in particular a slow call
+        // started before the circuit opened must not count as a failed trial.
+        if (admittedIn != current) {
+            return;
+        }
+        if (current.state == State.HALF_OPEN) {
+            if (failed || slow) {
+                if (transition(current, new Phase(State.OPEN, clock.getAsLong(), 0))) {
+                    logger.warn("Circuit for {} re-opened after a failed trial call", name);
+                }
+            } else if (current.successes.incrementAndGet() >= settings.getHalfOpenCalls()
+                && transition(current, new Phase(State.CLOSED, clock.getAsLong(), 0))) {
+                resetWindow();
+                logger.info("Circuit for {} closed after {} successful trial calls", name, settings.getHalfOpenCalls());
+            }
+            return;
+        }
+
+        int bucket = currentBucket();
+        counts.incrementAndGet(bucket * 3 + CALLS);
+        if (failed) {
+            counts.incrementAndGet(bucket * 3 + FAILURES);
+        }
+        if (slow) {
+            counts.incrementAndGet(bucket * 3 + SLOW);
+        }
+        tripIfUnhealthy(current);
+    }
+
+    private void tripIfUnhealthy(Phase current) {
+        long oldestEpoch = epoch(clock.getAsLong()) - PartnerMtlsProperties.CircuitBreaker.BUCKETS + 1;
+        long calls = 0;
+        long failures = 0;
+        long slow = 0;
+        for (int i = 0; i < PartnerMtlsProperties.CircuitBreaker.BUCKETS; i++) {
+            if (bucketEpochs.get(i) >= oldestEpoch) {
+                calls += counts.get(i * 3 + CALLS);
+                failures += counts.get(i * 3 + FAILURES);
+                slow += counts.get(i * 3 + SLOW);
+            }
+        }
+        if (calls < settings.getMinimumCalls()) {
+            return;
+        }
+        boolean failing = failures * 100 >= calls * settings.getFailureRateThreshold();
+        boolean slowing = slow * 100 >= calls * settings.getSlowCallRateThreshold();
+        if ((failing || slowing) && transition(current, new Phase(State.OPEN, clock.getAsLong(), 0))) {
+            logger.warn("Circuit for {} opened: {} calls, {} failed, {} slow in the last {}",
+                name, calls, failures, slow, settings.getWindow());
+        }
+    }
+
+    // Rolling a bucket races with concurrent increments for the new epoch; a lost count only skews the rate slightly.
+    private int currentBucket() {
+        long epoch = epoch(clock.getAsLong());
+        int bucket = (int) Math.floorMod(epoch, (long) PartnerMtlsProperties.CircuitBreaker.BUCKETS);
+        long seen = bucketEpochs.get(bucket);
+        if (seen != epoch && bucketEpochs.compareAndSet(bucket, seen, epoch)) {
+            counts.set(bucket * 3 + CALLS, 0);
+            counts.set(bucket * 3 + FAILURES, 0);
+            counts.set(bucket * 3 + SLOW, 0);
+        }
+        return bucket;
+    }
+
+    private void resetWindow() {
+        for (int i = 0; i < PartnerMtlsProperties.CircuitBreaker.BUCKETS; i++) {
+            bucketEpochs.set(i, Long.MIN_VALUE);
+        }
+    }
+
+    private long epoch(long nanos) {
+        return Math.floorDiv(nanos, bucketNanos);
+    }
+
+    private boolean transition(Phase from, Phase to) {
+        return phase.compareAndSet(from, to);
+    }
+
+    public static final class Phase {
+        private final State state;
+        private final long since;
+        private final AtomicInteger permits;
+        private final AtomicInteger successes = new AtomicInteger();
+
+        private Phase(State state, long since, int permits) {
+            this.state = state;
+            this.since = since;
+            this.permits = new AtomicInteger(permits);
+        }
+    }
+}
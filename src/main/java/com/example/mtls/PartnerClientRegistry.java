@@ -0,0 +1,253 @@
+package com.example.mtls;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import javax.net.ssl.SSLContext;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+@Component
+@ConditionalOnProperty(prefix = "partner.mtls", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class PartnerClientRegistry implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(PartnerClientRegistry.class);
+
+    private final PartnerMtlsProperties properties;
+    private final PartnerSslContextFactory sslContextFactory;
+    private final PartnerRestTemplateConfig clientConfig;
+    // Access-ordered, so iteration starts at the least recently used partner. Guarded by this.
+    private final Map<String, Entry> active = new LinkedHashMap<>(16, 0.75f, true);
+    private final List<Entry> retired = new ArrayList<>();
+
+    private volatile ScheduledExecutorService sweeper;
+
+    public PartnerClientRegistry(PartnerMtlsProperties properties, PartnerSslContextFactory sslContextFactory,
+                                 PartnerRestTemplateConfig clientConfig) {
+        this.properties = properties;
+        this.sslContextFactory = sslContextFactory;
+        this.clientConfig = clientConfig;
+    }
+
+    // The partner's client stays open until the call returns, even if the partner is evicted meanwhile; keep the
+    // RestTemplate inside the callback, as an evicted partner's pool is closed once its last call returns.
+    public <T> T execute(String partner, Function<RestTemplate, T> call) {
+        Entry entry = acquire(partner);
+        try {
+            return call.apply(entry.client().restTemplate());
+        } finally {
+            release(entry);
+        }
+    }
+
+    public synchronized Set<String> activePartners() {
+        return Set.copyOf(active.keySet());
+    }
+
+    Entry acquire(String name) {
+        PartnerMtlsProperties.Partner partner = properties.getPartners().get(name);
+        if (partner == null) {
+            throw new IllegalArgumentException("Unknown partner: " + name);
+        }
+        while (true) {
+            Entry entry;
+            synchronized (this) {
+                entry = active.computeIfAbsent(name, Entry::new);
+                entry.lastUsedNanos = System.nanoTime();
+                evictOverflow();
+            }
+            if (entry.acquire(partner)) {
+                return entry;
+            }
+            // Evicted and closed between lookup and acquire; the next lookup creates a fresh entry.
+        }
+    }
+
+    void release(Entry entry) {
+        if (entry.release() == 0) {
+            synchronized (this) {
+                closeRetired();
+            }
+        }
+    }
+
+    synchronized void sweep() {
+        long idleNanos = properties.getRegistry().getIdleTimeout().toNanos();
+        long now = System.nanoTime();
+        Iterator<Entry> iterator = active.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (now - entry.lastUsedNanos >= idleNanos) {
+                iterator.remove();
+                retired.add(entry);
+                logger.info("Partner {} idle for {}, closing its client", entry.name,
+                    properties.getRegistry().getIdleTimeout());
+            }
+        }
+        closeRetired();
+    }
+
+    // Calls in progress finish on the retired client; the next call builds one from the rotated files.
+    public synchronized List<String> retirePartnersUsing(Set<Path> changedFiles) {
+        List<String> names = new ArrayList<>();
+        Iterator<Entry> iterator = active.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            PartnerMtlsProperties.Partner partner = properties.getPartners().get(entry.name);
+            if (!Collections.disjoint(sslContextFactory.materialFiles(partner), changedFiles)) {
+                iterator.remove();
+                retired.add(entry);
+                names.add(entry.name);
+            }
+        }
+        closeRetired();
+        return names;
+    }
+
+    @Override
+    public void start() {
+        long periodMillis = Math.max(1000, properties.getRegistry().getIdleTimeout().toMillis() / 2);
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().daemon().name("mtls-partner-registry-sweeper").factory());
+        executor.scheduleWithFixedDelay(this::sweepSafely, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        sweeper = executor;
+    }
+
+    @Override
+    public void stop() {
+        ScheduledExecutorService executor = sweeper;
+        sweeper = null;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        synchronized (this) {
+            retired.addAll(active.values());
+            active.clear();
+            for (Entry entry : retired) {
+                entry.close();
+            }
+            retired.clear();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return sweeper != null;
+    }
+
+    private void sweepSafely() {
+        try {
+            sweep();
+        } catch (RuntimeException ex) {
+            logger.warn("Partner registry sweep failed: {}", ex.getMessage());
+        }
+    }
+
+    private void evictOverflow() {
+        int maxActive = properties.getRegistry().getMaxActive();
+        Iterator<Entry> iterator = active.values().iterator();
+        while (active.size() > maxActive && iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            iterator.remove();
+            retired.add(eldest);
+            logger.info("Partner registry over {} active clients, evicting least recently used partner {}",
+                maxActive, eldest.name);
+        }
+        closeRetired();
+    }
+
+    private void closeRetired() {
+        if (retired.removeIf(Entry::closeIfIdle)) {
+            List<PartnerMtlsProperties.Partner> stillActive = active.keySet().stream()
+                .map(properties.getPartners()::get)
+                .toList();
+            sslContextFactory.retainSharedMaterial(stillActive);
+        }
+    }
+
+    private PartnerClient build(String name, PartnerMtlsProperties.Partner partner) {
+        try {
+            SSLContext sslContext = sslContextFactory.build(name, partner);
+            PartnerMtlsProperties.Pool pool = partner.getPool() != null ? partner.getPool() : properties.getPool();
+            PartnerMtlsProperties.Handshake handshake = partner.getHandshake() != null
+                ? partner.getHandshake() : properties.getHandshake();
+            PoolingHttpClientConnectionManager connectionManager = clientConfig.connectionManager(name, sslContext,
+                partner.getServerValidation().getMode(), handshake, pool);
+            PartnerMtlsProperties.Compression compression = partner.getCompression() != null
+                ? partner.getCompression() : properties.getCompression();
+            return new PartnerClient(name, connectionManager,
+                clientConfig.restTemplate(name, connectionManager, pool, compression));
+        } catch (GeneralSecurityException | IOException ex) {
+            throw new IllegalStateException("Unable to build mTLS client for partner " + name, ex);
+        }
+    }
+
+    record PartnerClient(String name, PoolingHttpClientConnectionManager connectionManager,
+                         RestTemplate restTemplate) {
+    }
+
+    final class Entry {
+        private final String name;
+        private volatile long lastUsedNanos;
+        private PartnerClient client;
+        // Calls between acquire and release; a retired entry is only closed at zero.
+        private int leases;
+        private boolean closed;
+
+        private Entry(String name) {
+            this.name = name;
+        }
+
+        // Built outside the registry lock so a slow keystore load only blocks callers of this partner.
+        synchronized boolean acquire(PartnerMtlsProperties.Partner partner) {
+            if (closed) {
+                return false;
+            }
+            if (client == null) {
+                client = build(name, partner);
+            }
+            leases++;
+            return true;
+        }
+
+        synchronized int release() {
+            return --leases;
+        }
+
+        synchronized PartnerClient client() {
+            return client;
+        }
+
+        synchronized boolean closeIfIdle() {
+            if (leases > 0
+                || (client != null && client.connectionManager().getTotalStats().getLeased() > 0)) {
+                return false;
+            }
+            close();
+            return true;
+        }
+
+        synchronized void close() {
+            closed = true;
+            if (client != null) {
+                client.connectionManager().close();
+                client = null;
+            }
+        }
+    }
+}
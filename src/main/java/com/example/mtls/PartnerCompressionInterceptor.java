@@ -0,0 +1,565 @@
+package com.example.mtls;
+
+import com.github.luben.zstd.RecyclingBufferPool;
+import com.github.luben.zstd.ZstdCompressCtx;
+import com.github.luben.zstd.ZstdException;
+import com.github.luben.zstd.ZstdInputStreamNoFinalizer;
+import com.github.luben.zstd.util.Native;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+// Compresses request bodies from min-size up and decodes gzip/zstd responses itself (the HttpClient's own
+// decompression is disabled for these clients), so both directions report bytes saved and CPU spent.
+// Deflaters, inflaters, zstd contexts and scratch arrays are pooled per client: each Deflater alone holds
+// ~256KB of native zlib state.
+public class PartnerCompressionInterceptor implements ClientHttpRequestInterceptor {
+    private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+    private static final int GZIP_TRAILER = 8;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+    private static final int INFLATE_BUFFER = 8192;
+    // Larger scratch arrays are left to the GC rather than pinned in the pool.
+    private static final int MAX_POOLED_BUFFER = 1024 * 1024;
+
+    private final PartnerMtlsProperties.ContentCoding requestEncoding;
+    private final String acceptEncoding;
+    private final int minSize;
+    private final int gzipLevel;
+    private final int zstdLevel;
+    private final BlockingQueue<Deflater> deflaters;
+    private final BlockingQueue<Inflater> inflaters;
+    private final BlockingQueue<ZstdCompressCtx> zstdContexts;
+    private final BlockingQueue<byte[]> buffers;
+    private final Meters[] requestMeters;
+    private final Meters[] responseMeters;
+
+    public PartnerCompressionInterceptor(String name, PartnerMtlsProperties.Compression settings,
+                                         MeterRegistry meterRegistry) {
+        this.requestEncoding = settings.getRequestEncoding();
+        this.acceptEncoding = settings.getAcceptEncodings().stream()
+            .distinct()
+            .map(PartnerMtlsProperties.ContentCoding::token)
+            .collect(Collectors.joining(", "));
+        this.minSize = Math.max(1, (int) settings.getMinSize().toBytes());
+        this.gzipLevel = settings.getGzipLevel();
+        this.zstdLevel = settings.getZstdLevel();
+        this.deflaters = new ArrayBlockingQueue<>(settings.getMaxPooled());
+        this.inflaters = new ArrayBlockingQueue<>(settings.getMaxPooled());
+        this.zstdContexts = new ArrayBlockingQueue<>(settings.getMaxPooled());
+        this.buffers = new ArrayBlockingQueue<>(settings.getMaxPooled());
+        if (requestEncoding == PartnerMtlsProperties.ContentCoding.ZSTD
+            || settings.getAcceptEncodings().contains(PartnerMtlsProperties.ContentCoding.ZSTD)) {
+            // Fail at client creation rather than on the first request when the platform has no zstd-jni build.
+            try {
+                Native.load();
+            } catch (UnsatisfiedLinkError ex) {
+                throw new IllegalStateException("Client " + name + " is configured for zstd but the zstd-jni native"
+                    + " library cannot be loaded on this platform", ex);
+            }
+        }
+        PartnerMtlsProperties.ContentCoding[] codings = PartnerMtlsProperties.ContentCoding.values();
+        this.requestMeters = new Meters[codings.length];
+        this.responseMeters = new Meters[codings.length];
+        for (PartnerMtlsProperties.ContentCoding coding : codings) {
+            requestMeters[coding.ordinal()] = new Meters(meterRegistry, name, "request", coding);
+            responseMeters[coding.ordinal()] = new Meters(meterRegistry, name, "response", coding);
+        }
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+        throws IOException {
+        HttpHeaders headers = request.getHeaders();
+        byte[] payload = body;
+        if (requestEncoding != null && body.length >= minSize && !headers.containsKey(HttpHeaders.CONTENT_ENCODING)) {
+            byte[] compressed = compress(requestEncoding, body);
+            if (compressed != null) {
+                headers.set(HttpHeaders.CONTENT_ENCODING, requestEncoding.token());
+                // The message converter already set the length of the uncompressed body.
+                headers.setContentLength(compressed.length);
+                payload = compressed;
+            }
+        }
+        // A caller that sets its own Accept-Encoding gets the body exactly as the partner sent it.
+        boolean decode = !acceptEncoding.isEmpty() && !headers.containsKey(HttpHeaders.ACCEPT_ENCODING);
+        if (decode) {
+            headers.set(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        ClientHttpResponse response = execution.execute(request, payload);
+        PartnerMtlsProperties.ContentCoding coding = decode
+            ? coding(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)) : null;
+        return coding != null ? new DecodedResponse(response, coding) : response;
+    }
+
+    private static PartnerMtlsProperties.ContentCoding coding(String contentEncoding) {
+        if (contentEncoding == null) {
+            return null;
+        }
+        String token = contentEncoding.trim();
+        if (token.equalsIgnoreCase("gzip") || token.equalsIgnoreCase("x-gzip")) {
+            return PartnerMtlsProperties.ContentCoding.GZIP;
+        }
+        return token.equalsIgnoreCase("zstd") ? PartnerMtlsProperties.ContentCoding.ZSTD : null;
+    }
+
+    // null when the encoded body would not be smaller than the original.
+    private byte[] compress(PartnerMtlsProperties.ContentCoding coding, byte[] body) {
+        long cpuStart = InstrumentedSslSocketFactory.cpuTime();
+        byte[] compressed = coding == PartnerMtlsProperties.ContentCoding.GZIP ? gzip(body) : zstd(body);
+        long cpuEnd = InstrumentedSslSocketFactory.cpuTime();
+        Meters meters = requestMeters[coding.ordinal()];
+        if (cpuStart >= 0 && cpuEnd >= 0) {
+            meters.cpu(cpuEnd - cpuStart);
+        }
+        if (compressed != null) {
+            meters.transferred(body.length, compressed.length);
+        }
+        return compressed;
+    }
+
+    private byte[] gzip(byte[] body) {
+        if (body.length <= GZIP_HEADER.length + GZIP_TRAILER) {
+            return null;
+        }
+        Deflater deflater = deflaters.poll();
+        if (deflater == null) {
+            deflater = new Deflater(gzipLevel, true);
+        }
+        byte[] out = borrow(body.length);
+        try {
+            System.arraycopy(GZIP_HEADER, 0, out, 0, GZIP_HEADER.length);
+            deflater.setInput(body);
+            deflater.finish();
+            // Room for the trailer is reserved up front, so running out of space means the output is not smaller.
+            int limit = body.length - GZIP_TRAILER;
+            int length = GZIP_HEADER.length;
+            while (!deflater.finished() && length < limit) {
+                int written = deflater.deflate(out, length, limit - length);
+                if (written == 0) {
+                    break;
+                }
+                length += written;
+            }
+            if (!deflater.finished()) {
+                return null;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            putIntLittleEndian(out, length, (int) crc.getValue());
+            putIntLittleEndian(out, length + 4, body.length);
+            return Arrays.copyOf(out, length + GZIP_TRAILER);
+        } finally {
+            deflater.reset();
+            if (!deflaters.offer(deflater)) {
+                deflater.end();
+            }
+            release(out);
+        }
+    }
+
+    private byte[] zstd(byte[] body) {
+        ZstdCompressCtx context = zstdContexts.poll();
+        if (context == null) {
+            context = new ZstdCompressCtx().setLevel(zstdLevel);
+        }
+        byte[] out = borrow(body.length);
+        try {
+            int length = context.compressByteArray(out, 0, body.length, body, 0, body.length);
+            return Arrays.copyOf(out, length);
+        } catch (ZstdException ex) {
+            // Destination too small: the frame would not be smaller than the body.
+            return null;
+        } finally {
+            if (!zstdContexts.offer(context)) {
+                context.close();
+            }
+            release(out);
+        }
+    }
+
+    private byte[] borrow(int size) {
+        byte[] buffer = buffers.poll();
+        return buffer != null && buffer.length >= size ? buffer : new byte[size];
+    }
+
+    private void release(byte[] buffer) {
+        if (buffer.length <= MAX_POOLED_BUFFER) {
+            buffers.offer(buffer);
+        }
+    }
+
+    private static void putIntLittleEndian(byte[] out, int offset, int value) {
+        out[offset] = (byte) value;
+        out[offset + 1] = (byte) (value >>> 8);
+        out[offset + 2] = (byte) (value >>> 16);
+        out[offset + 3] = (byte) (value >>> 24);
+    }
+
+    // Content-Encoding and Content-Length describe the wire body, so neither is passed on with the decoded one.
+    private final class DecodedResponse implements ClientHttpResponse {
+        private final ClientHttpResponse delegate;
+        private final PartnerMtlsProperties.ContentCoding coding;
+        private HttpHeaders headers;
+        private DecodingStream body;
+
+        private DecodedResponse(ClientHttpResponse delegate, PartnerMtlsProperties.ContentCoding coding) {
+            this.delegate = delegate;
+            this.coding = coding;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            if (headers == null) {
+                HttpHeaders copy = new HttpHeaders();
+                copy.putAll(delegate.getHeaders());
+                copy.remove(HttpHeaders.CONTENT_ENCODING);
+                copy.remove(HttpHeaders.CONTENT_LENGTH);
+                headers = copy;
+            }
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                body = new DecodingStream(new WireStream(delegate.getBody()), coding);
+            }
+            return body;
+        }
+
+        @Override
+        public void close() {
+            try {
+                if (body != null) {
+                    body.close();
+                }
+            } catch (IOException ignored) {
+                // The delegate's close below releases or discards the connection either way.
+            } finally {
+                delegate.close();
+            }
+        }
+    }
+
+    // Decode CPU is the time spent in read() minus the time the wire stream spent reading the socket (TLS included).
+    private final class DecodingStream extends InputStream {
+        private final WireStream wire;
+        private final PartnerMtlsProperties.ContentCoding coding;
+        private final byte[] single = new byte[1];
+        private InputStream decoder;
+        private long decoded;
+        private long cpuNanos;
+        private boolean cpuTracked = true;
+        private boolean recorded;
+
+        private DecodingStream(WireStream wire, PartnerMtlsProperties.ContentCoding coding) {
+            this.wire = wire;
+            this.coding = coding;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (recorded) {
+                return -1;
+            }
+            long cpuStart = InstrumentedSslSocketFactory.cpuTime();
+            long wireCpuStart = wire.cpuNanos;
+            int read = decoder().read(buffer, offset, length);
+            long cpuEnd = InstrumentedSslSocketFactory.cpuTime();
+            if (cpuStart < 0 || cpuEnd < 0 || !wire.cpuTracked) {
+                cpuTracked = false;
+            } else {
+                cpuNanos += cpuEnd - cpuStart - (wire.cpuNanos - wireCpuStart);
+            }
+            if (read > 0) {
+                decoded += read;
+            } else if (read < 0) {
+                record();
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (decoder != null) {
+                    decoder.close();
+                } else {
+                    wire.close();
+                }
+            } finally {
+                record();
+            }
+        }
+
+        private InputStream decoder() throws IOException {
+            if (decoder == null) {
+                // HEAD responses and 204s can carry Content-Encoding with no body at all.
+                int first = wire.read();
+                if (first < 0) {
+                    decoder = InputStream.nullInputStream();
+                } else if (coding == PartnerMtlsProperties.ContentCoding.GZIP) {
+                    decoder = gunzip(first);
+                } else {
+                    PushbackInputStream source = new PushbackInputStream(wire, 1);
+                    source.unread(first);
+                    decoder = new ZstdInputStreamNoFinalizer(source, RecyclingBufferPool.INSTANCE);
+                }
+            }
+            return decoder;
+        }
+
+        // The header is parsed here so the Inflater can run raw; the stream checks the trailer once it is inflated.
+        private InputStream gunzip(int first) throws IOException {
+            if (first != 0x1f || readByte() != 0x8b || readByte() != Deflater.DEFLATED) {
+                throw new ZipException("Not in GZIP format");
+            }
+            int flags = readByte();
+            skip(6);
+            if ((flags & FEXTRA) != 0) {
+                skip(readByte() | readByte() << 8);
+            }
+            if ((flags & FNAME) != 0) {
+                skipZeroTerminated();
+            }
+            if ((flags & FCOMMENT) != 0) {
+                skipZeroTerminated();
+            }
+            if ((flags & FHCRC) != 0) {
+                skip(2);
+            }
+            Inflater inflater = inflaters.poll();
+            return new PooledInflaterStream(wire, inflater != null ? inflater : new Inflater(true),
+                borrow(INFLATE_BUFFER));
+        }
+
+        private int readByte() throws IOException {
+            int value = wire.read();
+            if (value < 0) {
+                throw new EOFException("Truncated GZIP header");
+            }
+            return value;
+        }
+
+        private void skip(int count) throws IOException {
+            for (int i = 0; i < count; i++) {
+                readByte();
+            }
+        }
+
+        private void skipZeroTerminated() throws IOException {
+            int value;
+            do {
+                value = readByte();
+            } while (value != 0);
+        }
+
+        private void record() {
+            if (recorded) {
+                return;
+            }
+            recorded = true;
+            Meters meters = responseMeters[coding.ordinal()];
+            meters.transferred(decoded, wire.count);
+            if (cpuTracked) {
+                meters.cpu(Math.max(0, cpuNanos));
+            }
+        }
+    }
+
+    // Inflates a raw deflate body and then checks the gzip trailer: CRC-32 and ISIZE, the length mod 2^32.
+    private final class PooledInflaterStream extends InflaterInputStream {
+        private final Inflater pooledInflater;
+        private final byte[] pooledBuffer;
+        private final CRC32 crc = new CRC32();
+        private boolean trailerChecked;
+        // Trailer bytes the Inflater read into buf past the end of the deflate data.
+        private int leftoverOffset;
+        private int leftover;
+        private boolean released;
+
+        private PooledInflaterStream(InputStream in, Inflater inflater, byte[] buffer) {
+            super(in, inflater, 1);
+            // Swapped in for the throwaway one-byte array the constructor allocated.
+            this.buf = buffer;
+            this.pooledInflater = inflater;
+            this.pooledBuffer = buffer;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                crc.update(buffer, offset, read);
+            } else if (read < 0 && !trailerChecked) {
+                trailerChecked = true;
+                checkTrailer();
+            }
+            return read;
+        }
+
+        private void checkTrailer() throws IOException {
+            leftover = inf.getRemaining();
+            leftoverOffset = len - leftover;
+            if (trailerInt() != crc.getValue()) {
+                throw new ZipException("Corrupt GZIP trailer: CRC-32 mismatch");
+            }
+            if (trailerInt() != (inf.getBytesWritten() & 0xffffffffL)) {
+                throw new ZipException("Corrupt GZIP trailer: length mismatch");
+            }
+        }
+
+        private long trailerInt() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 32; shift += 8) {
+                value |= (long) trailerByte() << shift;
+            }
+            return value;
+        }
+
+        private int trailerByte() throws IOException {
+            if (leftover > 0) {
+                leftover--;
+                return buf[leftoverOffset++] & 0xff;
+            }
+            int value = in.read();
+            if (value < 0) {
+                throw new EOFException("Truncated GZIP trailer");
+            }
+            return value;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (!released) {
+                    released = true;
+                    pooledInflater.reset();
+                    if (!inflaters.offer(pooledInflater)) {
+                        pooledInflater.end();
+                    }
+                    release(pooledBuffer);
+                }
+            }
+        }
+    }
+
+    // Counts compressed bytes read off the connection and the CPU the read itself took.
+    private static final class WireStream extends FilterInputStream {
+        private long count;
+        private long cpuNanos;
+        private boolean cpuTracked = true;
+
+        private WireStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            long cpuStart = InstrumentedSslSocketFactory.cpuTime();
+            int value = in.read();
+            track(cpuStart, value < 0 ? 0 : 1);
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            long cpuStart = InstrumentedSslSocketFactory.cpuTime();
+            int read = in.read(buffer, offset, length);
+            track(cpuStart, Math.max(read, 0));
+            return read;
+        }
+
+        private void track(long cpuStart, int read) {
+            long cpuEnd = InstrumentedSslSocketFactory.cpuTime();
+            if (cpuStart < 0 || cpuEnd < 0) {
+                cpuTracked = false;
+            } else {
+                cpuNanos += cpuEnd - cpuStart;
+            }
+            count += read;
+        }
+    }
+
+    private static final class Meters {
+        private final Counter saved;
+        private final Counter wire;
+        private final Timer cpu;
+
+        private Meters(MeterRegistry meterRegistry, String name, String direction,
+                       PartnerMtlsProperties.ContentCoding coding) {
+            this.saved = Counter.builder("partner.mtls.compression.saved")
+                .description("Body bytes kept off the wire by content coding")
+                .baseUnit("bytes")
+                .tag("httpclient", name)
+                .tag("direction", direction)
+                .tag("encoding", coding.token())
+                .register(meterRegistry);
+            this.wire = Counter.builder("partner.mtls.compression.wire")
+                .description("Compressed body bytes sent or received")
+                .baseUnit("bytes")
+                .tag("httpclient", name)
+                .tag("direction", direction)
+                .tag("encoding", coding.token())
+                .register(meterRegistry);
+            this.cpu = Timer.builder("partner.mtls.compression.cpu")
+                .description("Thread CPU time spent compressing request bodies or decoding response bodies")
+                .tag("httpclient", name)
+                .tag("direction", direction)
+                .tag("encoding", coding.token())
+                .register(meterRegistry);
+        }
+
+        private void transferred(long original, long compressed) {
+            wire.increment(compressed);
+            if (original > compressed) {
+                saved.increment(original - compressed);
+            }
+        }
+
+        private void cpu(long nanos) {
+            cpu.record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
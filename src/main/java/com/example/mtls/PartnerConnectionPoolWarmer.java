@@ -0,0 +1,83 @@
+package com.example.mtls;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.impl.DefaultSchemePortResolver;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.client5.http.routing.RoutingSupport;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(prefix = "partner.mtls", name = { "enabled", "pool.warmup.enabled" }, havingValue = "true")
+public class PartnerConnectionPoolWarmer implements CommandLineRunner {
+    private static final Logger logger = LoggerFactory.getLogger(PartnerConnectionPoolWarmer.class);
+
+    private final PoolingHttpClientConnectionManager partnerConnectionManager;
+    private final PartnerMtlsProperties properties;
+    private final PartnerMtlsStatus status;
+
+    public PartnerConnectionPoolWarmer(PoolingHttpClientConnectionManager partnerConnectionManager,
+                                       PartnerMtlsProperties properties, PartnerMtlsStatus status) {
+        this.partnerConnectionManager = partnerConnectionManager;
+        this.properties = properties;
+        this.status = status;
+    }
+
+    @Override
+    public void run(String... args) {
+        PartnerMtlsProperties.Warmup warmup = properties.getPool().getWarmup();
+        int warmed = 0;
+        for (URI target : warmup.getTargets()) {
+            warmed += warm(target, warmup.getConnectionsPerRoute());
+        }
+        status.warmedUp(warmed, warmup.getTargets().size() * warmup.getConnectionsPerRoute());
+    }
+
+    private int warm(URI target, int connections) {
+        HttpHost host = RoutingSupport.normalize(HttpHost.create(target), DefaultSchemePortResolver.INSTANCE);
+        HttpRoute route = new HttpRoute(host, null, "https".equalsIgnoreCase(host.getSchemeName()));
+        Timeout leaseTimeout = Timeout.of(properties.getPool().getLeaseTimeout());
+        long start = System.nanoTime();
+
+        // Hold every lease until the end so the pool opens distinct connections instead of recycling one.
+        List<ConnectionEndpoint> endpoints = new ArrayList<>(connections);
+        int ready = 0;
+        try {
+            for (int i = 0; i < connections; i++) {
+                ConnectionEndpoint endpoint = partnerConnectionManager.lease("warmup-" + i, route, leaseTimeout, null)
+                    .get(leaseTimeout);
+                endpoints.add(endpoint);
+                if (!endpoint.isConnected()) {
+                    partnerConnectionManager.connect(endpoint, PartnerRestTemplateConfig.CONNECT_TIMEOUT,
+                        HttpClientContext.create());
+                }
+                ready++;
+            }
+        } catch (Exception ex) {
+            logger.warn("Connection warm-up for {} stopped after {} of {} connections: {}",
+                route, ready, connections, ex.getMessage());
+        } finally {
+            // Open connections go back to the pool as idle; unconnected endpoints are discarded.
+            for (ConnectionEndpoint endpoint : endpoints) {
+                partnerConnectionManager.release(endpoint, null, TimeValue.NEG_ONE_MILLISECOND);
+            }
+        }
+        logger.info("Warmed {} mTLS connection(s) to {} in {} ms",
+            ready, route, (System.nanoTime() - start) / 1_000_000);
+        return ready;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.mtls;
+
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+// partnerMtlsLiveness and partnerMtlsReadiness join the actuator liveness/readiness groups (application.yml).
+// Liveness only fails when no client key material is loaded, the one state a restart can fix; readiness also waits
+// for the pool warm-up and the first mTLS round trip. Certificate expiry is reported but fails neither: taking
+// every pod out of service would not renew the certificate.
+@Configuration
+@ConditionalOnProperty(prefix = "partner.mtls", name = { "enabled", "health.enabled" }, havingValue = "true",
+    matchIfMissing = true)
+public class PartnerMtlsHealthConfig {
+
+    @Bean
+    public HealthIndicator partnerMtlsLivenessHealthIndicator(PartnerSslContextFactory sslContextFactory,
+                                                              PartnerMtlsProperties properties) {
+        return () -> liveness(sslContextFactory.clientCertificate(), properties.getHealth(), Instant.now());
+    }
+
+    @Bean
+    public HealthIndicator partnerMtlsReadinessHealthIndicator(PartnerSslContextFactory sslContextFactory,
+                                                               PartnerMtlsStatus status,
+                                                               PartnerMtlsProperties properties) {
+        return () -> readiness(sslContextFactory.clientCertificate(), status, properties, Instant.now());
+    }
+
+    static Health liveness(X509Certificate certificate, PartnerMtlsProperties.Health settings, Instant now) {
+        if (certificate == null) {
+            return Health.down().withDetail("keyMaterial", "not loaded").build();
+        }
+        return Health.up().withDetail("keyMaterial", keyMaterial(certificate, settings, now)).build();
+    }
+
+    static Health readiness(X509Certificate certificate, PartnerMtlsStatus status, PartnerMtlsProperties properties,
+                            Instant now) {
+        boolean ready = certificate != null;
+        Health.Builder health = Health.unknown()
+            .withDetail("keyMaterial", certificate != null
+                ? keyMaterial(certificate, properties.getHealth(), now) : "not loaded");
+
+        if (properties.getPool().getWarmup().isEnabled()) {
+            PartnerMtlsStatus.Warmup warmup = status.warmup();
+            ready &= warmup != null;
+            health.withDetail("poolWarmup", warmup != null ? warmup : "in progress");
+        } else {
+            health.withDetail("poolWarmup", "disabled");
+        }
+
+        if (StringUtils.hasText(properties.getHealth().getProbeUrl())) {
+            ready &= status.roundTrip() != null;
+            health.withDetail("roundTrip", status.roundTrip() != null ? status.roundTrip() : "pending");
+        } else {
+            health.withDetail("roundTrip", status.roundTrip() != null ? status.roundTrip() : "not required");
+        }
+        if (status.lastHandshake() != null) {
+            health.withDetail("lastHandshake", status.lastHandshake());
+        }
+        if (status.lastSuccessfulHandshake() != null) {
+            health.withDetail("lastSuccessfulHandshake", status.lastSuccessfulHandshake());
+        }
+        return (ready ? health.up() : health.outOfService()).build();
+    }
+
+    private static Map<String, Object> keyMaterial(X509Certificate certificate,
+                                                   PartnerMtlsProperties.Health settings, Instant now) {
+        Instant notAfter = certificate.getNotAfter().toInstant();
+        Duration remaining = Duration.between(now, notAfter);
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("subject", certificate.getSubjectX500Principal().getName());
+        details.put("notAfter", notAfter);
+        details.put("daysUntilExpiry", remaining.toDays());
+        details.put("expired", remaining.isNegative());
+        details.put("expiringSoon", remaining.compareTo(settings.getExpiryWarning()) < 0);
+        return details;
+    }
+}
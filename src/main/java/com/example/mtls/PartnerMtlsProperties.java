@@ -3,12 +3,23 @@ package com.example.mtls;
 import jakarta.annotation.PostConstruct;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import java.net.URI;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
 
 @Validated
 @ConfigurationProperties(prefix = "partner.mtls")
@@ -20,15 +31,67 @@ public class PartnerMtlsProperties {
     @NotBlank
     private String clientKeystorePath;
 
-    @NotBlank
     private String clientKeystorePassword;
 
+    private String clientKeyPath;
+
     @NotBlank
     private String clientKeystoreType = "PKCS12";
 
+    // Keystore alias presented to every partner host not listed in client-aliases.
+    private String clientAlias;
+
+    // Partner host -> keystore alias; with a mapping present, an unlisted host without client-alias fails the handshake.
+    private Map<String, String> clientAliases = new LinkedHashMap<>();
+
     @NotNull
     private ServerValidation serverValidation = new ServerValidation();
 
+    @NotNull
+    private Session session = new Session();
+
+    @NotNull
+    private Handshake handshake = new Handshake();
+
+    @NotNull
+    private Pool pool = new Pool();
+
+    @NotNull
+    private Async async = new Async();
+
+    @NotNull
+    private Reload reload = new Reload();
+
+    @NotNull
+    private Map<String, Partner> partners = new LinkedHashMap<>();
+
+    @NotNull
+    private Registry registry = new Registry();
+
+    @NotNull
+    private Revocation revocation = new Revocation();
+
+    @NotNull
+    private Resilience resilience = new Resilience();
+
+    @NotNull
+    private Streaming streaming = new Streaming();
+
+    @NotNull
+    private Cache cache = new Cache();
+
+    @NotNull
+    private Smoke smoke = new Smoke();
+
+    @NotNull
+    private Health health = new Health();
+
+    @NotNull
+    private FailureEvents failureEvents = new FailureEvents();
+
+    @NotNull
+    private Compression compression = new Compression();
+
     public boolean isEnabled() {
         return enabled;
     }
@@ -61,6 +124,30 @@ public class PartnerMtlsProperties {
         this.clientKeystoreType = clientKeystoreType;
     }
 
+    public String getClientKeyPath() {
+        return clientKeyPath;
+    }
+
+    public void setClientKeyPath(String clientKeyPath) {
+        this.clientKeyPath = clientKeyPath;
+    }
+
+    public String getClientAlias() {
+        return clientAlias;
+    }
+
+    public void setClientAlias(String clientAlias) {
+        this.clientAlias = clientAlias;
+    }
+
+    public Map<String, String> getClientAliases() {
+        return clientAliases;
+    }
+
+    public void setClientAliases(Map<String, String> clientAliases) {
+        this.clientAliases = clientAliases;
+    }
+
     public ServerValidation getServerValidation() {
         return serverValidation;
     }
@@ -69,6 +156,126 @@ public class PartnerMtlsProperties {
         this.serverValidation = serverValidation;
     }
 
+    public Session getSession() {
+        return session;
+    }
+
+    public void setSession(Session session) {
+        this.session = session;
+    }
+
+    public Handshake getHandshake() {
+        return handshake;
+    }
+
+    public void setHandshake(Handshake handshake) {
+        this.handshake = handshake;
+    }
+
+    public Pool getPool() {
+        return pool;
+    }
+
+    public void setPool(Pool pool) {
+        this.pool = pool;
+    }
+
+    public Async getAsync() {
+        return async;
+    }
+
+    public void setAsync(Async async) {
+        this.async = async;
+    }
+
+    public Reload getReload() {
+        return reload;
+    }
+
+    public void setReload(Reload reload) {
+        this.reload = reload;
+    }
+
+    public Map<String, Partner> getPartners() {
+        return partners;
+    }
+
+    public void setPartners(Map<String, Partner> partners) {
+        this.partners = partners;
+    }
+
+    public Registry getRegistry() {
+        return registry;
+    }
+
+    public void setRegistry(Registry registry) {
+        this.registry = registry;
+    }
+
+    public Revocation getRevocation() {
+        return revocation;
+    }
+
+    public void setRevocation(Revocation revocation) {
+        this.revocation = revocation;
+    }
+
+    public Resilience getResilience() {
+        return resilience;
+    }
+
+    public void setResilience(Resilience resilience) {
+        this.resilience = resilience;
+    }
+
+    public Streaming getStreaming() {
+        return streaming;
+    }
+
+    public void setStreaming(Streaming streaming) {
+        this.streaming = streaming;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public void setCache(Cache cache) {
+        this.cache = cache;
+    }
+
+    public Smoke getSmoke() {
+        return smoke;
+    }
+
+    public void setSmoke(Smoke smoke) {
+        this.smoke = smoke;
+    }
+
+    public Health getHealth() {
+        return health;
+    }
+
+    public void setHealth(Health health) {
+        this.health = health;
+    }
+
+    public FailureEvents getFailureEvents() {
+        return failureEvents;
+    }
+
+    public void setFailureEvents(FailureEvents failureEvents) {
+        this.failureEvents = failureEvents;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    public void setCompression(Compression compression) {
+        this.compression = compression;
+    }
+
     @PostConstruct
     public void validateAndLog() {
         if (!enabled) {
@@ -77,20 +284,297 @@ public class PartnerMtlsProperties {
         }
 
         String mode = serverValidation.getMode().name();
-        if (serverValidation.getMode() == ServerValidationMode.TRUSTSTORE) {
-            require(serverValidation.getTruststorePath(), "truststore-path is required when mode=TRUSTSTORE");
-            require(serverValidation.getTruststorePassword(), "truststore-password is required when mode=TRUSTSTORE");
-        } else if (serverValidation.getMode() == ServerValidationMode.PIN_FINGERPRINT) {
-            require(serverValidation.getPinnedCertSha256Hex(), "pinned-cert-sha256-hex is required when mode=PIN_FINGERPRINT");
-        } else if (serverValidation.getMode() == ServerValidationMode.PIN_SPKI) {
-            require(serverValidation.getPinnedSpkiSha256Base64(), "pinned-spki-sha256-base64 is required when mode=PIN_SPKI");
+        if (!PemKeyMaterial.isPem(clientKeystoreType)) {
+            require(clientKeystorePassword, "client-keystore-password is required unless client-keystore-type=PEM");
+        } else if (clientAlias != null || !clientAliases.isEmpty()) {
+            throw new IllegalStateException("client-alias and client-aliases need a keystore; PEM holds a single key");
+        }
+        validate(serverValidation, "");
+        validate(handshake, "handshake.");
+        partners.forEach((name, partner) -> {
+            if (partner.getServerValidation() == null) {
+                throw new IllegalStateException("partners." + name + ".server-validation is required");
+            }
+            validate(partner.getServerValidation(), "partners." + name + ".");
+            if (partner.getHandshake() != null) {
+                validate(partner.getHandshake(), "partners." + name + ".handshake.");
+            }
+            if (partner.getPool() != null) {
+                validate(partner.getPool(), "partners." + name + ".pool.");
+            }
+            if (partner.getCompression() != null) {
+                validate(partner.getCompression(), "partners." + name + ".compression.");
+            }
+        });
+        if (revocation.isEnabled() && (revocation.getResponderTimeout() == null
+            || revocation.getResponderTimeout().isNegative() || revocation.getResponderTimeout().isZero())) {
+            throw new IllegalStateException("revocation.responder-timeout must be > 0");
+        }
+        if (revocation.isEnabled() && revocation.getMaxEntries() < 1) {
+            throw new IllegalStateException("revocation.max-entries must be >= 1");
+        }
+        validate(resilience);
+        validate(compression, "compression.");
+        if (streaming.getBufferSize() == null || streaming.getBufferSize().toBytes() < 1024
+            || streaming.getBufferSize().toBytes() > Integer.MAX_VALUE) {
+            throw new IllegalStateException("streaming.buffer-size must be between 1KB and 2GB");
+        }
+        if (streaming.getMaxPooledBuffers() < 1) {
+            throw new IllegalStateException("streaming.max-pooled-buffers must be >= 1");
+        }
+        if (cache.isEnabled()) {
+            if (cache.getTtl() == null || cache.getTtl().isNegative()) {
+                throw new IllegalStateException("cache.ttl must be >= 0");
+            }
+            if (cache.getMaxSize() == null || cache.getMaxEntrySize() == null || cache.getMaxEntrySize().toBytes() < 1
+                || cache.getMaxEntrySize().toBytes() > cache.getMaxSize().toBytes()
+                || cache.getMaxEntrySize().toBytes() > Integer.MAX_VALUE) {
+                throw new IllegalStateException("cache.max-entry-size must be between 1B and cache.max-size (and < 2GB)");
+            }
+        }
+        if (smoke.isEnabled() && smoke.getMode() == SmokeMode.LOAD) {
+            Load load = smoke.getLoad();
+            if (load.getConcurrency() < 1 || load.getRate() < 0) {
+                throw new IllegalStateException("smoke.load.concurrency must be >= 1 and smoke.load.rate >= 0");
+            }
+            if (load.getDuration() == null || load.getDuration().isNegative() || load.getDuration().isZero()) {
+                throw new IllegalStateException("smoke.load.duration must be > 0");
+            }
+        }
+        if (health.isEnabled() && StringUtils.hasText(health.getProbeUrl()) && (health.getProbeInterval() == null
+            || health.getProbeInterval().isNegative() || health.getProbeInterval().isZero())) {
+            throw new IllegalStateException("health.probe-interval must be > 0");
+        }
+        if (failureEvents.getCapacity() < 0 || failureEvents.getCapacity() > FailureEvents.MAX_CAPACITY) {
+            throw new IllegalStateException("failure-events.capacity must be between 0 and " + FailureEvents.MAX_CAPACITY);
+        }
+        if (failureEvents.getLogInterval() == null || failureEvents.getLogInterval().toMillis() < 1) {
+            throw new IllegalStateException("failure-events.log-interval must be >= 1ms");
+        }
+        if (registry.getMaxActive() < 1) {
+            throw new IllegalStateException("registry.max-active must be >= 1");
+        }
+        if (registry.getIdleTimeout() == null || registry.getIdleTimeout().isNegative()
+            || registry.getIdleTimeout().isZero()) {
+            throw new IllegalStateException("registry.idle-timeout must be > 0");
+        }
+
+        if (session.getCacheSize() < 0) {
+            throw new IllegalStateException("session.cache-size must be >= 0");
+        }
+        if (session.getTimeout() == null || session.getTimeout().isNegative()) {
+            throw new IllegalStateException("session.timeout must be >= 0");
+        }
+        validate(pool, "pool.");
+        if (pool.getWarmup().isEnabled() && pool.getWarmup().getConnectionsPerRoute() > pool.getMaxPerRoute()) {
+            throw new IllegalStateException("pool.warmup.connections-per-route must be <= pool.max-per-route");
+        }
+        if (async.isEnabled() && (async.getMaxConcurrentStreams() < 1 || async.getIoThreads() < 1)) {
+            throw new IllegalStateException("async.max-concurrent-streams and async.io-threads must be >= 1");
         }
 
         logger.info("mTLS outbound enabled. Server validation mode: {}", mode);
         logger.info("Client keystore path: {}, type: {}", clientKeystorePath, clientKeystoreType);
+        if (clientAlias != null || !clientAliases.isEmpty()) {
+            logger.info("Client certificate alias: {} by default, per host {}", clientAlias, clientAliases);
+        }
+        if (clientKeyPath != null) {
+            logger.info("Client key path: {}", clientKeyPath);
+        }
         if (serverValidation.getMode() == ServerValidationMode.TRUSTSTORE) {
             logger.info("Truststore path: {}, type: {}", serverValidation.getTruststorePath(), serverValidation.getTruststoreType());
         }
+        if (!handshake.isJvmDefault()) {
+            logger.info("TLS handshake profile: protocols {}, cipher suites {}, named groups {}, signature schemes {}",
+                orDefault(handshake.getProtocols()), orDefault(handshake.getCipherSuites()),
+                orDefault(handshake.getNamedGroups()), orDefault(handshake.getSignatureSchemes()));
+        }
+        // TLS 1.2 session tickets are a JVM-wide switch, set with -D rather than by this application.
+        logger.info("TLS session cache size: {}, timeout: {}, TLS 1.2 session tickets: {}",
+            session.getCacheSize(), session.getTimeout(),
+            System.getProperty("jdk.tls.client.enableSessionTicketExtension", "true"));
+        logger.info("Connection pool max total: {}, max per route: {}, lease timeout: {}, time to live: {},"
+                + " validate after inactivity: {}", pool.getMaxTotal(), pool.getMaxPerRoute(), pool.getLeaseTimeout(),
+            pool.getTimeToLive(), pool.getValidateAfterInactivity());
+        if (pool.getAdaptive().isEnabled()) {
+            logger.info("Adaptive pool sizing every {}: total {}..{}, per route {}..{}",
+                pool.getAdaptive().getInterval(), pool.getAdaptive().getMinTotal(), pool.getMaxTotal(),
+                pool.getAdaptive().getMinPerRoute(), pool.getMaxPerRoute());
+        }
+        if (revocation.isEnabled()) {
+            logger.info("Revocation checking enabled for TRUSTSTORE mode (soft fail: {}, responder timeout: {})",
+                revocation.isSoftFail(), revocation.getResponderTimeout());
+        }
+        if (resilience.getCircuitBreaker().isEnabled()) {
+            CircuitBreaker breaker = resilience.getCircuitBreaker();
+            logger.info("Circuit breaker enabled: window {}, failure rate {}%, slow calls >= {} at {}%, open for {}",
+                breaker.getWindow(), breaker.getFailureRateThreshold(), breaker.getSlowCallThreshold(),
+                breaker.getSlowCallRateThreshold(), breaker.getOpenDuration());
+        }
+        if (resilience.getHedging().isEnabled()) {
+            logger.info("Hedged GET/HEAD requests enabled at p{} latency (min delay {})",
+                Math.round(resilience.getHedging().getPercentile() * 100), resilience.getHedging().getMinDelay());
+        }
+        if (resilience.getRetry().isEnabled()) {
+            Retry retry = resilience.getRetry();
+            logger.info("Stale-connection retries: up to {} for idempotent or {} requests, budget {}% + {}/s",
+                retry.getMaxRetries(), retry.getIdempotencyKeyHeader(), Math.round(retry.getBudgetRatio() * 100),
+                retry.getMinRetriesPerSecond());
+        }
+        if (resilience.getMaxInFlight() > 0) {
+            logger.info("Partner calls limited to {} in flight per partner", resilience.getMaxInFlight());
+        }
+        if (cache.isEnabled()) {
+            logger.info("GET response cache enabled: ttl {}, max size {}, max entry size {}",
+                cache.getTtl(), cache.getMaxSize(), cache.getMaxEntrySize());
+        }
+        if (compression.isEnabled()) {
+            logger.info("Partner payload compression enabled: requests {} from {}, accepting {}",
+                compression.getRequestEncoding(), compression.getMinSize(), compression.getAcceptEncodings());
+        }
+        if (reload.isEnabled()) {
+            logger.info("Key material hot reload enabled (debounce {})", reload.getDebounce());
+        }
+        if (!partners.isEmpty()) {
+            logger.info("{} additional partners configured: {} (max active {}, idle timeout {})",
+                partners.size(), partners.keySet(), registry.getMaxActive(), registry.getIdleTimeout());
+        }
+        if (async.isEnabled()) {
+            logger.info("Async partner client enabled. Version policy: {}, max concurrent streams: {}",
+                async.getVersionPolicy(), async.getMaxConcurrentStreams());
+        }
+    }
+
+    private static void validate(ServerValidation validation, String prefix) {
+        if (validation.getMode() == ServerValidationMode.TRUSTSTORE) {
+            require(validation.getTruststorePath(), prefix + "truststore-path is required when mode=TRUSTSTORE");
+            if (!PemKeyMaterial.isPem(validation.getTruststoreType())) {
+                require(validation.getTruststorePassword(),
+                    prefix + "truststore-password is required when mode=TRUSTSTORE (unless truststore-type=PEM)");
+            }
+        } else if (validation.getMode() == ServerValidationMode.PIN_FINGERPRINT) {
+            require(validation.getPinnedCertSha256Hex(), prefix + "pinned-cert-sha256-hex is required when mode=PIN_FINGERPRINT");
+            pins(validation.getPinnedCertSha256Hex()).forEach(PinningUtils::decodeHexFingerprint);
+        } else if (validation.getMode() == ServerValidationMode.PIN_SPKI) {
+            require(validation.getPinnedSpkiSha256Base64(), prefix + "pinned-spki-sha256-base64 is required when mode=PIN_SPKI");
+            pins(validation.getPinnedSpkiSha256Base64()).forEach(PinningUtils::decodeSpkiPin);
+        }
+    }
+
+    // Misspelt names would otherwise be dropped silently by JSSE and surface only as handshake_failure in production.
+    private static void validate(Handshake handshake, String prefix) {
+        SSLContext defaultContext;
+        try {
+            defaultContext = SSLContext.getDefault();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("Default SSLContext unavailable", ex);
+        }
+        SSLParameters supported = defaultContext.getSupportedSSLParameters();
+        requireSupported(handshake.getProtocols(), List.of(supported.getProtocols()), prefix + "protocols");
+        requireSupported(handshake.getCipherSuites(), List.of(supported.getCipherSuites()), prefix + "cipher-suites");
+        if (supported.getNamedGroups() != null) {
+            requireSupported(handshake.getNamedGroups(), List.of(supported.getNamedGroups()), prefix + "named-groups");
+        }
+        requireSupported(handshake.getSignatureSchemes(), Handshake.SIGNATURE_SCHEMES, prefix + "signature-schemes");
+
+        List<String> protocols = handshake.getProtocols().isEmpty()
+            ? List.of(defaultContext.getDefaultSSLParameters().getProtocols()) : handshake.getProtocols();
+        if (!handshake.getCipherSuites().isEmpty()) {
+            boolean tls13 = protocols.contains("TLSv1.3");
+            boolean legacy = protocols.stream().anyMatch(protocol -> !"TLSv1.3".equals(protocol));
+            boolean hasTls13Suite = handshake.getCipherSuites().stream().anyMatch(Handshake::isTls13Suite);
+            boolean hasLegacySuite = handshake.getCipherSuites().stream().anyMatch(suite -> !Handshake.isTls13Suite(suite));
+            if (!(tls13 && hasTls13Suite) && !(legacy && hasLegacySuite)) {
+                throw new IllegalStateException(prefix + "cipher-suites has no suite usable with protocols " + protocols);
+            }
+        }
+    }
+
+    private static void requireSupported(List<String> values, List<String> supported, String property) {
+        List<String> unsupported = values.stream().filter(value -> !supported.contains(value)).toList();
+        if (!unsupported.isEmpty()) {
+            throw new IllegalStateException(property + " not supported by this JVM: " + unsupported);
+        }
+    }
+
+    private static Object orDefault(List<String> values) {
+        return values.isEmpty() ? "JVM default" : values;
+    }
+
+    private static void validate(Pool pool, String prefix) {
+        if (pool.getMaxTotal() < 1 || pool.getMaxPerRoute() < 1) {
+            throw new IllegalStateException(prefix + "max-total and " + prefix + "max-per-route must be >= 1");
+        }
+        Adaptive adaptive = pool.getAdaptive();
+        if (!adaptive.isEnabled()) {
+            return;
+        }
+        if (adaptive.getMinTotal() < 1 || adaptive.getMinTotal() > pool.getMaxTotal()
+            || adaptive.getMinPerRoute() < 1 || adaptive.getMinPerRoute() > pool.getMaxPerRoute()) {
+            throw new IllegalStateException(prefix + "adaptive.min-total and min-per-route must be between 1 and "
+                + prefix + "max-total / max-per-route");
+        }
+        if (adaptive.getInterval() == null || adaptive.getInterval().toMillis() < 100
+            || adaptive.getLeaseWaitThreshold() == null || adaptive.getLeaseWaitThreshold().isNegative()) {
+            throw new IllegalStateException(prefix + "adaptive.interval must be >= 100ms and lease-wait-threshold >= 0");
+        }
+        if (adaptive.getIncreaseStep() < 1 || adaptive.getDecreaseFactor() <= 0 || adaptive.getDecreaseFactor() >= 1
+            || adaptive.getHeadroom() < 1 || adaptive.getLatencyTolerance() < 1) {
+            throw new IllegalStateException(prefix + "adaptive.increase-step must be >= 1, decrease-factor in (0, 1)"
+                + " and headroom / latency-tolerance >= 1");
+        }
+    }
+
+    private static void validate(Compression compression, String prefix) {
+        if (!compression.isEnabled()) {
+            return;
+        }
+        if (compression.getMinSize() == null || compression.getMinSize().isNegative()
+            || compression.getMinSize().toBytes() > Integer.MAX_VALUE) {
+            throw new IllegalStateException(prefix + "min-size must be between 0 and 2GB");
+        }
+        if (compression.getGzipLevel() < 1 || compression.getGzipLevel() > 9
+            || compression.getZstdLevel() < 1 || compression.getZstdLevel() > 22) {
+            throw new IllegalStateException(prefix + "gzip-level must be in 1..9 and zstd-level in 1..22");
+        }
+        if (compression.getMaxPooled() < 1) {
+            throw new IllegalStateException(prefix + "max-pooled must be >= 1");
+        }
+    }
+
+    private static void validate(Resilience resilience) {
+        if (resilience.getMaxInFlight() < 0) {
+            throw new IllegalStateException("resilience.max-in-flight must be >= 0");
+        }
+        CircuitBreaker breaker = resilience.getCircuitBreaker();
+        if (breaker.isEnabled()) {
+            if (breaker.getWindow() == null || breaker.getWindow().toMillis() < CircuitBreaker.BUCKETS) {
+                throw new IllegalStateException("resilience.circuit-breaker.window must be >= 10ms");
+            }
+            if (breaker.getMinimumCalls() < 1 || breaker.getHalfOpenCalls() < 1) {
+                throw new IllegalStateException(
+                    "resilience.circuit-breaker.minimum-calls and half-open-calls must be >= 1");
+            }
+            if (breaker.getFailureRateThreshold() <= 0 || breaker.getFailureRateThreshold() > 100
+                || breaker.getSlowCallRateThreshold() <= 0 || breaker.getSlowCallRateThreshold() > 100) {
+                throw new IllegalStateException("resilience.circuit-breaker rate thresholds must be in (0, 100]");
+            }
+        }
+        Hedging hedging = resilience.getHedging();
+        if (hedging.isEnabled() && (hedging.getPercentile() <= 0 || hedging.getPercentile() >= 1)) {
+            throw new IllegalStateException("resilience.hedging.percentile must be in (0, 1)");
+        }
+        Retry retry = resilience.getRetry();
+        if (retry.isEnabled()) {
+            if (retry.getMaxRetries() < 0 || retry.getBudgetRatio() < 0 || retry.getMinRetriesPerSecond() < 0) {
+                throw new IllegalStateException(
+                    "resilience.retry.max-retries, budget-ratio and min-retries-per-second must be >= 0");
+            }
+            if (retry.getInitialBackoff() == null || retry.getMaxBackoff() == null
+                || retry.getInitialBackoff().isNegative() || retry.getMaxBackoff().compareTo(retry.getInitialBackoff()) < 0) {
+                throw new IllegalStateException("resilience.retry.initial-backoff must be >= 0 and <= max-backoff");
+            }
+        }
     }
 
     private static void require(String value, String message) {
@@ -99,6 +583,16 @@ public class PartnerMtlsProperties {
         }
     }
 
+    private static void require(List<String> values, String message) {
+        if (pins(values).isEmpty()) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+    static List<String> pins(List<String> values) {
+        return values == null ? List.of() : values.stream().filter(StringUtils::hasText).toList();
+    }
+
     public enum ServerValidationMode {
         TRUSTSTORE,
         PIN_FINGERPRINT,
@@ -109,6 +603,26 @@ public class PartnerMtlsProperties {
         }
     }
 
+    public enum ContentCoding {
+        GZIP("gzip"), ZSTD("zstd");
+
+        private final String token;
+
+        ContentCoding(String token) {
+            this.token = token;
+        }
+
+        // Content-Encoding / Accept-Encoding token.
+        public String token() {
+            return token;
+        }
+    }
+
+    public enum SmokeMode {
+        SINGLE,
+        LOAD
+    }
+
     public static class ServerValidation {
         @NotNull
         private ServerValidationMode mode = ServerValidationMode.TRUSTSTORE;
@@ -119,9 +633,9 @@ public class PartnerMtlsProperties {
 
         private String truststoreType = "PKCS12";
 
-        private String pinnedCertSha256Hex;
+        private List<String> pinnedCertSha256Hex = new ArrayList<>();
 
-        private String pinnedSpkiSha256Base64;
+        private List<String> pinnedSpkiSha256Base64 = new ArrayList<>();
 
         public ServerValidationMode getMode() {
             return mode;
@@ -155,20 +669,1103 @@ public class PartnerMtlsProperties {
             this.truststoreType = truststoreType;
         }
 
-        public String getPinnedCertSha256Hex() {
+        public List<String> getPinnedCertSha256Hex() {
             return pinnedCertSha256Hex;
         }
 
-        public void setPinnedCertSha256Hex(String pinnedCertSha256Hex) {
+        public void setPinnedCertSha256Hex(List<String> pinnedCertSha256Hex) {
             this.pinnedCertSha256Hex = pinnedCertSha256Hex;
         }
 
-        public String getPinnedSpkiSha256Base64() {
+        public List<String> getPinnedSpkiSha256Base64() {
             return pinnedSpkiSha256Base64;
         }
 
-        public void setPinnedSpkiSha256Base64(String pinnedSpkiSha256Base64) {
+        public void setPinnedSpkiSha256Base64(List<String> pinnedSpkiSha256Base64) {
             this.pinnedSpkiSha256Base64 = pinnedSpkiSha256Base64;
         }
     }
+
+    // Empty lists keep the JVM defaults (jdk.tls.* system properties and java.security still apply).
+    public static class Handshake {
+        static final List<String> SIGNATURE_SCHEMES = List.of("ecdsa_secp256r1_sha256", "ecdsa_secp384r1_sha384",
+            "ecdsa_secp521r1_sha512", "ed25519", "ed448", "rsa_pss_rsae_sha256", "rsa_pss_rsae_sha384",
+            "rsa_pss_rsae_sha512", "rsa_pss_pss_sha256", "rsa_pss_pss_sha384", "rsa_pss_pss_sha512",
+            "rsa_pkcs1_sha256", "rsa_pkcs1_sha384", "rsa_pkcs1_sha512", "dsa_sha256", "ecdsa_sha224", "rsa_sha224",
+            "dsa_sha224", "ecdsa_sha1", "rsa_pkcs1_sha1", "dsa_sha1");
+
+        private List<String> protocols = new ArrayList<>();
+
+        private List<String> cipherSuites = new ArrayList<>();
+
+        private List<String> namedGroups = new ArrayList<>();
+
+        private List<String> signatureSchemes = new ArrayList<>();
+
+        static boolean isTls13Suite(String suite) {
+            return suite.startsWith("TLS_AES_") || suite.startsWith("TLS_CHACHA20_");
+        }
+
+        public boolean isJvmDefault() {
+            return protocols.isEmpty() && cipherSuites.isEmpty() && namedGroups.isEmpty() && signatureSchemes.isEmpty();
+        }
+
+        public List<String> getProtocols() {
+            return protocols;
+        }
+
+        public void setProtocols(List<String> protocols) {
+            this.protocols = protocols;
+        }
+
+        public List<String> getCipherSuites() {
+            return cipherSuites;
+        }
+
+        public void setCipherSuites(List<String> cipherSuites) {
+            this.cipherSuites = cipherSuites;
+        }
+
+        public List<String> getNamedGroups() {
+            return namedGroups;
+        }
+
+        public void setNamedGroups(List<String> namedGroups) {
+            this.namedGroups = namedGroups;
+        }
+
+        public List<String> getSignatureSchemes() {
+            return signatureSchemes;
+        }
+
+        public void setSignatureSchemes(List<String> signatureSchemes) {
+            this.signatureSchemes = signatureSchemes;
+        }
+    }
+
+    public static class Session {
+        private int cacheSize = 20480;
+
+        private Duration timeout = Duration.ofHours(24);
+
+        public int getCacheSize() {
+            return cacheSize;
+        }
+
+        public void setCacheSize(int cacheSize) {
+            this.cacheSize = cacheSize;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+    }
+
+    public static class Pool {
+        private int maxTotal = 50;
+
+        private int maxPerRoute = 50;
+
+        @NotNull
+        private Duration leaseTimeout = Duration.ofSeconds(3);
+
+        @NotNull
+        private Duration timeToLive = Duration.ofMinutes(10);
+
+        // A pooled connection idle for longer is probed before reuse; negative disables the check.
+        @NotNull
+        private Duration validateAfterInactivity = Duration.ofSeconds(2);
+
+        @NotNull
+        private Warmup warmup = new Warmup();
+
+        @NotNull
+        private Adaptive adaptive = new Adaptive();
+
+        public int getMaxTotal() {
+            return maxTotal;
+        }
+
+        public void setMaxTotal(int maxTotal) {
+            this.maxTotal = maxTotal;
+        }
+
+        public int getMaxPerRoute() {
+            return maxPerRoute;
+        }
+
+        public void setMaxPerRoute(int maxPerRoute) {
+            this.maxPerRoute = maxPerRoute;
+        }
+
+        public Duration getLeaseTimeout() {
+            return leaseTimeout;
+        }
+
+        public void setLeaseTimeout(Duration leaseTimeout) {
+            this.leaseTimeout = leaseTimeout;
+        }
+
+        public Duration getTimeToLive() {
+            return timeToLive;
+        }
+
+        public void setTimeToLive(Duration timeToLive) {
+            this.timeToLive = timeToLive;
+        }
+
+        public Duration getValidateAfterInactivity() {
+            return validateAfterInactivity;
+        }
+
+        public void setValidateAfterInactivity(Duration validateAfterInactivity) {
+            this.validateAfterInactivity = validateAfterInactivity;
+        }
+
+        public Warmup getWarmup() {
+            return warmup;
+        }
+
+        public void setWarmup(Warmup warmup) {
+            this.warmup = warmup;
+        }
+
+        public Adaptive getAdaptive() {
+            return adaptive;
+        }
+
+        public void setAdaptive(Adaptive adaptive) {
+            this.adaptive = adaptive;
+        }
+    }
+
+    // max-total and max-per-route of the enclosing pool are the upper bounds the controller may grow to.
+    public static class Adaptive {
+        private boolean enabled = false;
+
+        @NotNull
+        private Duration interval = Duration.ofSeconds(5);
+
+        private int minTotal = 4;
+
+        private int minPerRoute = 2;
+
+        @NotNull
+        private Duration leaseWaitThreshold = Duration.ofMillis(5);
+
+        private int increaseStep = 4;
+
+        private double decreaseFactor = 0.75;
+
+        private double headroom = 1.25;
+
+        private double latencyTolerance = 2.0;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getInterval() {
+            return interval;
+        }
+
+        public void setInterval(Duration interval) {
+            this.interval = interval;
+        }
+
+        public int getMinTotal() {
+            return minTotal;
+        }
+
+        public void setMinTotal(int minTotal) {
+            this.minTotal = minTotal;
+        }
+
+        public int getMinPerRoute() {
+            return minPerRoute;
+        }
+
+        public void setMinPerRoute(int minPerRoute) {
+            this.minPerRoute = minPerRoute;
+        }
+
+        public Duration getLeaseWaitThreshold() {
+            return leaseWaitThreshold;
+        }
+
+        public void setLeaseWaitThreshold(Duration leaseWaitThreshold) {
+            this.leaseWaitThreshold = leaseWaitThreshold;
+        }
+
+        public int getIncreaseStep() {
+            return increaseStep;
+        }
+
+        public void setIncreaseStep(int increaseStep) {
+            this.increaseStep = increaseStep;
+        }
+
+        public double getDecreaseFactor() {
+            return decreaseFactor;
+        }
+
+        public void setDecreaseFactor(double decreaseFactor) {
+            this.decreaseFactor = decreaseFactor;
+        }
+
+        public double getHeadroom() {
+            return headroom;
+        }
+
+        public void setHeadroom(double headroom) {
+            this.headroom = headroom;
+        }
+
+        public double getLatencyTolerance() {
+            return latencyTolerance;
+        }
+
+        public void setLatencyTolerance(double latencyTolerance) {
+            this.latencyTolerance = latencyTolerance;
+        }
+    }
+
+    public static class Warmup {
+        private boolean enabled = false;
+
+        private int connectionsPerRoute = 2;
+
+        private List<URI> targets = new ArrayList<>();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getConnectionsPerRoute() {
+            return connectionsPerRoute;
+        }
+
+        public void setConnectionsPerRoute(int connectionsPerRoute) {
+            this.connectionsPerRoute = connectionsPerRoute;
+        }
+
+        public List<URI> getTargets() {
+            return targets;
+        }
+
+        public void setTargets(List<URI> targets) {
+            this.targets = targets;
+        }
+    }
+
+    public static class Async {
+        private boolean enabled = false;
+
+        @NotNull
+        private HttpVersionPolicy versionPolicy = HttpVersionPolicy.NEGOTIATE;
+
+        // Requests in flight at once over HTTP/2; further requests wait in the client. The partner's own
+        // SETTINGS_MAX_CONCURRENT_STREAMS still applies on the connection.
+        private int maxConcurrentStreams = 100;
+
+        private int ioThreads = 2;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public HttpVersionPolicy getVersionPolicy() {
+            return versionPolicy;
+        }
+
+        public void setVersionPolicy(HttpVersionPolicy versionPolicy) {
+            this.versionPolicy = versionPolicy;
+        }
+
+        public int getMaxConcurrentStreams() {
+            return maxConcurrentStreams;
+        }
+
+        public void setMaxConcurrentStreams(int maxConcurrentStreams) {
+            this.maxConcurrentStreams = maxConcurrentStreams;
+        }
+
+        public int getIoThreads() {
+            return ioThreads;
+        }
+
+        public void setIoThreads(int ioThreads) {
+            this.ioThreads = ioThreads;
+        }
+    }
+
+    public static class Reload {
+        private boolean enabled = false;
+
+        @NotNull
+        private Duration debounce = Duration.ofSeconds(2);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getDebounce() {
+            return debounce;
+        }
+
+        public void setDebounce(Duration debounce) {
+            this.debounce = debounce;
+        }
+    }
+
+    public static class Partner {
+        private String clientKeystorePath;
+
+        private String clientKeystorePassword;
+
+        private String clientKeystoreType;
+
+        private String clientKeyPath;
+
+        // Overrides client-alias for this partner's context; client-aliases still applies by host.
+        private String clientAlias;
+
+        private ServerValidation serverValidation;
+
+        private Handshake handshake;
+
+        private Pool pool;
+
+        private Compression compression;
+
+        public String getClientKeystorePath() {
+            return clientKeystorePath;
+        }
+
+        public void setClientKeystorePath(String clientKeystorePath) {
+            this.clientKeystorePath = clientKeystorePath;
+        }
+
+        public String getClientKeystorePassword() {
+            return clientKeystorePassword;
+        }
+
+        public void setClientKeystorePassword(String clientKeystorePassword) {
+            this.clientKeystorePassword = clientKeystorePassword;
+        }
+
+        public String getClientKeystoreType() {
+            return clientKeystoreType;
+        }
+
+        public void setClientKeystoreType(String clientKeystoreType) {
+            this.clientKeystoreType = clientKeystoreType;
+        }
+
+        public String getClientKeyPath() {
+            return clientKeyPath;
+        }
+
+        public void setClientKeyPath(String clientKeyPath) {
+            this.clientKeyPath = clientKeyPath;
+        }
+
+        public String getClientAlias() {
+            return clientAlias;
+        }
+
+        public void setClientAlias(String clientAlias) {
+            this.clientAlias = clientAlias;
+        }
+
+        public ServerValidation getServerValidation() {
+            return serverValidation;
+        }
+
+        public void setServerValidation(ServerValidation serverValidation) {
+            this.serverValidation = serverValidation;
+        }
+
+        public Handshake getHandshake() {
+            return handshake;
+        }
+
+        public void setHandshake(Handshake handshake) {
+            this.handshake = handshake;
+        }
+
+        public Pool getPool() {
+            return pool;
+        }
+
+        public void setPool(Pool pool) {
+            this.pool = pool;
+        }
+
+        public Compression getCompression() {
+            return compression;
+        }
+
+        public void setCompression(Compression compression) {
+            this.compression = compression;
+        }
+    }
+
+    public static class Registry {
+        private int maxActive = 16;
+
+        @NotNull
+        private Duration idleTimeout = Duration.ofMinutes(10);
+
+        public int getMaxActive() {
+            return maxActive;
+        }
+
+        public void setMaxActive(int maxActive) {
+            this.maxActive = maxActive;
+        }
+
+        public Duration getIdleTimeout() {
+            return idleTimeout;
+        }
+
+        public void setIdleTimeout(Duration idleTimeout) {
+            this.idleTimeout = idleTimeout;
+        }
+    }
+
+    public static class Revocation {
+        private boolean enabled = false;
+
+        private boolean softFail = true;
+
+        @NotNull
+        private Duration responderTimeout = Duration.ofSeconds(2);
+
+        @NotNull
+        private Duration defaultTtl = Duration.ofHours(1);
+
+        @NotNull
+        private Duration failureTtl = Duration.ofSeconds(30);
+
+        private int maxEntries = 10000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public boolean isSoftFail() {
+            return softFail;
+        }
+
+        public void setSoftFail(boolean softFail) {
+            this.softFail = softFail;
+        }
+
+        public Duration getResponderTimeout() {
+            return responderTimeout;
+        }
+
+        public void setResponderTimeout(Duration responderTimeout) {
+            this.responderTimeout = responderTimeout;
+        }
+
+        public Duration getDefaultTtl() {
+            return defaultTtl;
+        }
+
+        public void setDefaultTtl(Duration defaultTtl) {
+            this.defaultTtl = defaultTtl;
+        }
+
+        public Duration getFailureTtl() {
+            return failureTtl;
+        }
+
+        public void setFailureTtl(Duration failureTtl) {
+            this.failureTtl = failureTtl;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+    }
+
+    public static class Resilience {
+        private int maxInFlight = 0;
+
+        @NotNull
+        private CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+        @NotNull
+        private Hedging hedging = new Hedging();
+
+        @NotNull
+        private Retry retry = new Retry();
+
+        public int getMaxInFlight() {
+            return maxInFlight;
+        }
+
+        public void setMaxInFlight(int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+        }
+
+        public CircuitBreaker getCircuitBreaker() {
+            return circuitBreaker;
+        }
+
+        public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+            this.circuitBreaker = circuitBreaker;
+        }
+
+        public Hedging getHedging() {
+            return hedging;
+        }
+
+        public void setHedging(Hedging hedging) {
+            this.hedging = hedging;
+        }
+
+        public Retry getRetry() {
+            return retry;
+        }
+
+        public void setRetry(Retry retry) {
+            this.retry = retry;
+        }
+    }
+
+    public static class CircuitBreaker {
+        static final int BUCKETS = 10;
+
+        private boolean enabled = false;
+
+        @NotNull
+        private Duration window = Duration.ofSeconds(10);
+
+        private int minimumCalls = 20;
+
+        private int failureRateThreshold = 50;
+
+        @NotNull
+        private Duration slowCallThreshold = Duration.ofSeconds(2);
+
+        private int slowCallRateThreshold = 80;
+
+        @NotNull
+        private Duration openDuration = Duration.ofSeconds(30);
+
+        private int halfOpenCalls = 5;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getWindow() {
+            return window;
+        }
+
+        public void setWindow(Duration window) {
+            this.window = window;
+        }
+
+        public int getMinimumCalls() {
+            return minimumCalls;
+        }
+
+        public void setMinimumCalls(int minimumCalls) {
+            this.minimumCalls = minimumCalls;
+        }
+
+        public int getFailureRateThreshold() {
+            return failureRateThreshold;
+        }
+
+        public void setFailureRateThreshold(int failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+        }
+
+        public Duration getSlowCallThreshold() {
+            return slowCallThreshold;
+        }
+
+        public void setSlowCallThreshold(Duration slowCallThreshold) {
+            this.slowCallThreshold = slowCallThreshold;
+        }
+
+        public int getSlowCallRateThreshold() {
+            return slowCallRateThreshold;
+        }
+
+        public void setSlowCallRateThreshold(int slowCallRateThreshold) {
+            this.slowCallRateThreshold = slowCallRateThreshold;
+        }
+
+        public Duration getOpenDuration() {
+            return openDuration;
+        }
+
+        public void setOpenDuration(Duration openDuration) {
+            this.openDuration = openDuration;
+        }
+
+        public int getHalfOpenCalls() {
+            return halfOpenCalls;
+        }
+
+        public void setHalfOpenCalls(int halfOpenCalls) {
+            this.halfOpenCalls = halfOpenCalls;
+        }
+    }
+
+    public static class Hedging {
+        private boolean enabled = false;
+
+        private double percentile = 0.95;
+
+        @NotNull
+        private Duration minDelay = Duration.ofMillis(50);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getPercentile() {
+            return percentile;
+        }
+
+        public void setPercentile(double percentile) {
+            this.percentile = percentile;
+        }
+
+        public Duration getMinDelay() {
+            return minDelay;
+        }
+
+        public void setMinDelay(Duration minDelay) {
+            this.minDelay = minDelay;
+        }
+    }
+
+    // Retries only requests that failed on a connection the partner had already closed, and only when repeating them
+    // is safe: idempotent methods, or any method carrying idempotency-key-header.
+    public static class Retry {
+        private boolean enabled = true;
+
+        private int maxRetries = 2;
+
+        @NotNull
+        private Duration initialBackoff = Duration.ofMillis(25);
+
+        @NotNull
+        private Duration maxBackoff = Duration.ofSeconds(1);
+
+        private String idempotencyKeyHeader = "Idempotency-Key";
+
+        // Retries earn budget-ratio tokens per request plus min-retries-per-second, so they add at most that share
+        // of traffic when the partner is actually down.
+        private double budgetRatio = 0.1;
+
+        private int minRetriesPerSecond = 10;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxRetries() {
+            return maxRetries;
+        }
+
+        public void setMaxRetries(int maxRetries) {
+            this.maxRetries = maxRetries;
+        }
+
+        public Duration getInitialBackoff() {
+            return initialBackoff;
+        }
+
+        public void setInitialBackoff(Duration initialBackoff) {
+            this.initialBackoff = initialBackoff;
+        }
+
+        public Duration getMaxBackoff() {
+            return maxBackoff;
+        }
+
+        public void setMaxBackoff(Duration maxBackoff) {
+            this.maxBackoff = maxBackoff;
+        }
+
+        public String getIdempotencyKeyHeader() {
+            return idempotencyKeyHeader;
+        }
+
+        public void setIdempotencyKeyHeader(String idempotencyKeyHeader) {
+            this.idempotencyKeyHeader = idempotencyKeyHeader;
+        }
+
+        public double getBudgetRatio() {
+            return budgetRatio;
+        }
+
+        public void setBudgetRatio(double budgetRatio) {
+            this.budgetRatio = budgetRatio;
+        }
+
+        public int getMinRetriesPerSecond() {
+            return minRetriesPerSecond;
+        }
+
+        public void setMinRetriesPerSecond(int minRetriesPerSecond) {
+            this.minRetriesPerSecond = minRetriesPerSecond;
+        }
+    }
+
+    public static class Streaming {
+        @NotNull
+        private DataSize bufferSize = DataSize.ofKilobytes(64);
+
+        private int maxPooledBuffers = 16;
+
+        public DataSize getBufferSize() {
+            return bufferSize;
+        }
+
+        public void setBufferSize(DataSize bufferSize) {
+            this.bufferSize = bufferSize;
+        }
+
+        public int getMaxPooledBuffers() {
+            return maxPooledBuffers;
+        }
+
+        public void setMaxPooledBuffers(int maxPooledBuffers) {
+            this.maxPooledBuffers = maxPooledBuffers;
+        }
+    }
+
+    public static class Cache {
+        private boolean enabled = false;
+
+        @NotNull
+        private Duration ttl = Duration.ofSeconds(30);
+
+        @NotNull
+        private DataSize maxSize = DataSize.ofMegabytes(16);
+
+        @NotNull
+        private DataSize maxEntrySize = DataSize.ofMegabytes(1);
+
+        // Request headers left out of the cache key: they differ per call without changing the response.
+        @NotNull
+        private List<String> keyIgnoredHeaders = new ArrayList<>(List.of("traceparent", "tracestate", "b3"));
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public DataSize getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(DataSize maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public DataSize getMaxEntrySize() {
+            return maxEntrySize;
+        }
+
+        public void setMaxEntrySize(DataSize maxEntrySize) {
+            this.maxEntrySize = maxEntrySize;
+        }
+
+        public List<String> getKeyIgnoredHeaders() {
+            return keyIgnoredHeaders;
+        }
+
+        public void setKeyIgnoredHeaders(List<String> keyIgnoredHeaders) {
+            this.keyIgnoredHeaders = keyIgnoredHeaders;
+        }
+    }
+
+    public static class Health {
+        private boolean enabled = true;
+
+        // Retried until the first response; empty: readiness does not wait for a round trip.
+        private String probeUrl;
+
+        @NotNull
+        private Duration probeInterval = Duration.ofSeconds(5);
+
+        @NotNull
+        private Duration expiryWarning = Duration.ofDays(14);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getProbeUrl() {
+            return probeUrl;
+        }
+
+        public void setProbeUrl(String probeUrl) {
+            this.probeUrl = probeUrl;
+        }
+
+        public Duration getProbeInterval() {
+            return probeInterval;
+        }
+
+        public void setProbeInterval(Duration probeInterval) {
+            this.probeInterval = probeInterval;
+        }
+
+        public Duration getExpiryWarning() {
+            return expiryWarning;
+        }
+
+        public void setExpiryWarning(Duration expiryWarning) {
+            this.expiryWarning = expiryWarning;
+        }
+    }
+
+    public static class FailureEvents {
+        static final int MAX_CAPACITY = 1 << 16;
+
+        // Rounded up to a power of two; 0 disables recording.
+        private int capacity = 1024;
+
+        @NotNull
+        private Duration logInterval = Duration.ofSeconds(10);
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public Duration getLogInterval() {
+            return logInterval;
+        }
+
+        public void setLogInterval(Duration logInterval) {
+            this.logInterval = logInterval;
+        }
+    }
+
+    public static class Smoke {
+        private boolean enabled = false;
+
+        private String url;
+
+        @NotNull
+        private SmokeMode mode = SmokeMode.SINGLE;
+
+        @NotNull
+        private Load load = new Load();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public SmokeMode getMode() {
+            return mode;
+        }
+
+        public void setMode(SmokeMode mode) {
+            this.mode = mode;
+        }
+
+        public Load getLoad() {
+            return load;
+        }
+
+        public void setLoad(Load load) {
+            this.load = load;
+        }
+    }
+
+    public static class Load {
+        private int concurrency = 16;
+
+        @NotNull
+        private Duration duration = Duration.ofSeconds(30);
+
+        // Requests per second across all workers; 0 sends as fast as the workers can.
+        private int rate = 0;
+
+        public int getConcurrency() {
+            return concurrency;
+        }
+
+        public void setConcurrency(int concurrency) {
+            this.concurrency = concurrency;
+        }
+
+        public Duration getDuration() {
+            return duration;
+        }
+
+        public void setDuration(Duration duration) {
+            this.duration = duration;
+        }
+
+        public int getRate() {
+            return rate;
+        }
+
+        public void setRate(int rate) {
+            this.rate = rate;
+        }
+    }
+
+    // Opt-in per partner: zstd only works if the partner advertises it, and gzip costs CPU on both ends.
+    public static class Compression {
+        private boolean enabled = false;
+
+        // null sends request bodies uncompressed while still accepting compressed responses.
+        private ContentCoding requestEncoding = ContentCoding.GZIP;
+
+        @NotNull
+        private List<ContentCoding> acceptEncodings = new ArrayList<>(List.of(ContentCoding.GZIP));
+
+        // Bodies smaller than this are sent as is; below ~1KB the header and CPU cost outweigh the savings.
+        @NotNull
+        private DataSize minSize = DataSize.ofKilobytes(1);
+
+        private int gzipLevel = 6;
+
+        private int zstdLevel = 3;
+
+        // Compressors, decompressors and scratch buffers kept per client for reuse.
+        private int maxPooled = 16;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public ContentCoding getRequestEncoding() {
+            return requestEncoding;
+        }
+
+        public void setRequestEncoding(ContentCoding requestEncoding) {
+            this.requestEncoding = requestEncoding;
+        }
+
+        public List<ContentCoding> getAcceptEncodings() {
+            return acceptEncodings;
+        }
+
+        public void setAcceptEncodings(List<ContentCoding> acceptEncodings) {
+            this.acceptEncodings = acceptEncodings;
+        }
+
+        public DataSize getMinSize() {
+            return minSize;
+        }
+
+        public void setMinSize(DataSize minSize) {
+            this.minSize = minSize;
+        }
+
+        public int getGzipLevel() {
+            return gzipLevel;
+        }
+
+        public void setGzipLevel(int gzipLevel) {
+            this.gzipLevel = gzipLevel;
+        }
+
+        public int getZstdLevel() {
+            return zstdLevel;
+        }
+
+        public void setZstdLevel(int zstdLevel) {
+            this.zstdLevel = zstdLevel;
+        }
+
+        public int getMaxPooled() {
+            return maxPooled;
+        }
+
+        public void setMaxPooled(int maxPooled) {
+            this.maxPooled = maxPooled;
+        }
+    }
 }
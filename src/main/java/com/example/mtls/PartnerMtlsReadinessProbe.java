@@ -0,0 +1,82 @@
+package com.example.mtls;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.RestTemplate;
+
+// Calls health.probe-url through the partner client until one mTLS round trip completes, so a new pod does not
+// depend on live traffic (which readiness holds back) to prove its certificate, trust and pool work.
+@Component
+@ConditionalOnProperty(prefix = "partner.mtls", name = { "enabled", "health.enabled" }, havingValue = "true",
+    matchIfMissing = true)
+public class PartnerMtlsReadinessProbe implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(PartnerMtlsReadinessProbe.class);
+
+    private final RestTemplate partnerRestTemplate;
+    private final PartnerMtlsProperties.Health health;
+    private final PartnerMtlsStatus status;
+
+    private volatile ScheduledExecutorService prober;
+
+    public PartnerMtlsReadinessProbe(RestTemplate partnerRestTemplate, PartnerMtlsProperties properties,
+                                     PartnerMtlsStatus status) {
+        this.partnerRestTemplate = partnerRestTemplate;
+        this.health = properties.getHealth();
+        this.status = status;
+    }
+
+    @Override
+    public void start() {
+        if (!StringUtils.hasText(health.getProbeUrl())) {
+            return;
+        }
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().daemon().name("mtls-readiness-probe").factory());
+        executor.scheduleWithFixedDelay(this::probe, 0, health.getProbeInterval().toMillis(), TimeUnit.MILLISECONDS);
+        prober = executor;
+    }
+
+    @Override
+    public void stop() {
+        ScheduledExecutorService executor = prober;
+        prober = null;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return prober != null;
+    }
+
+    void probe() {
+        if (status.roundTrip() == null) {
+            try {
+                // The request metrics interceptor records the round trip, whatever the status code.
+                partnerRestTemplate.execute(health.getProbeUrl(), HttpMethod.GET, null, response -> {
+                    StreamUtils.drain(response.getBody());
+                    return null;
+                });
+            } catch (RuntimeException ex) {
+                if (status.roundTrip() == null) {
+                    logger.info("mTLS readiness probe to {} failed, retrying in {}: {}", health.getProbeUrl(),
+                        health.getProbeInterval(), ex.getMessage());
+                    return;
+                }
+            }
+        }
+        PartnerMtlsStatus.Outcome roundTrip = status.roundTrip();
+        logger.info("mTLS round trip to {} completed with status {}", roundTrip.target(), roundTrip.result());
+        stop();
+    }
+}
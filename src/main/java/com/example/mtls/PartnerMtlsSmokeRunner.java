@@ -1,35 +1,146 @@
 package com.example.mtls;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpMethod;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.client.RestTemplate;
 
 @Component
 @ConditionalOnProperty(prefix = "partner.mtls", name = { "enabled", "smoke.enabled" }, havingValue = "true")
 public class PartnerMtlsSmokeRunner implements CommandLineRunner {
     private static final Logger logger = LoggerFactory.getLogger(PartnerMtlsSmokeRunner.class);
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
 
     private final RestTemplate partnerRestTemplate;
-    private final String url;
+    private final PartnerMtlsProperties.Smoke smoke;
+    private final MeterRegistry meterRegistry;
 
-    public PartnerMtlsSmokeRunner(RestTemplate partnerRestTemplate,
-                                  @Value("${partner.mtls.smoke.url}") String url) {
+    public PartnerMtlsSmokeRunner(RestTemplate partnerRestTemplate, PartnerMtlsProperties properties,
+                                  MeterRegistry meterRegistry) {
         this.partnerRestTemplate = partnerRestTemplate;
-        this.url = url;
+        this.smoke = properties.getSmoke();
+        this.meterRegistry = meterRegistry;
     }
 
     @Override
     public void run(String... args) {
-        logger.info("Running mTLS smoke check against {}", url);
+        if (smoke.getMode() == PartnerMtlsProperties.SmokeMode.LOAD) {
+            LoadReport report = runLoad();
+            logger.info("mTLS load test finished: {} requests in {} ms ({} req/s), {} errors",
+                report.requests(), report.elapsed().toMillis(), Math.round(report.throughput()), report.errors());
+            logger.info("Latency ms: p50 {}, p95 {}, p99 {}, p99.9 {}, max {}", millis(report, 50),
+                millis(report, 95), millis(report, 99), millis(report, 99.9),
+                String.format("%.2f", report.latencies().getMaxValue() / 1e6));
+            logger.info("Connections: {} handshakes ({} resumed), {} requests on reused connections",
+                report.handshakes(), report.resumedHandshakes(), report.reusedConnections());
+            return;
+        }
+        logger.info("Running mTLS smoke check against {}", smoke.getUrl());
         try {
-            var response = partnerRestTemplate.getForEntity(url, String.class);
+            var response = partnerRestTemplate.getForEntity(smoke.getUrl(), String.class);
             logger.info("mTLS smoke check OK: status {}", response.getStatusCode());
         } catch (Exception ex) {
             logger.error("mTLS smoke check failed", ex);
         }
     }
+
+    LoadReport runLoad() {
+        PartnerMtlsProperties.Load load = smoke.getLoad();
+        logger.info("Running mTLS load test against {}: {} workers for {}{}", smoke.getUrl(), load.getConcurrency(),
+            load.getDuration(), load.getRate() > 0 ? " at " + load.getRate() + " req/s" : ", unthrottled");
+        long[] handshakesBefore = handshakes();
+        Recorder recorder = new Recorder(HIGHEST_TRACKABLE_NANOS, 3);
+        AtomicLong tickets = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        long intervalNanos = load.getRate() > 0 ? TimeUnit.SECONDS.toNanos(1) / load.getRate() : 0;
+        long start = System.nanoTime();
+        long deadline = start + load.getDuration().toNanos();
+
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < load.getConcurrency(); i++) {
+                workers.submit(() -> {
+                    while (true) {
+                        // At a fixed rate, latency counts from the scheduled send time, so a stalled partner
+                        // shows up in the percentiles instead of silently lowering the request rate.
+                        long scheduled = intervalNanos > 0 ? start + tickets.getAndIncrement() * intervalNanos
+                            : System.nanoTime();
+                        if (scheduled - deadline >= 0) {
+                            return;
+                        }
+                        long wait;
+                        while ((wait = scheduled - System.nanoTime()) > 0) {
+                            LockSupport.parkNanos(wait);
+                        }
+                        if (!call()) {
+                            errors.incrementAndGet();
+                        }
+                        recorder.recordValue(Math.min(System.nanoTime() - scheduled, HIGHEST_TRACKABLE_NANOS));
+                    }
+                });
+            }
+        }
+
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        long[] handshakesAfter = handshakes();
+        return new LoadReport(recorder.getIntervalHistogram(), errors.get(), elapsed,
+            handshakesAfter[0] - handshakesBefore[0], handshakesAfter[1] - handshakesBefore[1]);
+    }
+
+    private boolean call() {
+        try {
+            return Boolean.TRUE.equals(partnerRestTemplate.execute(smoke.getUrl(), HttpMethod.GET, null, response -> {
+                StreamUtils.drain(response.getBody());
+                return response.getStatusCode().is2xxSuccessful();
+            }));
+        } catch (Exception ex) {
+            logger.debug("Load test request failed: {}", ex.getMessage());
+            return false;
+        }
+    }
+
+    // Total and resumed handshakes recorded by the instrumented socket factory so far.
+    private long[] handshakes() {
+        long total = 0;
+        long resumed = 0;
+        for (Timer timer : meterRegistry.find("partner.mtls.tls.handshake").timers()) {
+            total += timer.count();
+            if ("true".equals(timer.getId().getTag("resumed"))) {
+                resumed += timer.count();
+            }
+        }
+        return new long[] { total, resumed };
+    }
+
+    private static String millis(LoadReport report, double percentile) {
+        return String.format("%.2f", report.latencies().getValueAtPercentile(percentile) / 1e6);
+    }
+
+    record LoadReport(Histogram latencies, long errors, Duration elapsed, long handshakes, long resumedHandshakes) {
+        long requests() {
+            return latencies.getTotalCount();
+        }
+
+        double throughput() {
+            return requests() / (elapsed.toNanos() / 1e9);
+        }
+
+        // Every new connection costs one handshake; all other requests rode an already open one.
+        long reusedConnections() {
+            return Math.max(0, requests() - handshakes);
+        }
+    }
 }
@@ -0,0 +1,55 @@
+package com.example.mtls;
+
+import java.time.Instant;
+
+// What the health indicators report on: handshakes seen by the socket factories, the first completed mTLS round
+// trip and the pool warm-up. Written by client threads, read by the actuator.
+public class PartnerMtlsStatus {
+    private volatile Outcome lastHandshake;
+    private volatile Outcome lastSuccessfulHandshake;
+    private volatile Outcome roundTrip;
+    private volatile Warmup warmup;
+
+    void handshakeSucceeded(String target, String protocol) {
+        Outcome outcome = new Outcome(Instant.now(), target, protocol);
+        lastHandshake = outcome;
+        lastSuccessfulHandshake = outcome;
+    }
+
+    void handshakeFailed(String target, String cause) {
+        lastHandshake = new Outcome(Instant.now(), target, cause);
+    }
+
+    // Any HTTP response proves the whole path: TLS with our certificate, the partner's validation and HTTP.
+    void roundTripCompleted(String target, int status) {
+        if (roundTrip == null) {
+            roundTrip = new Outcome(Instant.now(), target, Integer.toString(status));
+        }
+    }
+
+    void warmedUp(int connections, int wanted) {
+        warmup = new Warmup(connections, wanted);
+    }
+
+    public Outcome lastHandshake() {
+        return lastHandshake;
+    }
+
+    public Outcome lastSuccessfulHandshake() {
+        return lastSuccessfulHandshake;
+    }
+
+    public Outcome roundTrip() {
+        return roundTrip;
+    }
+
+    public Warmup warmup() {
+        return warmup;
+    }
+
+    public record Outcome(Instant at, String target, String result) {
+    }
+
+    public record Warmup(int connections, int wanted) {
+    }
+}
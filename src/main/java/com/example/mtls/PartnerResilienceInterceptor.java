@@ -0,0 +1,164 @@
+package com.example.mtls;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+public class PartnerResilienceInterceptor implements ClientHttpRequestInterceptor {
+    private final String name;
+    private final PartnerCircuitBreaker circuitBreaker;
+    private final Semaphore inFlight;
+    private final Counter circuitOpenRejections;
+    private final Counter concurrencyRejections;
+
+    public PartnerResilienceInterceptor(String name, PartnerMtlsProperties.Resilience settings,
+                                        MeterRegistry meterRegistry) {
+        this.name = name;
+        this.circuitBreaker = settings.getCircuitBreaker().isEnabled()
+            ? new PartnerCircuitBreaker(name, settings.getCircuitBreaker()) : null;
+        this.inFlight = settings.getMaxInFlight() > 0 ? new Semaphore(settings.getMaxInFlight()) : null;
+        this.circuitOpenRejections = rejections(meterRegistry, name, PartnerCallRejectedException.Reason.CIRCUIT_OPEN);
+        this.concurrencyRejections = rejections(meterRegistry, name,
+            PartnerCallRejectedException.Reason.CONCURRENCY_LIMIT);
+        if (circuitBreaker != null) {
+            // A partner rebuilt under the same name would otherwise keep reporting its evicted predecessor.
+            meterRegistry.find("partner.mtls.circuit.state").tag("httpclient", name).gauges()
+                .forEach(meterRegistry::remove);
+            Gauge.builder("partner.mtls.circuit.state", circuitBreaker, breaker -> breaker.state().ordinal())
+                .description("Partner circuit breaker state: 0 closed, 1 open, 2 half-open")
+                .tag("httpclient", name)
+                .register(meterRegistry);
+        }
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+        throws IOException {
+        Admission admission = admit();
+        boolean handedOff = false;
+        try {
+            ClientHttpResponse response = execution.execute(request, body);
+            admission.completed(response.getStatusCode().is5xxServerError());
+            handedOff = true;
+            // The call still holds its connection until the body is consumed, so the permit goes with the response.
+            return inFlight != null ? new PermitReleasingResponse(response, admission) : response;
+        } finally {
+            if (!handedOff) {
+                admission.close();
+            }
+        }
+    }
+
+    // Admits one call past the in-flight limit and the circuit breaker, for callers that bypass RestTemplate.
+    Admission admit() throws PartnerCallRejectedException {
+        if (inFlight != null && !inFlight.tryAcquire()) {
+            concurrencyRejections.increment();
+            throw new PartnerCallRejectedException("Too many calls in flight to partner " + name,
+                PartnerCallRejectedException.Reason.CONCURRENCY_LIMIT);
+        }
+        PartnerCircuitBreaker.Phase admittedIn = null;
+        if (circuitBreaker != null) {
+            admittedIn = circuitBreaker.tryAcquire();
+            if (admittedIn == null) {
+                if (inFlight != null) {
+                    inFlight.release();
+                }
+                circuitOpenRejections.increment();
+                throw new PartnerCallRejectedException("Circuit open for partner " + name,
+                    PartnerCallRejectedException.Reason.CIRCUIT_OPEN);
+            }
+        }
+        return new Admission(admittedIn);
+    }
+
+    PartnerCircuitBreaker circuitBreaker() {
+        return circuitBreaker;
+    }
+
+    private static Counter rejections(MeterRegistry meterRegistry, String name,
+                                      PartnerCallRejectedException.Reason reason) {
+        return Counter.builder("partner.mtls.calls.rejected")
+            .description("Partner calls rejected without reaching the network")
+            .tag("httpclient", name)
+            .tag("reason", reason.name().toLowerCase(Locale.ROOT))
+            .register(meterRegistry);
+    }
+
+    // One admitted call: completed() reports the partner's answer to the circuit breaker, close() gives the
+    // in-flight permit back. Closing before completed() counts the call as failed.
+    final class Admission implements Closeable {
+        private final PartnerCircuitBreaker.Phase admittedIn;
+        private final long start = System.nanoTime();
+        private final AtomicBoolean recorded = new AtomicBoolean();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Admission(PartnerCircuitBreaker.Phase admittedIn) {
+            this.admittedIn = admittedIn;
+        }
+
+        void completed(boolean failed) {
+            if (circuitBreaker != null && recorded.compareAndSet(false, true)) {
+                circuitBreaker.record(admittedIn, System.nanoTime() - start, failed);
+            }
+        }
+
+        @Override
+        public void close() {
+            completed(true);
+            if (inFlight != null && released.compareAndSet(false, true)) {
+                inFlight.release();
+            }
+        }
+    }
+
+    private static final class PermitReleasingResponse implements ClientHttpResponse {
+        private final ClientHttpResponse delegate;
+        private final Admission admission;
+
+        private PermitReleasingResponse(ClientHttpResponse delegate, Admission admission) {
+            this.delegate = delegate;
+            this.admission = admission;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return delegate.getBody();
+        }
+
+        @Override
+        public void close() {
+            try {
+                delegate.close();
+            } finally {
+                admission.close();
+            }
+        }
+    }
+}
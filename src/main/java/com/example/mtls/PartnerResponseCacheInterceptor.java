@@ -0,0 +1,340 @@
+package com.example.mtls;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.SequenceInputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.support.HttpRequestWrapper;
+
+// Identical in-flight GETs share one upstream call, and 200 responses are kept in a byte-bounded LRU. Once an
+// entry's TTL passes it is revalidated with If-None-Match, so an unchanged resource costs a 304 instead of a body.
+// Identical means same URI and same request headers, so callers with different credentials never share a response.
+public final class PartnerResponseCacheInterceptor implements ClientHttpRequestInterceptor {
+    private final long ttlNanos;
+    private final long maxSize;
+    private final int maxEntrySize;
+    private final LongSupplier clock;
+    // Lower-case names; everything else in the request is part of the key.
+    private final Set<String> ignoredHeaders;
+    private final Map<String, CompletableFuture<CachedResponse>> inFlight = new ConcurrentHashMap<>();
+    // Access-ordered, so iteration starts at the least recently used entry; guarded by itself.
+    private final LinkedHashMap<String, CachedResponse> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalesced;
+    private final Counter revalidated;
+
+    public PartnerResponseCacheInterceptor(String name, PartnerMtlsProperties.Cache settings,
+                                           MeterRegistry meterRegistry) {
+        this(name, settings, meterRegistry, System::nanoTime);
+    }
+
+    PartnerResponseCacheInterceptor(String name, PartnerMtlsProperties.Cache settings, MeterRegistry meterRegistry,
+                                    LongSupplier clock) {
+        this.ttlNanos = settings.getTtl().toNanos();
+        this.maxSize = settings.getMaxSize().toBytes();
+        this.maxEntrySize = (int) settings.getMaxEntrySize().toBytes();
+        this.clock = clock;
+        this.ignoredHeaders = settings.getKeyIgnoredHeaders().stream()
+            .map(header -> header.toLowerCase(Locale.ROOT))
+            .collect(Collectors.toUnmodifiableSet());
+        this.hits = requests(meterRegistry, name, "hit");
+        this.misses = requests(meterRegistry, name, "miss");
+        this.coalesced = requests(meterRegistry, name, "coalesced");
+        this.revalidated = requests(meterRegistry, name, "revalidated");
+        // A partner rebuilt under the same name would otherwise keep reporting its evicted predecessor.
+        meterRegistry.find("partner.mtls.cache.size").tag("httpclient", name).gauges()
+            .forEach(meterRegistry::remove);
+        Gauge.builder("partner.mtls.cache.size", this, PartnerResponseCacheInterceptor::size)
+            .description("Bytes held by the partner GET response cache")
+            .baseUnit("bytes")
+            .tag("httpclient", name)
+            .register(meterRegistry);
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+        throws IOException {
+        // Callers doing their own conditional requests expect to see the 304 themselves.
+        if (request.getMethod() != HttpMethod.GET || !request.getHeaders().getIfNoneMatch().isEmpty()
+            || request.getHeaders().getIfModifiedSince() != -1) {
+            return execution.execute(request, body);
+        }
+        String key = key(request);
+        CachedResponse cached = lookup(key);
+        if (cached != null && clock.getAsLong() - cached.expiresAt() < 0) {
+            hits.increment();
+            return cached.toResponse();
+        }
+
+        CompletableFuture<CachedResponse> call = new CompletableFuture<>();
+        CompletableFuture<CachedResponse> leader = inFlight.putIfAbsent(key, call);
+        if (leader != null) {
+            CachedResponse shared = await(leader);
+            if (shared != null) {
+                coalesced.increment();
+                return shared.toResponse();
+            }
+            // The leader's response was too large to share.
+            misses.increment();
+            return execution.execute(request, body);
+        }
+        try {
+            return fetch(key, request, body, execution, cached, call);
+        } catch (IOException | RuntimeException | Error ex) {
+            call.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    long size() {
+        synchronized (entries) {
+            return size;
+        }
+    }
+
+    private ClientHttpResponse fetch(String key, HttpRequest request, byte[] body,
+                                     ClientHttpRequestExecution execution, CachedResponse stale,
+                                     CompletableFuture<CachedResponse> call) throws IOException {
+        if (stale != null && stale.etag() != null) {
+            request = withIfNoneMatch(request, stale.etag());
+        }
+        ClientHttpResponse response = execution.execute(request, body);
+        if (stale != null && stale.etag() != null && response.getStatusCode().value() == 304) {
+            response.close();
+            revalidated.increment();
+            CachedResponse refreshed = stale.expiringAt(clock.getAsLong() + ttlNanos);
+            store(key, refreshed);
+            call.complete(refreshed);
+            return refreshed.toResponse();
+        }
+        misses.increment();
+
+        InputStream content = response.getBody();
+        byte[] prefix = content.readNBytes(maxEntrySize + 1);
+        if (prefix.length > maxEntrySize) {
+            call.complete(null);
+            return new PrefixedResponse(response, prefix);
+        }
+        response.close();
+        CachedResponse fetched = CachedResponse.of(response, prefix, clock.getAsLong() + ttlNanos);
+        if (cacheable(fetched)) {
+            store(key, fetched);
+        } else if (fetched.status().value() == 200) {
+            remove(key);
+        }
+        call.complete(fetched);
+        return fetched.toResponse();
+    }
+
+    private boolean cacheable(CachedResponse response) {
+        if (response.status().value() != 200 || (ttlNanos == 0 && response.etag() == null)) {
+            return false;
+        }
+        String cacheControl = response.headers().getCacheControl();
+        if (cacheControl != null && cacheControl.contains(CacheControl.noStore().getHeaderValue())) {
+            return false;
+        }
+        // Headers named by Vary are already part of the key, unless they are ignored there.
+        return response.headers().getVary().stream()
+            .map(header -> header.toLowerCase(Locale.ROOT))
+            .noneMatch(header -> header.equals("*") || ignoredHeaders.contains(header));
+    }
+
+    private CachedResponse lookup(String key) {
+        synchronized (entries) {
+            CachedResponse cached = entries.get(key);
+            // Without a validator an expired entry can only be refetched in full.
+            if (cached != null && cached.etag() == null && clock.getAsLong() - cached.expiresAt() >= 0) {
+                entries.remove(key);
+                size -= cached.weight();
+                return null;
+            }
+            return cached;
+        }
+    }
+
+    private void store(String key, CachedResponse response) {
+        synchronized (entries) {
+            CachedResponse previous = entries.put(key, response);
+            size += response.weight() - (previous != null ? previous.weight() : 0);
+            Iterator<CachedResponse> eldest = entries.values().iterator();
+            while (size > maxSize && eldest.hasNext()) {
+                size -= eldest.next().weight();
+                eldest.remove();
+            }
+        }
+    }
+
+    private void remove(String key) {
+        synchronized (entries) {
+            CachedResponse previous = entries.remove(key);
+            if (previous != null) {
+                size -= previous.weight();
+            }
+        }
+    }
+
+    private static CachedResponse await(CompletableFuture<CachedResponse> leader) throws IOException {
+        try {
+            return leader.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a coalesced partner request");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (ex.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException("Coalesced partner request failed", ex.getCause());
+        }
+    }
+
+    private String key(HttpRequest request) {
+        StringBuilder key = new StringBuilder(request.getURI().toString());
+        Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        headers.putAll(request.getHeaders());
+        headers.forEach((header, values) -> {
+            String name = header.toLowerCase(Locale.ROOT);
+            if (!ignoredHeaders.contains(name)) {
+                key.append('\n').append(name).append(": ").append(String.join(",", values));
+            }
+        });
+        return key.toString();
+    }
+
+    private static HttpRequest withIfNoneMatch(HttpRequest request, String etag) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(request.getHeaders());
+        headers.setIfNoneMatch(etag);
+        return new HttpRequestWrapper(request) {
+            @Override
+            public HttpHeaders getHeaders() {
+                return headers;
+            }
+        };
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String name, String result) {
+        return Counter.builder("partner.mtls.cache.requests")
+            .description("Partner GETs by response cache outcome")
+            .tag("httpclient", name)
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    private record CachedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body, String etag,
+                                  long expiresAt, long weight) {
+        static CachedResponse of(ClientHttpResponse response, byte[] body, long expiresAt) throws IOException {
+            HttpHeaders headers = new HttpHeaders();
+            headers.putAll(response.getHeaders());
+            long weight = body.length;
+            for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                for (String value : header.getValue()) {
+                    weight += header.getKey().length() + value.length();
+                }
+            }
+            return new CachedResponse(response.getStatusCode(), HttpHeaders.readOnlyHttpHeaders(headers), body,
+                headers.getETag(), expiresAt, weight);
+        }
+
+        CachedResponse expiringAt(long newExpiresAt) {
+            return new CachedResponse(status, headers, body, etag, newExpiresAt, weight);
+        }
+
+        ClientHttpResponse toResponse() {
+            return new ClientHttpResponse() {
+                @Override
+                public HttpStatusCode getStatusCode() {
+                    return status;
+                }
+
+                @Override
+                public String getStatusText() {
+                    HttpStatus known = HttpStatus.resolve(status.value());
+                    return known != null ? known.getReasonPhrase() : "";
+                }
+
+                @Override
+                public HttpHeaders getHeaders() {
+                    return headers;
+                }
+
+                @Override
+                public InputStream getBody() {
+                    return new ByteArrayInputStream(body);
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+    }
+
+    // Hands an oversized response back unbuffered, replaying the bytes already read from it.
+    private static final class PrefixedResponse implements ClientHttpResponse {
+        private final ClientHttpResponse delegate;
+        private final InputStream body;
+
+        private PrefixedResponse(ClientHttpResponse delegate, byte[] prefix) throws IOException {
+            this.delegate = delegate;
+            this.body = new SequenceInputStream(new ByteArrayInputStream(prefix), delegate.getBody());
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+}
@@ -1,20 +1,25 @@
 package com.example.mtls;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import java.io.IOException;
+import java.net.URI;
 import java.security.GeneralSecurityException;
+import java.util.ArrayList;
 import java.util.List;
-import javax.net.ssl.SSLHandshakeException;
-import org.apache.hc.client5.http.classic.HttpClient;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLContext;
+import org.apache.hc.client5.http.config.ConnectionConfig;
 import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.ChainElement;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
 import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
-import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
 import org.apache.hc.core5.util.TimeValue;
 import org.apache.hc.core5.util.Timeout;
 import org.apache.hc.client5.http.ssl.DefaultHostnameVerifier;
 import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactory;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
@@ -29,66 +34,203 @@ import org.springframework.web.client.RestTemplate;
 @Configuration
 @EnableConfigurationProperties(PartnerMtlsProperties.class)
 public class PartnerRestTemplateConfig {
-    private static final Logger logger = LoggerFactory.getLogger(PartnerRestTemplateConfig.class);
+    static final Timeout CONNECT_TIMEOUT = Timeout.ofSeconds(5);
+    static final Timeout RESPONSE_TIMEOUT = Timeout.ofSeconds(10);
 
+    private final PartnerMtlsProperties properties;
     private final PartnerSslContextFactory sslContextFactory;
+    private final MeterRegistry meterRegistry;
+    private final PartnerMtlsStatus status = new PartnerMtlsStatus();
 
-    public PartnerRestTemplateConfig(PartnerSslContextFactory sslContextFactory) {
+    public PartnerRestTemplateConfig(PartnerMtlsProperties properties, PartnerSslContextFactory sslContextFactory,
+                                     MeterRegistry meterRegistry) {
+        this.properties = properties;
         this.sslContextFactory = sslContextFactory;
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Shared with every socket factory and client this configuration builds.
+    @Bean
+    public PartnerMtlsStatus partnerMtlsStatus() {
+        return status;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "partner.mtls", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public RestTemplate partnerRestTemplate(PoolingHttpClientConnectionManager partnerConnectionManager) {
+        return restTemplate("partner", partnerConnectionManager, properties.getPool(), properties.getCompression(),
+            partnerResilienceInterceptor(), partnerRetryStrategy());
+    }
+
+    // The default partner's RestTemplate and streaming client share one in-flight limit, circuit breaker and retry
+    // budget, so large transfers count against the same caps as regular calls.
+    @Bean
+    @ConditionalOnProperty(prefix = "partner.mtls", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public PartnerResilienceInterceptor partnerResilienceInterceptor() {
+        return new PartnerResilienceInterceptor("partner", properties.getResilience(), meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "partner.mtls", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public PartnerRetryStrategy partnerRetryStrategy() {
+        return new PartnerRetryStrategy("partner", properties.getResilience().getRetry(), meterRegistry);
+    }
+
+    // Streams are not decoded: the caller gets the bytes as sent, and transfer metrics count what crossed the wire.
+    @Bean
+    @ConditionalOnProperty(prefix = "partner.mtls", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public PartnerStreamingClient partnerStreamingClient(PoolingHttpClientConnectionManager partnerConnectionManager) {
+        CloseableHttpClient httpClient = httpClient(partnerConnectionManager, properties.getPool(),
+            partnerRetryStrategy())
+            .setConnectionManagerShared(true)
+            .disableContentCompression()
+            .build();
+        return new PartnerStreamingClient(httpClient, partnerResilienceInterceptor(), sslContextFactory.failureEvents(),
+            properties.getStreaming(), meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "partner.mtls", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public SSLContext partnerSslContext() throws GeneralSecurityException, IOException {
+        return sslContextFactory.build();
     }
 
     @Bean
     @ConditionalOnProperty(prefix = "partner.mtls", name = "enabled", havingValue = "true", matchIfMissing = true)
-    public RestTemplate partnerRestTemplate() throws GeneralSecurityException, IOException {
-        ClientHttpRequestFactory requestFactory = httpRequestFactory();
+    public PoolingHttpClientConnectionManager partnerConnectionManager(SSLContext partnerSslContext) {
+        return connectionManager("partner", partnerSslContext, properties.getServerValidation().getMode(),
+            properties.getHandshake(), properties.getPool());
+    }
+
+    RestTemplate restTemplate(String name, PoolingHttpClientConnectionManager connectionManager,
+                              PartnerMtlsProperties.Pool pool, PartnerMtlsProperties.Compression compression) {
+        PartnerMtlsProperties.Resilience resilience = properties.getResilience();
+        return restTemplate(name, connectionManager, pool, compression,
+            new PartnerResilienceInterceptor(name, resilience, meterRegistry),
+            new PartnerRetryStrategy(name, resilience.getRetry(), meterRegistry));
+    }
+
+    private RestTemplate restTemplate(String name, PoolingHttpClientConnectionManager connectionManager,
+                                      PartnerMtlsProperties.Pool pool, PartnerMtlsProperties.Compression compression,
+                                      PartnerResilienceInterceptor resilienceInterceptor,
+                                      PartnerRetryStrategy retryStrategy) {
+        PartnerMtlsProperties.Resilience resilience = properties.getResilience();
+        HttpClientBuilder httpClient = httpClient(connectionManager, pool, retryStrategy);
+        // The compression interceptor decodes responses itself and needs the partner's Content-Encoding intact.
+        if (compression.isEnabled()) {
+            httpClient.disableContentCompression();
+        }
+        ClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient.build());
+        if (resilience.getHedging().isEnabled()) {
+            requestFactory = new HedgingClientHttpRequestFactory(name, requestFactory, resilience.getHedging(),
+                meterRegistry);
+        }
+        List<ClientHttpRequestInterceptor> interceptors = new ArrayList<>();
+        // Cache hits and coalesced calls never reach the network, so they stay out of latency and breaker stats.
+        if (properties.getCache().isEnabled()) {
+            interceptors.add(new PartnerResponseCacheInterceptor(name, properties.getCache(), meterRegistry));
+        }
+        interceptors.add(requestMetricsInterceptor());
+        interceptors.add(failureEventInterceptor());
+        interceptors.add(resilienceInterceptor);
+        // Innermost: the response cache keeps decoded bodies, and hedges and retries resend the compressed bytes.
+        if (compression.isEnabled()) {
+            interceptors.add(new PartnerCompressionInterceptor(name, compression, meterRegistry));
+        }
         RestTemplate restTemplate = new RestTemplate(requestFactory);
-        restTemplate.setInterceptors(List.of(handshakeLoggingInterceptor()));
+        restTemplate.setInterceptors(interceptors);
         return restTemplate;
     }
 
-    private ClientHttpRequestFactory httpRequestFactory() throws GeneralSecurityException, IOException {
-        SSLConnectionSocketFactory sslSocketFactory = new SSLConnectionSocketFactory(
-            sslContextFactory.build(), new DefaultHostnameVerifier());
+    PoolingHttpClientConnectionManager connectionManager(String name, SSLContext sslContext,
+                                                         PartnerMtlsProperties.ServerValidationMode mode,
+                                                         PartnerMtlsProperties.Handshake handshake,
+                                                         PartnerMtlsProperties.Pool pool) {
+        SSLConnectionSocketFactory sslSocketFactory = new InstrumentedSslSocketFactory(name, sslContext, handshake,
+            new DefaultHostnameVerifier(), meterRegistry, status, mode);
 
-        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
-            .setSSLSocketFactory(sslSocketFactory)
-            .build();
+        InstrumentedConnectionManager connectionManager = new InstrumentedConnectionManager(name, sslSocketFactory,
+            meterRegistry);
+        connectionManager.setMaxTotal(pool.getMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(pool.getMaxPerRoute());
+        connectionManager.setDefaultConnectionConfig(ConnectionConfig.custom()
+            .setTimeToLive(TimeValue.of(pool.getTimeToLive()))
+            .setValidateAfterInactivity(TimeValue.of(pool.getValidateAfterInactivity()))
+            .build());
+        if (pool.getAdaptive().isEnabled()) {
+            connectionManager.adaptive(pool);
+        }
+        return connectionManager;
+    }
 
-        RequestConfig requestConfig = RequestConfig.custom()
-            .setConnectTimeout(Timeout.ofSeconds(5))
-            .setResponseTimeout(Timeout.ofSeconds(10))
+    static RequestConfig requestConfig(PartnerMtlsProperties.Pool pool) {
+        return RequestConfig.custom()
+            .setConnectTimeout(CONNECT_TIMEOUT)
+            .setResponseTimeout(RESPONSE_TIMEOUT)
+            .setConnectionRequestTimeout(Timeout.of(pool.getLeaseTimeout()))
             .build();
+    }
+
+    private HttpClientBuilder httpClient(PoolingHttpClientConnectionManager connectionManager,
+                                         PartnerMtlsProperties.Pool pool, PartnerRetryStrategy retryStrategy) {
+        RequestConfig requestConfig = requestConfig(pool);
 
-        HttpClient httpClient = HttpClients.custom()
+        // Every connection carries the same client certificate, so pooled connections must not be keyed
+        // by the TLS principal; otherwise requests never reuse them (or the warmed ones).
+        HttpClientBuilder httpClient = HttpClients.custom()
             .setConnectionManager(connectionManager)
             .setDefaultRequestConfig(requestConfig)
-            .evictIdleConnections(TimeValue.ofSeconds(30))
-            .build();
+            .disableConnectionState()
+            .evictIdleConnections(TimeValue.ofSeconds(30));
 
-        return new HttpComponentsClientHttpRequestFactory(httpClient);
+        // Retries run inside the client, below the interceptors: the circuit breaker and request timer see one call.
+        if (properties.getResilience().getRetry().isEnabled()) {
+            httpClient.setRetryStrategy(retryStrategy)
+                .addExecInterceptorBefore(ChainElement.RETRY.name(), "partner-retry-budget", retryStrategy);
+        } else {
+            httpClient.disableAutomaticRetries();
+        }
+        return httpClient;
     }
 
-    private ClientHttpRequestInterceptor handshakeLoggingInterceptor() {
+    private ClientHttpRequestInterceptor requestMetricsInterceptor() {
+        return (request, body, execution) -> {
+            long start = System.nanoTime();
+            String outcome = "IO_ERROR";
+            try {
+                ClientHttpResponse response = execution.execute(request, body);
+                outcome = Integer.toString(response.getStatusCode().value());
+                status.roundTripCompleted(route(request.getURI()), response.getStatusCode().value());
+                return response;
+            } finally {
+                Timer.builder("partner.mtls.requests")
+                    .description("Partner request latency per route, excluding response body consumption")
+                    .tag("route", route(request.getURI()))
+                    .tag("method", request.getMethod().name())
+                    .tag("status", outcome)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        };
+    }
+
+    // Failures go to the ring buffer, which logs a rate-limited summary instead of a line per failed request.
+    private ClientHttpRequestInterceptor failureEventInterceptor() {
+        TlsFailureEvents failureEvents = sslContextFactory.failureEvents();
         return (request, body, execution) -> {
             try {
                 return execution.execute(request, body);
             } catch (IOException ex) {
-                Throwable root = rootCause(ex);
-                if (root instanceof SSLHandshakeException) {
-                    logger.warn("TLS handshake failed: {}", root.getMessage());
-                } else {
-                    logger.debug("Request failed: {}", root.getMessage());
-                }
+                failureEvents.requestFailed(request.getURI(), ex);
                 throw ex;
             }
         };
     }
 
-    private static Throwable rootCause(Throwable throwable) {
-        Throwable current = throwable;
-        while (current.getCause() != null) {
-            current = current.getCause();
-        }
-        return current;
+    static String route(URI uri) {
+        int port = uri.getPort() != -1 ? uri.getPort() : ("https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80);
+        return uri.getScheme() + "://" + uri.getHost() + ":" + port;
     }
 }
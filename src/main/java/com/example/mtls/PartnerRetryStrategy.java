@@ -0,0 +1,190 @@
+package com.example.mtls;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketException;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.net.ssl.SSLException;
+import org.apache.hc.client5.http.HttpRequestRetryStrategy;
+import org.apache.hc.client5.http.classic.ExecChain;
+import org.apache.hc.client5.http.classic.ExecChainHandler;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.ConnectionClosedException;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.NoHttpResponseException;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.util.TimeValue;
+
+// Retries requests that died on a connection the partner or its load balancer had already closed
+// (no response, reset, broken pipe). Also installed in front of RetryExec so each request, not each attempt,
+// earns retry budget.
+public class PartnerRetryStrategy implements HttpRequestRetryStrategy, ExecChainHandler {
+    private static final Set<String> IDEMPOTENT_METHODS = Set.of("GET", "HEAD", "OPTIONS", "TRACE", "PUT", "DELETE");
+
+    private final PartnerMtlsProperties.Retry settings;
+    private final RetryBudget budget;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final Counter retried;
+    private final Counter notIdempotent;
+    private final Counter attemptsExhausted;
+    private final Counter budgetExhausted;
+
+    public PartnerRetryStrategy(String name, PartnerMtlsProperties.Retry settings, MeterRegistry meterRegistry) {
+        this.settings = settings;
+        this.budget = new RetryBudget(settings.getBudgetRatio(), settings.getMinRetriesPerSecond());
+        this.initialBackoffNanos = settings.getInitialBackoff().toNanos();
+        this.maxBackoffNanos = settings.getMaxBackoff().toNanos();
+        this.retried = retries(meterRegistry, name, "retried");
+        this.notIdempotent = retries(meterRegistry, name, "not_idempotent");
+        this.attemptsExhausted = retries(meterRegistry, name, "attempts_exhausted");
+        this.budgetExhausted = retries(meterRegistry, name, "budget_exhausted");
+    }
+
+    @Override
+    public ClassicHttpResponse execute(ClassicHttpRequest request, ExecChain.Scope scope, ExecChain chain)
+        throws IOException, HttpException {
+        budget.deposit();
+        return chain.proceed(request, scope);
+    }
+
+    // execCount is the number of attempts made so far, starting at 1.
+    @Override
+    public boolean retryRequest(HttpRequest request, IOException exception, int execCount, HttpContext context) {
+        if (!isStaleConnectionFailure(exception)) {
+            return false;
+        }
+        if (!IDEMPOTENT_METHODS.contains(request.getMethod())
+            && !request.containsHeader(settings.getIdempotencyKeyHeader())) {
+            notIdempotent.increment();
+            return false;
+        }
+        if (execCount > settings.getMaxRetries()) {
+            attemptsExhausted.increment();
+            return false;
+        }
+        if (!budget.tryWithdraw()) {
+            budgetExhausted.increment();
+            return false;
+        }
+        retried.increment();
+        return true;
+    }
+
+    @Override
+    public boolean retryRequest(HttpResponse response, int execCount, HttpContext context) {
+        return false;
+    }
+
+    // Full jitter: uniform in [0, initial * 2^(n-1)] capped at max, so pods that lost their connections to the same
+    // load balancer drain at the same moment do not reconnect in lockstep.
+    @Override
+    public TimeValue getRetryInterval(HttpRequest request, IOException exception, int execCount, HttpContext context) {
+        long ceiling = Math.min(maxBackoffNanos, initialBackoffNanos << Math.min(execCount - 1, 20));
+        if (ceiling < 0) {
+            ceiling = maxBackoffNanos;
+        }
+        return TimeValue.of(ThreadLocalRandom.current().nextLong(ceiling + 1), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public TimeValue getRetryInterval(HttpResponse response, int execCount, HttpContext context) {
+        return TimeValue.ZERO_MILLISECONDS;
+    }
+
+    // Failures that mean the request never reached a live connection; connect failures and handshake errors are not
+    // stale connections and go straight to the caller (and the circuit breaker).
+    static boolean isStaleConnectionFailure(IOException exception) {
+        if (exception instanceof NoHttpResponseException || exception instanceof ConnectionClosedException) {
+            return true;
+        }
+        Throwable socketError = exception instanceof SSLException ? exception.getCause() : exception;
+        return socketError instanceof SocketException && !(socketError instanceof ConnectException)
+            && !(socketError instanceof NoRouteToHostException);
+    }
+
+    RetryBudget budget() {
+        return budget;
+    }
+
+    private static Counter retries(MeterRegistry meterRegistry, String name, String outcome) {
+        return Counter.builder("partner.mtls.retries")
+            .description("Partner requests that failed on a stale connection, by retry decision")
+            .tag("httpclient", name)
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    // Token bucket in thousandths of a retry: every request deposits ratio tokens, the floor refills
+    // minPerSecond tokens a second, and the balance is capped at ten seconds of the floor.
+    static final class RetryBudget {
+        private static final long TOKEN = 1000;
+        private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+        private static final long REFILL_HORIZON_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+        private final long deposit;
+        private final long refillPerSecond;
+        private final long capacity;
+        private final AtomicLong balance;
+        private final AtomicLong refilledAt = new AtomicLong(System.nanoTime());
+
+        RetryBudget(double ratio, int minPerSecond) {
+            this.deposit = Math.round(ratio * TOKEN);
+            this.refillPerSecond = minPerSecond * TOKEN;
+            this.capacity = Math.max(refillPerSecond * 10, TOKEN);
+            this.balance = new AtomicLong(capacity);
+        }
+
+        void deposit() {
+            // A full bucket is the steady state, and a plain read keeps the per-request cost off the CAS path.
+            if (deposit > 0 && balance.get() < capacity) {
+                add(deposit);
+            }
+        }
+
+        boolean tryWithdraw() {
+            refill();
+            long current;
+            do {
+                current = balance.get();
+                if (current < TOKEN) {
+                    return false;
+                }
+            } while (!balance.compareAndSet(current, current - TOKEN));
+            return true;
+        }
+
+        long available() {
+            refill();
+            return balance.get() / TOKEN;
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            long last = refilledAt.get();
+            long earned = Math.min(now - last, REFILL_HORIZON_NANOS) * refillPerSecond / NANOS_PER_SECOND;
+            if (earned > 0 && refilledAt.compareAndSet(last, now)) {
+                add(earned);
+            }
+        }
+
+        private void add(long amount) {
+            long current;
+            do {
+                current = balance.get();
+                if (current >= capacity) {
+                    return;
+                }
+            } while (!balance.compareAndSet(current, Math.min(capacity, current + amount)));
+        }
+    }
+}
@@ -1,15 +1,31 @@
 package com.example.mtls;
 
+import jakarta.annotation.PreDestroy;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import java.security.GeneralSecurityException;
 import java.security.KeyStore;
 import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
 import java.util.Arrays;
-import javax.net.ssl.KeyManagerFactory;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.net.ssl.KeyManager;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509ExtendedKeyManager;
+import javax.net.ssl.X509ExtendedTrustManager;
 import javax.net.ssl.X509TrustManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,31 +34,138 @@ import org.springframework.stereotype.Component;
 @Component
 public class PartnerSslContextFactory {
     private static final Logger logger = LoggerFactory.getLogger(PartnerSslContextFactory.class);
+    private static final String[] CLIENT_KEY_TYPES = { "EC", "RSA", "EdDSA", "RSASSA-PSS" };
 
     private final PartnerMtlsProperties properties;
+    // Key material, trust material and session cache of the default context, swapped as one on reload.
+    private final AtomicReference<Material> current = new AtomicReference<>();
+    // Parsed stores shared by partner contexts; keyed by file version so a rotated file is parsed again.
+    private final Map<StoreSource, X509ExtendedKeyManager> sharedKeyManagers = new ConcurrentHashMap<>();
+    private final Map<StoreSource, X509TrustManager> sharedTrustManagers = new ConcurrentHashMap<>();
+    private RevocationCache revocationCache;
+    private final TlsFailureEvents failureEvents;
 
     public PartnerSslContextFactory(PartnerMtlsProperties properties) {
         this.properties = properties;
+        this.failureEvents = new TlsFailureEvents(properties.getFailureEvents());
     }
 
     public SSLContext build() throws GeneralSecurityException, IOException {
         PartnerMtlsProperties.ServerValidation validation = properties.getServerValidation();
-        KeyStore clientKeyStore = KeyStoreLoader.load(Path.of(properties.getClientKeystorePath()),
-            properties.getClientKeystoreType(), properties.getClientKeystorePassword());
-
-        KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
-        keyManagerFactory.init(clientKeyStore, properties.getClientKeystorePassword().toCharArray());
+        reload();
+        logger.info("SSLContext initialized for outbound mTLS using mode {}", validation.getMode());
+        return new ReloadingSslContext(() -> current.get().sslContext());
+    }
 
-        TrustManager[] trustManagers = buildTrustManagers(validation);
+    public SSLContext build(String name, PartnerMtlsProperties.Partner partner)
+        throws GeneralSecurityException, IOException {
+        PartnerMtlsProperties.ServerValidation validation = partner.getServerValidation();
+        StoreSource keyStoreSource = keyStoreSource(partner);
+        X509ExtendedKeyManager partnerKeyManager = sharedKeyManagers.get(keyStoreSource);
+        if (partnerKeyManager == null) {
+            partnerKeyManager = buildKeyManager(keyStoreSource);
+            sharedKeyManagers.keySet().removeIf(keyStoreSource::supersedes);
+            sharedKeyManagers.put(keyStoreSource, partnerKeyManager);
+        }
+        // Like the key file, the default alias is only inherited together with the default keystore.
+        String alias = partner.getClientAlias() != null ? partner.getClientAlias()
+            : partner.getClientKeystorePath() == null ? properties.getClientAlias() : null;
+        if (alias != null && partnerKeyManager instanceof AliasSelectingX509KeyManager selecting) {
+            partnerKeyManager = selecting.withDefaultAlias(alias, "partners." + name + ".client-alias");
+        }
 
         SSLContext sslContext = SSLContext.getInstance("TLS");
-        sslContext.init(keyManagerFactory.getKeyManagers(), trustManagers, new SecureRandom());
+        sslContext.init(new KeyManager[] { partnerKeyManager },
+            new TrustManager[] { partnerTrustManager(validation) }, new SecureRandom());
+        configureSessionCache(sslContext.getClientSessionContext(), properties.getSession());
 
-        logger.info("SSLContext initialized for outbound mTLS using mode {}", validation.getMode());
+        logger.info("SSLContext initialized for partner {} using mode {}", name, validation.getMode());
         return sslContext;
     }
 
-    private TrustManager[] buildTrustManagers(PartnerMtlsProperties.ServerValidation validation)
+    public void retainSharedMaterial(Collection<PartnerMtlsProperties.Partner> activePartners) {
+        Set<Path> inUse = activePartners.stream()
+            .flatMap(partner -> materialFiles(partner).stream())
+            .collect(Collectors.toSet());
+        sharedKeyManagers.keySet().removeIf(source -> !inUse.contains(source.path()));
+        sharedTrustManagers.keySet().removeIf(source -> !inUse.contains(source.path()));
+    }
+
+    // Absolute paths of the files a partner context is built from, inherited defaults included.
+    public Set<Path> materialFiles(PartnerMtlsProperties.Partner partner) {
+        StoreSource keyStore = keyStoreSource(partner);
+        PartnerMtlsProperties.ServerValidation validation = partner.getServerValidation();
+        return Stream.of(keyStore.path(), keyStore.keyPath(),
+                validation.getMode() == PartnerMtlsProperties.ServerValidationMode.TRUSTSTORE
+                    ? Path.of(validation.getTruststorePath()).toAbsolutePath() : null)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toSet());
+    }
+
+    int sharedMaterialCount() {
+        return sharedKeyManagers.size() + sharedTrustManagers.size();
+    }
+
+    public void reload() throws GeneralSecurityException, IOException {
+        X509ExtendedKeyManager newKeyManager = buildKeyManager();
+        X509TrustManager newTrustManager = buildTrustManager(properties.getServerValidation());
+
+        // A new context rather than new managers behind the old one: TLS 1.3 tickets received on connections
+        // still using the previous identity would otherwise keep it alive in the shared session cache.
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(new KeyManager[] { newKeyManager }, new TrustManager[] { newTrustManager },
+            new SecureRandom());
+        configureSessionCache(sslContext.getClientSessionContext(), properties.getSession());
+        current.set(new Material(sslContext, leafCertificate(newKeyManager)));
+    }
+
+    public TlsFailureEvents failureEvents() {
+        return failureEvents;
+    }
+
+    // Soonest-expiring leaf the default context can present to partners; null until the first build.
+    public X509Certificate clientCertificate() {
+        Material material = current.get();
+        return material != null ? material.clientCertificate() : null;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (revocationCache != null) {
+            revocationCache.close();
+        }
+    }
+
+    private static void configureSessionCache(SSLSessionContext sessionContext, PartnerMtlsProperties.Session session) {
+        sessionContext.setSessionCacheSize(session.getCacheSize());
+        sessionContext.setSessionTimeout((int) Math.min(session.getTimeout().toSeconds(), Integer.MAX_VALUE));
+        logger.debug("Client session cache configured: size {}, timeout {}s",
+            sessionContext.getSessionCacheSize(), sessionContext.getSessionTimeout());
+    }
+
+    private X509ExtendedKeyManager buildKeyManager() throws GeneralSecurityException, IOException {
+        String keyPath = properties.getClientKeyPath();
+        return buildKeyManager(new StoreSource(Path.of(properties.getClientKeystorePath()),
+            keyPath != null ? Path.of(keyPath) : null, properties.getClientKeystoreType(),
+            properties.getClientKeystorePassword(), null), properties.getClientAliases(), properties.getClientAlias());
+    }
+
+    // Partner contexts share the parsed store and pick their alias afterwards (see build(name, partner)).
+    private X509ExtendedKeyManager buildKeyManager(StoreSource source) throws GeneralSecurityException, IOException {
+        return buildKeyManager(source, Map.of(), null);
+    }
+
+    private X509ExtendedKeyManager buildKeyManager(StoreSource source, Map<String, String> hostAliases,
+                                                   String defaultAlias) throws GeneralSecurityException, IOException {
+        if (PemKeyMaterial.isPem(source.type())) {
+            return PemKeyMaterial.keyManager(source.path(), source.keyPath());
+        }
+        KeyStore clientKeyStore = KeyStoreLoader.load(source.path(), source.type(), source.password());
+        return AliasSelectingX509KeyManager.load(clientKeyStore, source.password().toCharArray(),
+            hostAliases, defaultAlias, source.path().toString());
+    }
+
+    private X509TrustManager buildTrustManager(PartnerMtlsProperties.ServerValidation validation)
         throws GeneralSecurityException, IOException {
         if (validation.getMode() == PartnerMtlsProperties.ServerValidationMode.TRUSTSTORE) {
             KeyStore trustStore = KeyStoreLoader.load(Path.of(validation.getTruststorePath()),
@@ -50,25 +173,121 @@ public class PartnerSslContextFactory {
             TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
             tmf.init(trustStore);
             logger.debug("Truststore loaded from {}", validation.getTruststorePath());
-            return tmf.getTrustManagers();
+            X509TrustManager trustStoreManager = firstX509TrustManager(tmf);
+            PartnerMtlsProperties.Revocation revocation = properties.getRevocation();
+            if (revocation.isEnabled() && trustStoreManager instanceof X509ExtendedTrustManager extended) {
+                logger.debug("Using cached OCSP/CRL revocation checking");
+                return new RevocationCheckingX509TrustManager(extended, trustStore, revocationCache(),
+                    revocation.isSoftFail());
+            }
+            return trustStoreManager;
         }
 
         TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
         tmf.init((KeyStore) null);
-        X509TrustManager baseTrustManager = Arrays.stream(tmf.getTrustManagers())
-            .filter(X509TrustManager.class::isInstance)
-            .map(X509TrustManager.class::cast)
-            .findFirst()
-            .orElseThrow(() -> new IllegalStateException("No X509TrustManager available"));
+        X509TrustManager baseTrustManager = firstX509TrustManager(tmf);
 
         if (validation.getMode() == PartnerMtlsProperties.ServerValidationMode.PIN_FINGERPRINT) {
             logger.debug("Using fingerprint pinning validation");
-            return new TrustManager[] { new PinningX509TrustManager(baseTrustManager,
-                validation.getMode(), validation.getPinnedCertSha256Hex()) };
+            return new PinningX509TrustManager(baseTrustManager,
+                validation.getMode(), PartnerMtlsProperties.pins(validation.getPinnedCertSha256Hex()), failureEvents);
         }
 
         logger.debug("Using SPKI pinning validation");
-        return new TrustManager[] { new PinningX509TrustManager(baseTrustManager,
-            validation.getMode(), validation.getPinnedSpkiSha256Base64()) };
+        return new PinningX509TrustManager(baseTrustManager,
+            validation.getMode(), PartnerMtlsProperties.pins(validation.getPinnedSpkiSha256Base64()), failureEvents);
+    }
+
+    private X509TrustManager partnerTrustManager(PartnerMtlsProperties.ServerValidation validation)
+        throws GeneralSecurityException, IOException {
+        if (validation.getMode() != PartnerMtlsProperties.ServerValidationMode.TRUSTSTORE) {
+            // Pinning managers are cheap and hold per-partner pins; only the stores they wrap are worth sharing.
+            return buildTrustManager(validation);
+        }
+        StoreSource source = versioned(Path.of(validation.getTruststorePath()), null, validation.getTruststoreType(),
+            validation.getTruststorePassword());
+        X509TrustManager shared = sharedTrustManagers.get(source);
+        if (shared == null) {
+            shared = buildTrustManager(validation);
+            sharedTrustManagers.keySet().removeIf(source::supersedes);
+            sharedTrustManagers.put(source, shared);
+        }
+        return shared;
+    }
+
+    private synchronized RevocationCache revocationCache() {
+        if (revocationCache == null) {
+            revocationCache = new RevocationCache(properties.getRevocation());
+        }
+        return revocationCache;
+    }
+
+    private StoreSource keyStoreSource(PartnerMtlsProperties.Partner partner) {
+        String path = partner.getClientKeystorePath() != null
+            ? partner.getClientKeystorePath() : properties.getClientKeystorePath();
+        String type = partner.getClientKeystoreType() != null
+            ? partner.getClientKeystoreType() : properties.getClientKeystoreType();
+        String password = partner.getClientKeystorePassword() != null
+            ? partner.getClientKeystorePassword() : properties.getClientKeystorePassword();
+        // A partner with its own certificate file does not inherit the default key file.
+        String keyPath = partner.getClientKeyPath() != null ? partner.getClientKeyPath()
+            : partner.getClientKeystorePath() == null ? properties.getClientKeyPath() : null;
+        return versioned(Path.of(path), keyPath != null ? Path.of(keyPath) : null, type, password);
+    }
+
+    private static StoreSource versioned(Path path, Path keyPath, String type, String password) {
+        Path absolute = path.toAbsolutePath();
+        Path absoluteKey = keyPath != null ? keyPath.toAbsolutePath() : null;
+        FileTime modified = modified(absolute);
+        FileTime keyModified = absoluteKey != null ? modified(absoluteKey) : null;
+        if (keyModified != null && (modified == null || keyModified.compareTo(modified) > 0)) {
+            modified = keyModified;
+        }
+        return new StoreSource(absolute, absoluteKey, type, password, modified);
+    }
+
+    private static FileTime modified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    // With several aliases configured, the one expiring first is what needs renewing first.
+    private static X509Certificate leafCertificate(X509ExtendedKeyManager keyManager) {
+        if (keyManager instanceof AliasSelectingX509KeyManager selecting) {
+            return selecting.presentableCertificates().stream()
+                .min(Comparator.comparing(X509Certificate::getNotAfter))
+                .orElse(null);
+        }
+        for (String keyType : CLIENT_KEY_TYPES) {
+            String[] aliases = keyManager.getClientAliases(keyType, null);
+            if (aliases != null && aliases.length > 0) {
+                X509Certificate[] chain = keyManager.getCertificateChain(aliases[0]);
+                if (chain != null && chain.length > 0) {
+                    return chain[0];
+                }
+            }
+        }
+        return null;
+    }
+
+    private static X509TrustManager firstX509TrustManager(TrustManagerFactory tmf) {
+        return Arrays.stream(tmf.getTrustManagers())
+            .filter(X509TrustManager.class::isInstance)
+            .map(X509TrustManager.class::cast)
+            .findFirst()
+            .orElseThrow(() -> new IllegalStateException("No X509TrustManager available"));
+    }
+
+    private record Material(SSLContext sslContext, X509Certificate clientCertificate) {
+    }
+
+    // For PEM key material, path is the certificate chain and keyPath the PKCS#8 key (null: same file).
+    private record StoreSource(Path path, Path keyPath, String type, String password, FileTime modified) {
+        boolean supersedes(StoreSource other) {
+            return path.equals(other.path) && !equals(other);
+        }
     }
 }
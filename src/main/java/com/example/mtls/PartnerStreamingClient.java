@@ -0,0 +1,230 @@
+package com.example.mtls;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.io.entity.AbstractHttpEntity;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.UnknownHttpStatusCodeException;
+
+// RestTemplate interceptors buffer request bodies and String/byte[] converters buffer responses; large partner
+// transfers go through the pooled HttpClient directly instead, one pooled buffer at a time. The TLS socket streams
+// work on byte[], so a heap buffer is the only copy between them and the target. Each transfer holds an in-flight
+// permit from the partner's resilience interceptor until its body is done, like a RestTemplate response does.
+public class PartnerStreamingClient implements Closeable {
+    private static final int ERROR_BODY_LIMIT = 4096;
+
+    private final CloseableHttpClient httpClient;
+    private final PartnerResilienceInterceptor resilience;
+    private final TlsFailureEvents failureEvents;
+    private final ByteArrayPool buffers;
+    private final MeterRegistry meterRegistry;
+
+    public PartnerStreamingClient(CloseableHttpClient httpClient, PartnerResilienceInterceptor resilience,
+                                  TlsFailureEvents failureEvents, PartnerMtlsProperties.Streaming streaming,
+                                  MeterRegistry meterRegistry) {
+        this.httpClient = httpClient;
+        this.resilience = resilience;
+        this.failureEvents = failureEvents;
+        this.buffers = new ByteArrayPool((int) streaming.getBufferSize().toBytes(), streaming.getMaxPooledBuffers());
+        this.meterRegistry = meterRegistry;
+    }
+
+    public long download(URI uri, OutputStream target) throws IOException {
+        long start = System.nanoTime();
+        String outcome = "IO_ERROR";
+        long transferred = 0;
+        try (PartnerResilienceInterceptor.Admission admission = resilience.admit();
+             ClassicHttpResponse response = httpClient.executeOpen(null,
+                 new HttpUriRequestBase(HttpMethod.GET.name(), uri), null)) {
+            outcome = Integer.toString(response.getCode());
+            admission.completed(response.getCode() >= 500);
+            requireSuccess(response);
+            HttpEntity entity = response.getEntity();
+            if (entity != null) {
+                try (InputStream content = entity.getContent()) {
+                    transferred = copy(content, target);
+                }
+            }
+            return transferred;
+        } catch (IOException ex) {
+            failureEvents.requestFailed(uri, ex);
+            throw ex;
+        } finally {
+            record(uri, "download", outcome, transferred, System.nanoTime() - start);
+        }
+    }
+
+    public long download(URI uri, WritableByteChannel target) throws IOException {
+        return download(uri, Channels.newOutputStream(target));
+    }
+
+    public long download(URI uri, Path target) throws IOException {
+        try (OutputStream out = Files.newOutputStream(target)) {
+            return download(uri, out);
+        }
+    }
+
+    public int upload(HttpMethod method, URI uri, Path source, MediaType contentType) throws IOException {
+        try (InputStream in = Files.newInputStream(source)) {
+            return upload(method, uri, new StreamEntity(in, Files.size(source), contentType));
+        }
+    }
+
+    // A negative length sends the body chunked.
+    public int upload(HttpMethod method, URI uri, InputStream source, long length, MediaType contentType)
+        throws IOException {
+        return upload(method, uri, new StreamEntity(source, length, contentType));
+    }
+
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+    }
+
+    ByteArrayPool buffers() {
+        return buffers;
+    }
+
+    private int upload(HttpMethod method, URI uri, StreamEntity entity) throws IOException {
+        long start = System.nanoTime();
+        String outcome = "IO_ERROR";
+        HttpUriRequestBase request = new HttpUriRequestBase(method.name(), uri);
+        request.setEntity(entity);
+        try (PartnerResilienceInterceptor.Admission admission = resilience.admit();
+             ClassicHttpResponse response = httpClient.executeOpen(null, request, null)) {
+            outcome = Integer.toString(response.getCode());
+            admission.completed(response.getCode() >= 500);
+            requireSuccess(response);
+            EntityUtils.consume(response.getEntity());
+            return response.getCode();
+        } catch (IOException ex) {
+            failureEvents.requestFailed(uri, ex);
+            throw ex;
+        } finally {
+            record(uri, "upload", outcome, entity.transferred, System.nanoTime() - start);
+        }
+    }
+
+    private long copy(InputStream source, OutputStream target) throws IOException {
+        byte[] buffer = buffers.acquire();
+        long transferred = 0;
+        try {
+            int read;
+            while ((read = source.read(buffer)) >= 0) {
+                target.write(buffer, 0, read);
+                transferred += read;
+            }
+            return transferred;
+        } finally {
+            buffers.release(buffer);
+        }
+    }
+
+    private static void requireSuccess(ClassicHttpResponse response) throws IOException {
+        int code = response.getCode();
+        if (code >= 200 && code < 300) {
+            return;
+        }
+        HttpHeaders headers = new HttpHeaders();
+        for (Header header : response.getHeaders()) {
+            headers.add(header.getName(), header.getValue());
+        }
+        byte[] body = new byte[0];
+        if (response.getEntity() != null) {
+            try (InputStream content = response.getEntity().getContent()) {
+                body = content.readNBytes(ERROR_BODY_LIMIT);
+            }
+        }
+        HttpStatusCode status = HttpStatusCode.valueOf(code);
+        String reason = response.getReasonPhrase();
+        if (status.is4xxClientError()) {
+            throw HttpClientErrorException.create(status, reason, headers, body, StandardCharsets.UTF_8);
+        }
+        if (status.is5xxServerError()) {
+            throw HttpServerErrorException.create(status, reason, headers, body, StandardCharsets.UTF_8);
+        }
+        throw new UnknownHttpStatusCodeException(code, reason, headers, body, StandardCharsets.UTF_8);
+    }
+
+    private void record(URI uri, String direction, String outcome, long bytes, long nanos) {
+        Timer.builder("partner.mtls.transfers")
+            .description("Streamed partner transfers, including the body")
+            .tag("route", PartnerRestTemplateConfig.route(uri))
+            .tag("direction", direction)
+            .tag("status", outcome)
+            .register(meterRegistry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+        Counter.builder("partner.mtls.transfer.bytes")
+            .description("Bytes streamed to or from partners")
+            .baseUnit("bytes")
+            .tag("route", PartnerRestTemplateConfig.route(uri))
+            .tag("direction", direction)
+            .register(meterRegistry)
+            .increment(bytes);
+    }
+
+    private final class StreamEntity extends AbstractHttpEntity {
+        private final InputStream source;
+        private final long length;
+        private long transferred;
+
+        private StreamEntity(InputStream source, long length, MediaType contentType) {
+            super(contentType != null ? contentType.toString() : null, null, length < 0);
+            this.source = source;
+            this.length = length;
+        }
+
+        @Override
+        public long getContentLength() {
+            return length;
+        }
+
+        @Override
+        public InputStream getContent() {
+            return source;
+        }
+
+        @Override
+        public void writeTo(OutputStream outStream) throws IOException {
+            transferred = copy(source, outStream);
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return false;
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            source.close();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.mtls;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyStore;
+import java.security.Principal;
+import java.security.PrivateKey;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.X509ExtendedKeyManager;
+
+// Builds key and trust material straight from mounted PEM files (certificate chains, CA bundles and unencrypted
+// PKCS#8 keys), so pods need neither a keytool step nor PKCS12 PBE decryption at startup.
+public final class PemKeyMaterial {
+    public static final String TYPE = "PEM";
+    private static final String ALIAS = "client";
+    private static final Pattern BLOCK = Pattern.compile("-----BEGIN ([A-Z0-9 ]+)-----([^-]*)-----END \\1-----");
+    private static final String[] KEY_ALGORITHMS = { "EC", "RSA", "EdDSA", "RSASSA-PSS" };
+
+    private PemKeyMaterial() {
+    }
+
+    public static boolean isPem(String type) {
+        return TYPE.equalsIgnoreCase(type);
+    }
+
+    public static KeyStore trustStore(Path path) throws IOException, GeneralSecurityException {
+        List<X509Certificate> certificates = certificates(path);
+        if (certificates.isEmpty()) {
+            throw new GeneralSecurityException("No CERTIFICATE block in " + path);
+        }
+        // Certificate entries are stored as is; only key entries pay for PKCS12 encryption.
+        KeyStore trustStore = KeyStore.getInstance("PKCS12");
+        trustStore.load(null, null);
+        for (int i = 0; i < certificates.size(); i++) {
+            trustStore.setCertificateEntry("ca-" + i, certificates.get(i));
+        }
+        return trustStore;
+    }
+
+    // The key may sit in the certificate file itself (keyPath null) or, as in a kubernetes.io/tls Secret, next to it.
+    public static X509ExtendedKeyManager keyManager(Path certificatePath, Path keyPath)
+        throws IOException, GeneralSecurityException {
+        List<X509Certificate> chain = certificates(certificatePath);
+        if (chain.isEmpty()) {
+            throw new GeneralSecurityException("No CERTIFICATE block in " + certificatePath);
+        }
+        PrivateKey privateKey = privateKey(keyPath != null ? keyPath : certificatePath);
+        return new SingleKeyManager(privateKey, chain.toArray(new X509Certificate[0]));
+    }
+
+    static List<X509Certificate> certificates(Path path) throws IOException, GeneralSecurityException {
+        CertificateFactory certificateFactory = CertificateFactory.getInstance("X.509");
+        List<X509Certificate> certificates = new ArrayList<>();
+        for (Block block : blocks(path)) {
+            if (block.label().equals("CERTIFICATE")) {
+                certificates.add((X509Certificate) certificateFactory.generateCertificate(
+                    new ByteArrayInputStream(block.der())));
+            }
+        }
+        return certificates;
+    }
+
+    static PrivateKey privateKey(Path path) throws IOException, GeneralSecurityException {
+        for (Block block : blocks(path)) {
+            switch (block.label()) {
+                case "PRIVATE KEY":
+                    return pkcs8(block.der(), path);
+                case "ENCRYPTED PRIVATE KEY":
+                case "RSA PRIVATE KEY":
+                case "EC PRIVATE KEY":
+                    throw new GeneralSecurityException(path + " holds a " + block.label()
+                        + "; convert it with: openssl pkcs8 -topk8 -nocrypt");
+                default:
+                    break;
+            }
+        }
+        throw new GeneralSecurityException("No PRIVATE KEY block in " + path);
+    }
+
+    private static PrivateKey pkcs8(byte[] der, Path path) throws GeneralSecurityException {
+        PKCS8EncodedKeySpec spec = new PKCS8EncodedKeySpec(der);
+        for (String algorithm : KEY_ALGORITHMS) {
+            try {
+                return KeyFactory.getInstance(algorithm).generatePrivate(spec);
+            } catch (InvalidKeySpecException ex) {
+                // Not this algorithm; PKCS#8 names it only by OID, so try the next factory.
+            }
+        }
+        throw new GeneralSecurityException("Unsupported private key algorithm in " + path);
+    }
+
+    private static List<Block> blocks(Path path) throws IOException {
+        Matcher matcher = BLOCK.matcher(Files.readString(path, StandardCharsets.US_ASCII));
+        List<Block> blocks = new ArrayList<>();
+        while (matcher.find()) {
+            blocks.add(new Block(matcher.group(1), Base64.getMimeDecoder().decode(matcher.group(2))));
+        }
+        return blocks;
+    }
+
+    private record Block(String label, byte[] der) {
+    }
+
+    private static final class SingleKeyManager extends X509ExtendedKeyManager {
+        private final PrivateKey privateKey;
+        private final X509Certificate[] chain;
+
+        private SingleKeyManager(PrivateKey privateKey, X509Certificate[] chain) {
+            this.privateKey = privateKey;
+            this.chain = chain;
+        }
+
+        @Override
+        public String[] getClientAliases(String keyType, Principal[] issuers) {
+            return matches(keyType) ? new String[] { ALIAS } : null;
+        }
+
+        @Override
+        public String chooseClientAlias(String[] keyTypes, Principal[] issuers, Socket socket) {
+            return keyTypes != null && Arrays.stream(keyTypes).anyMatch(this::matches) ? ALIAS : null;
+        }
+
+        @Override
+        public String chooseEngineClientAlias(String[] keyTypes, Principal[] issuers, SSLEngine engine) {
+            return chooseClientAlias(keyTypes, issuers, null);
+        }
+
+        @Override
+        public String[] getServerAliases(String keyType, Principal[] issuers) {
+            return null;
+        }
+
+        @Override
+        public String chooseServerAlias(String keyType, Principal[] issuers, Socket socket) {
+            return null;
+        }
+
+        @Override
+        public X509Certificate[] getCertificateChain(String alias) {
+            return ALIAS.equals(alias) ? chain.clone() : null;
+        }
+
+        @Override
+        public PrivateKey getPrivateKey(String alias) {
+            return ALIAS.equals(alias) ? privateKey : null;
+        }
+
+        private boolean matches(String keyType) {
+            String algorithm = privateKey.getAlgorithm();
+            return algorithm.equals(keyType) || ("EdDSA".equals(algorithm) && keyType.startsWith("Ed"))
+                || ("RSASSA-PSS".equals(keyType) && "RSA".equals(algorithm));
+        }
+    }
+}
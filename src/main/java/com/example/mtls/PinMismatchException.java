@@ -0,0 +1,11 @@
+package com.example.mtls;
+
+import java.security.cert.CertificateException;
+
+public class PinMismatchException extends CertificateException {
+    private static final long serialVersionUID = 1L;
+
+    public PinMismatchException(String message) {
+        super(message);
+    }
+}
@@ -7,6 +7,10 @@ import java.security.cert.X509Certificate;
 import java.util.Base64;
 
 public final class PinningUtils {
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final int SHA256_LENGTH = 32;
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(PinningUtils::newSha256);
+
     private PinningUtils() {
     }
 
@@ -14,21 +18,49 @@ public final class PinningUtils {
         if (input == null) {
             return null;
         }
-        return input.replace(":", "")
-            .replace(" ", "")
-            .replace("\t", "")
-            .replace("\n", "")
-            .replace("\r", "")
-            .toLowerCase();
+        StringBuilder builder = new StringBuilder(input.length());
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (c != ':' && c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                builder.append(Character.toLowerCase(c));
+            }
+        }
+        return builder.toString();
+    }
+
+    public static byte[] decodeHexFingerprint(String input) {
+        String normalized = normalizeHexFingerprint(input);
+        if (normalized == null || normalized.length() != SHA256_LENGTH * 2) {
+            throw new IllegalArgumentException("SHA-256 fingerprint must have 64 hex digits");
+        }
+        byte[] bytes = new byte[SHA256_LENGTH];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(normalized.charAt(i * 2), 16);
+            int low = Character.digit(normalized.charAt(i * 2 + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new IllegalArgumentException("SHA-256 fingerprint contains a non-hex character");
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+
+    public static byte[] decodeSpkiPin(String input) {
+        byte[] bytes = Base64.getDecoder().decode(input.trim());
+        if (bytes.length != SHA256_LENGTH) {
+            throw new IllegalArgumentException("SPKI pin must be the Base64 of a SHA-256 digest");
+        }
+        return bytes;
     }
 
     public static String sha256Hex(byte[] data) {
         byte[] digest = sha256(data);
-        StringBuilder builder = new StringBuilder(digest.length * 2);
-        for (byte b : digest) {
-            builder.append(String.format("%02x", b));
+        char[] hex = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0x0f];
+            hex[i * 2 + 1] = HEX_DIGITS[digest[i] & 0x0f];
         }
-        return builder.toString();
+        return new String(hex);
     }
 
     public static String sha256Base64(byte[] data) {
@@ -43,10 +75,15 @@ public final class PinningUtils {
         return sha256Base64(certificate.getPublicKey().getEncoded());
     }
 
-    private static byte[] sha256(byte[] data) {
+    static byte[] sha256(byte[] data) {
+        MessageDigest digest = SHA256.get();
+        digest.reset();
+        return digest.digest(data);
+    }
+
+    private static MessageDigest newSha256() {
         try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            return digest.digest(data);
+            return MessageDigest.getInstance("SHA-256");
         } catch (NoSuchAlgorithmException e) {
             throw new IllegalStateException("SHA-256 not available", e);
         }
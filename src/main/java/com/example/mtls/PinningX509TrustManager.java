@@ -1,23 +1,53 @@
 package com.example.mtls;
 
+import java.security.MessageDigest;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class PinningX509TrustManager implements javax.net.ssl.X509TrustManager {
-    private static final Logger logger = LoggerFactory.getLogger(PinningX509TrustManager.class);
+    private static final int MAX_VERIFIED_LEAVES = 64;
 
     private final javax.net.ssl.X509TrustManager delegate;
     private final PartnerMtlsProperties.ServerValidationMode mode;
-    private final String expectedPin;
+    private final byte[][] expectedPins;
+    private final TlsFailureEvents failureEvents;
+    // Keyed by X509Certificate equality (full DER comparison), so a cached leaf is byte-identical to a pinned one.
+    private final Set<X509Certificate> verifiedLeaves = ConcurrentHashMap.newKeySet();
 
     public PinningX509TrustManager(javax.net.ssl.X509TrustManager delegate,
                                   PartnerMtlsProperties.ServerValidationMode mode,
                                   String expectedPin) {
+        this(delegate, mode, expectedPin != null ? List.of(expectedPin) : List.of());
+    }
+
+    public PinningX509TrustManager(javax.net.ssl.X509TrustManager delegate,
+                                  PartnerMtlsProperties.ServerValidationMode mode,
+                                  Collection<String> expectedPins) {
+        this(delegate, mode, expectedPins, TlsFailureEvents.NONE);
+    }
+
+    public PinningX509TrustManager(javax.net.ssl.X509TrustManager delegate,
+                                  PartnerMtlsProperties.ServerValidationMode mode,
+                                  Collection<String> expectedPins, TlsFailureEvents failureEvents) {
         this.delegate = delegate;
         this.mode = mode;
-        this.expectedPin = expectedPin;
+        this.failureEvents = failureEvents;
+        if (mode == PartnerMtlsProperties.ServerValidationMode.TRUSTSTORE) {
+            this.expectedPins = new byte[0][];
+            return;
+        }
+        if (expectedPins.isEmpty()) {
+            throw new IllegalArgumentException("At least one pin is required for mode " + mode);
+        }
+        this.expectedPins = expectedPins.stream()
+            .map(pin -> mode == PartnerMtlsProperties.ServerValidationMode.PIN_FINGERPRINT
+                ? PinningUtils.decodeHexFingerprint(pin)
+                : PinningUtils.decodeSpkiPin(pin))
+            .toArray(byte[][]::new);
     }
 
     @Override
@@ -27,29 +57,47 @@ public class PinningX509TrustManager implements javax.net.ssl.X509TrustManager {
 
     @Override
     public void checkServerTrusted(X509Certificate[] chain, String authType) throws CertificateException {
-        delegate.checkServerTrusted(chain, authType);
+        try {
+            delegate.checkServerTrusted(chain, authType);
+        } catch (CertificateException ex) {
+            failureEvents.untrustedChain(chain != null && chain.length > 0 ? chain[0] : null, ex);
+            throw ex;
+        }
         if (chain == null || chain.length == 0) {
             throw new CertificateException("Server certificate chain is empty");
         }
         X509Certificate leaf = chain[0];
-        if (mode == PartnerMtlsProperties.ServerValidationMode.PIN_FINGERPRINT) {
-            String actual = PinningUtils.normalizeHexFingerprint(PinningUtils.certificateFingerprintSha256Hex(leaf));
-            String expectedNormalized = PinningUtils.normalizeHexFingerprint(expectedPin);
-            if (!actual.equals(expectedNormalized)) {
-                logger.warn("Server certificate pin mismatch (PIN_FINGERPRINT)");
-                throw new CertificateException("Server certificate fingerprint pin mismatch");
-            }
-        } else if (mode == PartnerMtlsProperties.ServerValidationMode.PIN_SPKI) {
-            String actual = PinningUtils.certificateSpkiSha256Base64(leaf);
-            if (!actual.equals(expectedPin)) {
-                logger.warn("Server certificate pin mismatch (PIN_SPKI)");
-                throw new CertificateException("Server certificate SPKI pin mismatch");
-            }
+        if (mode == PartnerMtlsProperties.ServerValidationMode.TRUSTSTORE || verifiedLeaves.contains(leaf)) {
+            return;
+        }
+        boolean fingerprint = mode == PartnerMtlsProperties.ServerValidationMode.PIN_FINGERPRINT;
+        byte[] actual = PinningUtils.sha256(fingerprint ? leaf.getEncoded() : leaf.getPublicKey().getEncoded());
+        if (!matchesAnyPin(actual)) {
+            // Logged as a rate-limited summary by the failure events, not once per rejected handshake.
+            failureEvents.pinMismatch(leaf, mode, expectedPins, actual);
+            throw new PinMismatchException(fingerprint ? "Server certificate fingerprint pin mismatch"
+                : "Server certificate SPKI pin mismatch");
         }
+        remember(leaf);
     }
 
     @Override
     public X509Certificate[] getAcceptedIssuers() {
         return delegate.getAcceptedIssuers();
     }
+
+    private boolean matchesAnyPin(byte[] actual) {
+        boolean matched = false;
+        for (byte[] expected : expectedPins) {
+            matched |= MessageDigest.isEqual(expected, actual);
+        }
+        return matched;
+    }
+
+    private void remember(X509Certificate leaf) {
+        if (verifiedLeaves.size() >= MAX_VERIFIED_LEAVES) {
+            verifiedLeaves.clear();
+        }
+        verifiedLeaves.add(leaf);
+    }
 }
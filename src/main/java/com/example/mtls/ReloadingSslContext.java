@@ -0,0 +1,141 @@
+package com.example.mtls;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.security.KeyManagementException;
+import java.security.SecureRandom;
+import java.util.function.Supplier;
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLContextSpi;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+
+// Forwards every socket and engine to the context current at that moment. A reload publishes a whole new context,
+// so key material, trust material and the session cache change together and no session from before is resumed.
+public class ReloadingSslContext extends SSLContext {
+    ReloadingSslContext(Supplier<SSLContext> current) {
+        super(new Spi(current), current.get().getProvider(), current.get().getProtocol());
+    }
+
+    private static final class Spi extends SSLContextSpi {
+        private final Supplier<SSLContext> current;
+        private final SSLSocketFactory socketFactory;
+
+        Spi(Supplier<SSLContext> current) {
+            this.current = current;
+            this.socketFactory = new ReloadingSocketFactory(current);
+        }
+
+        @Override
+        protected void engineInit(KeyManager[] keyManagers, TrustManager[] trustManagers, SecureRandom random)
+            throws KeyManagementException {
+            throw new KeyManagementException("Reloading SSLContext is initialized by PartnerSslContextFactory");
+        }
+
+        @Override
+        protected SSLSocketFactory engineGetSocketFactory() {
+            return socketFactory;
+        }
+
+        @Override
+        protected SSLServerSocketFactory engineGetServerSocketFactory() {
+            return current.get().getServerSocketFactory();
+        }
+
+        @Override
+        protected SSLEngine engineCreateSSLEngine() {
+            return current.get().createSSLEngine();
+        }
+
+        @Override
+        protected SSLEngine engineCreateSSLEngine(String host, int port) {
+            return current.get().createSSLEngine(host, port);
+        }
+
+        @Override
+        protected SSLSessionContext engineGetServerSessionContext() {
+            return current.get().getServerSessionContext();
+        }
+
+        @Override
+        protected SSLSessionContext engineGetClientSessionContext() {
+            return current.get().getClientSessionContext();
+        }
+
+        @Override
+        protected SSLParameters engineGetDefaultSSLParameters() {
+            return current.get().getDefaultSSLParameters();
+        }
+
+        @Override
+        protected SSLParameters engineGetSupportedSSLParameters() {
+            return current.get().getSupportedSSLParameters();
+        }
+    }
+
+    // SSLConnectionSocketFactory keeps the socket factory it was built with, so the lookup has to happen per socket.
+    private static final class ReloadingSocketFactory extends SSLSocketFactory {
+        private final Supplier<SSLContext> current;
+
+        ReloadingSocketFactory(Supplier<SSLContext> current) {
+            this.current = current;
+        }
+
+        @Override
+        public String[] getDefaultCipherSuites() {
+            return delegate().getDefaultCipherSuites();
+        }
+
+        @Override
+        public String[] getSupportedCipherSuites() {
+            return delegate().getSupportedCipherSuites();
+        }
+
+        @Override
+        public Socket createSocket() throws IOException {
+            return delegate().createSocket();
+        }
+
+        @Override
+        public Socket createSocket(Socket socket, String host, int port, boolean autoClose) throws IOException {
+            return delegate().createSocket(socket, host, port, autoClose);
+        }
+
+        @Override
+        public Socket createSocket(Socket socket, InputStream consumed, boolean autoClose) throws IOException {
+            return delegate().createSocket(socket, consumed, autoClose);
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            return delegate().createSocket(host, port);
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+            return delegate().createSocket(host, port, localHost, localPort);
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) throws IOException {
+            return delegate().createSocket(host, port);
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort)
+            throws IOException {
+            return delegate().createSocket(address, port, localAddress, localPort);
+        }
+
+        private SSLSocketFactory delegate() {
+            return current.get().getSocketFactory();
+        }
+    }
+}
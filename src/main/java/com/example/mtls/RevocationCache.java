@@ -0,0 +1,349 @@
+package com.example.mtls;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.PublicKey;
+import java.security.cert.CRLException;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509CRL;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.security.auth.x500.X500Principal;
+import org.bouncycastle.asn1.ASN1IA5String;
+import org.bouncycastle.asn1.x509.AccessDescription;
+import org.bouncycastle.asn1.x509.AuthorityInformationAccess;
+import org.bouncycastle.asn1.x509.CRLDistPoint;
+import org.bouncycastle.asn1.x509.DistributionPoint;
+import org.bouncycastle.asn1.x509.DistributionPointName;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.CertificateID;
+import org.bouncycastle.cert.ocsp.OCSPException;
+import org.bouncycastle.cert.ocsp.OCSPReqBuilder;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.bouncycastle.cert.ocsp.SingleResp;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class RevocationCache implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(RevocationCache.class);
+    private static final Duration MIN_REFRESH_DELAY = Duration.ofSeconds(1);
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(30);
+    // The JDK accepts an OCSP response without nextUpdate only up to its clock skew past thisUpdate.
+    private static final Duration OCSP_CLOCK_SKEW = Duration.ofMinutes(15);
+
+    private final PartnerMtlsProperties.Revocation settings;
+    private final HttpClient httpClient;
+    private final ScheduledExecutorService refresher;
+    private final Map<Object, Slot> slots = new ConcurrentHashMap<>();
+
+    public RevocationCache(PartnerMtlsProperties.Revocation settings) {
+        this.settings = settings;
+        this.httpClient = HttpClient.newBuilder()
+            .connectTimeout(settings.getResponderTimeout())
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+        this.refresher = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().daemon().name("mtls-revocation-refresher").factory());
+    }
+
+    // Cached OCSP responses are keyed by issuer and serial; a miss is the only time a handshake waits on a responder.
+    // The issuer's key is part of it, as in the OCSP CertID, so a CA re-keyed under the same name starts afresh.
+    byte[] ocspResponse(X509Certificate certificate, X509Certificate issuer) throws IOException {
+        URI responder = ocspResponder(certificate);
+        if (responder == null) {
+            return null;
+        }
+        OcspKey key = new OcspKey(issuer.getSubjectX500Principal(), issuer.getPublicKey(),
+            certificate.getSerialNumber());
+        return (byte[]) lookup(key, () -> fetchOcsp(responder, certificate, issuer));
+    }
+
+    X509CRL crl(X509Certificate certificate) throws IOException {
+        URI distributionPoint = crlDistributionPoint(certificate);
+        if (distributionPoint == null) {
+            return null;
+        }
+        return (X509CRL) lookup(distributionPoint, () -> fetchCrl(distributionPoint));
+    }
+
+    int size() {
+        return slots.size();
+    }
+
+    @Override
+    public void close() {
+        refresher.shutdownNow();
+        httpClient.close();
+    }
+
+    private Object lookup(Object key, Fetcher fetcher) throws IOException {
+        Slot slot = slots.get(key);
+        if (slot == null) {
+            evictIfFull();
+            slot = slots.computeIfAbsent(key, k -> new Slot(k, fetcher));
+        }
+        slot.used = true;
+        Fetched current = slot.current;
+        if (current != null && current.isFresh(Instant.now())) {
+            return current.value();
+        }
+        synchronized (slot) {
+            current = slot.current;
+            if (current == null || !current.isFresh(Instant.now())) {
+                Failure failure = slot.failure;
+                if (failure != null && Instant.now().isBefore(failure.retryAt())) {
+                    // The source just failed; fail this handshake now instead of waiting out another timeout.
+                    throw new IOException("Revocation source for " + slot.key + " failed recently: "
+                        + failure.cause().getMessage(), failure.cause());
+                }
+                current = slot.fetch();
+            }
+            return current.value();
+        }
+    }
+
+    private void refresh(Slot slot) {
+        if (slots.get(slot.key) != slot) {
+            return;
+        }
+        if (!slot.used) {
+            // Nobody asked for this status since the last fetch; stop polling the responder for it.
+            slots.remove(slot.key, slot);
+            return;
+        }
+        slot.used = false;
+        try {
+            synchronized (slot) {
+                slot.fetch();
+            }
+        } catch (IOException | RuntimeException ex) {
+            slot.used = true;
+            Fetched current = slot.current;
+            if (current != null && current.isFresh(Instant.now().plus(RETRY_DELAY))) {
+                logger.warn("Revocation refresh for {} failed, retrying in {}: {}", slot.key, RETRY_DELAY,
+                    ex.getMessage());
+                schedule(slot, RETRY_DELAY);
+            } else {
+                logger.warn("Revocation refresh for {} failed, next handshake fetches it again: {}", slot.key,
+                    ex.getMessage());
+            }
+        }
+    }
+
+    // A slot keeps at most one pending refresh; a fetch on the handshake path replaces the one it makes redundant.
+    private void schedule(Slot slot, Duration delay) {
+        if (refresher.isShutdown()) {
+            return;
+        }
+        synchronized (slot) {
+            if (slot.refresh != null) {
+                slot.refresh.cancel(false);
+            }
+            slot.refresh = refresher.schedule(() -> refresh(slot), delay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void evictIfFull() {
+        if (slots.size() < settings.getMaxEntries()) {
+            return;
+        }
+        Instant now = Instant.now();
+        slots.values().removeIf(slot -> slot.current == null || !slot.current.isFresh(now));
+        Iterator<Object> keys = slots.keySet().iterator();
+        while (slots.size() >= settings.getMaxEntries() && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    private Fetched fetchOcsp(URI responder, X509Certificate certificate, X509Certificate issuer) throws IOException {
+        try {
+            CertificateID id = new CertificateID(
+                new JcaDigestCalculatorProviderBuilder().build().get(CertificateID.HASH_SHA1),
+                new JcaX509CertificateHolder(issuer), certificate.getSerialNumber());
+            // No nonce: responders pre-sign responses, and the response is meant to be reused until nextUpdate.
+            byte[] body = send(HttpRequest.newBuilder(responder)
+                .header("Content-Type", "application/ocsp-request")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(new OCSPReqBuilder().addRequest(id).build().getEncoded())));
+            OCSPResp response = new OCSPResp(body);
+            if (response.getStatus() != OCSPResp.SUCCESSFUL) {
+                throw new IOException("OCSP responder " + responder + " returned status " + response.getStatus());
+            }
+            BasicOCSPResp basic = (BasicOCSPResp) response.getResponseObject();
+            for (SingleResp single : basic.getResponses()) {
+                if (single.getCertID().equals(id)) {
+                    logger.debug("OCSP response for serial {} from {} valid until {}",
+                        certificate.getSerialNumber().toString(16), responder, single.getNextUpdate());
+                    return fetched(body, single.getNextUpdate() != null
+                        ? single.getNextUpdate().toInstant()
+                        : earliest(single.getThisUpdate().toInstant().plus(OCSP_CLOCK_SKEW), defaultExpiry()));
+                }
+            }
+            throw new IOException("OCSP response from " + responder + " does not cover the requested certificate");
+        } catch (OCSPException | OperatorCreationException | CertificateEncodingException ex) {
+            throw new IOException("Invalid OCSP exchange with " + responder, ex);
+        }
+    }
+
+    private Fetched fetchCrl(URI distributionPoint) throws IOException {
+        byte[] body = send(HttpRequest.newBuilder(distributionPoint).GET());
+        try {
+            X509CRL crl = (X509CRL) CertificateFactory.getInstance("X.509")
+                .generateCRL(new ByteArrayInputStream(body));
+            logger.debug("CRL from {} valid until {}", distributionPoint, crl.getNextUpdate());
+            return fetched(crl, crl.getNextUpdate() != null ? crl.getNextUpdate().toInstant() : defaultExpiry());
+        } catch (CertificateException | CRLException ex) {
+            throw new IOException("Invalid CRL from " + distributionPoint, ex);
+        }
+    }
+
+    private byte[] send(HttpRequest.Builder request) throws IOException {
+        HttpRequest built = request.timeout(settings.getResponderTimeout()).build();
+        try {
+            HttpResponse<byte[]> response = httpClient.send(built, HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() != 200) {
+                throw new IOException(built.uri() + " returned HTTP " + response.statusCode());
+            }
+            return response.body();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while fetching " + built.uri(), ex);
+        }
+    }
+
+    private Instant defaultExpiry() {
+        return Instant.now().plus(settings.getDefaultTtl());
+    }
+
+    private static Instant earliest(Instant first, Instant second) {
+        return first.isBefore(second) ? first : second;
+    }
+
+    private Fetched fetched(Object value, Instant expiresAt) {
+        Duration lifetime = Duration.between(Instant.now(), expiresAt);
+        // Refresh at three quarters of the remaining validity so handshakes keep hitting a fresh entry.
+        Duration refreshDelay = lifetime.multipliedBy(3).dividedBy(4);
+        return new Fetched(value, expiresAt,
+            refreshDelay.compareTo(MIN_REFRESH_DELAY) > 0 ? refreshDelay : MIN_REFRESH_DELAY);
+    }
+
+    static URI ocspResponder(X509Certificate certificate) throws IOException {
+        byte[] extension = certificate.getExtensionValue(Extension.authorityInfoAccess.getId());
+        if (extension == null) {
+            return null;
+        }
+        AuthorityInformationAccess access = AuthorityInformationAccess.getInstance(
+            JcaX509ExtensionUtils.parseExtensionValue(extension));
+        for (AccessDescription description : access.getAccessDescriptions()) {
+            if (AccessDescription.id_ad_ocsp.equals(description.getAccessMethod())) {
+                URI uri = httpUri(description.getAccessLocation());
+                if (uri != null) {
+                    return uri;
+                }
+            }
+        }
+        return null;
+    }
+
+    static URI crlDistributionPoint(X509Certificate certificate) throws IOException {
+        byte[] extension = certificate.getExtensionValue(Extension.cRLDistributionPoints.getId());
+        if (extension == null) {
+            return null;
+        }
+        CRLDistPoint points = CRLDistPoint.getInstance(JcaX509ExtensionUtils.parseExtensionValue(extension));
+        for (DistributionPoint point : points.getDistributionPoints()) {
+            DistributionPointName name = point.getDistributionPoint();
+            if (name == null || name.getType() != DistributionPointName.FULL_NAME) {
+                continue;
+            }
+            for (GeneralName generalName : GeneralNames.getInstance(name.getName()).getNames()) {
+                URI uri = httpUri(generalName);
+                if (uri != null) {
+                    return uri;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static URI httpUri(GeneralName name) {
+        if (name.getTagNo() != GeneralName.uniformResourceIdentifier) {
+            return null;
+        }
+        String value = ASN1IA5String.getInstance(name.getName()).getString();
+        return value.startsWith("http://") || value.startsWith("https://") ? URI.create(value) : null;
+    }
+
+    @FunctionalInterface
+    private interface Fetcher {
+        Fetched fetch() throws IOException;
+    }
+
+    private record OcspKey(X500Principal issuer, PublicKey issuerKey, BigInteger serial) {
+        @Override
+        public String toString() {
+            return "OCSP " + issuer.getName() + " serial " + serial.toString(16);
+        }
+    }
+
+    private record Failure(IOException cause, Instant retryAt) {
+    }
+
+    private record Fetched(Object value, Instant expiresAt, Duration refreshDelay) {
+        boolean isFresh(Instant now) {
+            return now.isBefore(expiresAt);
+        }
+    }
+
+    private final class Slot {
+        private final Object key;
+        private final Fetcher fetcher;
+        private volatile Fetched current;
+        private volatile Failure failure;
+        private volatile boolean used;
+        private ScheduledFuture<?> refresh;
+
+        private Slot(Object key, Fetcher fetcher) {
+            this.key = key;
+            this.fetcher = fetcher;
+        }
+
+        // Callers hold the slot monitor, so concurrent misses for one certificate share a single fetch.
+        Fetched fetch() throws IOException {
+            Fetched fetched;
+            try {
+                fetched = fetcher.fetch();
+            } catch (IOException ex) {
+                failure = new Failure(ex, Instant.now().plus(settings.getFailureTtl()));
+                throw ex;
+            }
+            failure = null;
+            current = fetched;
+            schedule(this, fetched.refreshDelay());
+            return fetched;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.mtls;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.cert.CertPath;
+import java.security.cert.CertPathValidator;
+import java.security.cert.CertPathValidatorException;
+import java.security.cert.CertStore;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.CollectionCertStoreParameters;
+import java.security.cert.PKIXParameters;
+import java.security.cert.PKIXReason;
+import java.security.cert.PKIXRevocationChecker;
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509CRL;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.net.ssl.ExtendedSSLSession;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.X509ExtendedTrustManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class RevocationCheckingX509TrustManager extends X509ExtendedTrustManager {
+    private static final Logger logger = LoggerFactory.getLogger(RevocationCheckingX509TrustManager.class);
+
+    private final X509ExtendedTrustManager delegate;
+    private final Set<TrustAnchor> trustAnchors;
+    private final Set<X509Certificate> anchorCertificates;
+    private final RevocationCache revocationCache;
+    private final boolean softFail;
+
+    public RevocationCheckingX509TrustManager(X509ExtendedTrustManager delegate, KeyStore trustStore,
+                                              RevocationCache revocationCache, boolean softFail)
+        throws KeyStoreException, InvalidAlgorithmParameterException {
+        this.delegate = delegate;
+        this.trustAnchors = new PKIXParameters(trustStore).getTrustAnchors();
+        this.anchorCertificates = trustAnchors.stream().map(TrustAnchor::getTrustedCert).collect(Collectors.toSet());
+        this.revocationCache = revocationCache;
+        this.softFail = softFail;
+    }
+
+    @Override
+    public void checkClientTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+        delegate.checkClientTrusted(chain, authType);
+    }
+
+    @Override
+    public void checkClientTrusted(X509Certificate[] chain, String authType, Socket socket)
+        throws CertificateException {
+        delegate.checkClientTrusted(chain, authType, socket);
+    }
+
+    @Override
+    public void checkClientTrusted(X509Certificate[] chain, String authType, SSLEngine engine)
+        throws CertificateException {
+        delegate.checkClientTrusted(chain, authType, engine);
+    }
+
+    @Override
+    public void checkServerTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+        delegate.checkServerTrusted(chain, authType);
+        checkRevocation(chain, List.of());
+    }
+
+    @Override
+    public void checkServerTrusted(X509Certificate[] chain, String authType, Socket socket)
+        throws CertificateException {
+        delegate.checkServerTrusted(chain, authType, socket);
+        checkRevocation(chain, socket instanceof SSLSocket sslSocket
+            ? stapledResponses(sslSocket.getHandshakeSession()) : List.of());
+    }
+
+    @Override
+    public void checkServerTrusted(X509Certificate[] chain, String authType, SSLEngine engine)
+        throws CertificateException {
+        delegate.checkServerTrusted(chain, authType, engine);
+        checkRevocation(chain, engine != null ? stapledResponses(engine.getHandshakeSession()) : List.of());
+    }
+
+    @Override
+    public X509Certificate[] getAcceptedIssuers() {
+        return delegate.getAcceptedIssuers();
+    }
+
+    // Only the partner's leaf is checked: it is the certificate that rotates and gets revoked in practice,
+    // and intermediates would add a responder round trip per chain element on a cold cache.
+    void checkRevocation(X509Certificate[] chain, List<byte[]> stapledResponses) throws CertificateException {
+        List<X509Certificate> path = pathWithoutAnchors(chain);
+        if (path.isEmpty()) {
+            return;
+        }
+        X509Certificate leaf = path.get(0);
+        X509Certificate issuer = issuerOf(leaf, path);
+        if (issuer == null) {
+            undetermined(leaf, "issuer certificate not available", null);
+            return;
+        }
+
+        byte[] ocspResponse = !stapledResponses.isEmpty() && stapledResponses.get(0).length > 0
+            ? stapledResponses.get(0) : null;
+        X509CRL crl = null;
+        try {
+            if (ocspResponse == null) {
+                ocspResponse = revocationCache.ocspResponse(leaf, issuer);
+            }
+            if (ocspResponse == null) {
+                crl = revocationCache.crl(leaf);
+            }
+        } catch (IOException ex) {
+            undetermined(leaf, "revocation source unreachable", ex);
+            return;
+        }
+        if (ocspResponse == null && crl == null) {
+            undetermined(leaf, "certificate has no OCSP responder or CRL distribution point", null);
+            return;
+        }
+
+        try {
+            validate(path, ocspResponse, crl);
+        } catch (CertPathValidatorException ex) {
+            if (ex.getReason() == CertPathValidatorException.BasicReason.REVOKED) {
+                logger.warn("Partner certificate {} is revoked", leaf.getSubjectX500Principal());
+                throw new CertificateException("Partner certificate is revoked", ex);
+            }
+            if (ex.getReason() == PKIXReason.NO_TRUST_ANCHOR) {
+                throw new CertificateException("Partner certificate path does not chain to the truststore", ex);
+            }
+            undetermined(leaf, "revocation status could not be verified", ex);
+        } catch (GeneralSecurityException ex) {
+            undetermined(leaf, "revocation check failed", ex);
+        }
+    }
+
+    private void validate(List<X509Certificate> path, byte[] ocspResponse, X509CRL crl)
+        throws GeneralSecurityException {
+        CertPathValidator validator = CertPathValidator.getInstance("PKIX");
+        PKIXRevocationChecker checker = (PKIXRevocationChecker) validator.getRevocationChecker();
+        // NO_FALLBACK keeps the JDK from contacting responders itself: it only sees what the cache supplies.
+        EnumSet<PKIXRevocationChecker.Option> options = EnumSet.of(
+            PKIXRevocationChecker.Option.ONLY_END_ENTITY, PKIXRevocationChecker.Option.NO_FALLBACK);
+        if (ocspResponse != null) {
+            checker.setOcspResponses(Map.of(path.get(0), ocspResponse));
+        } else {
+            options.add(PKIXRevocationChecker.Option.PREFER_CRLS);
+        }
+        checker.setOptions(options);
+
+        PKIXParameters parameters = new PKIXParameters(trustAnchors);
+        parameters.addCertPathChecker(checker);
+        if (crl != null) {
+            parameters.addCertStore(CertStore.getInstance("Collection", new CollectionCertStoreParameters(List.of(crl))));
+        }
+        CertPath certPath = CertificateFactory.getInstance("X.509").generateCertPath(path);
+        validator.validate(certPath, parameters);
+    }
+
+    private void undetermined(X509Certificate leaf, String reason, Exception cause) throws CertificateException {
+        if (softFail) {
+            logger.warn("Revocation status of {} unknown ({}); allowing because soft-fail is enabled{}",
+                leaf.getSubjectX500Principal(), reason, cause != null ? ": " + cause.getMessage() : "");
+            return;
+        }
+        throw new CertificateException("Revocation status of partner certificate unknown: " + reason, cause);
+    }
+
+    private List<X509Certificate> pathWithoutAnchors(X509Certificate[] chain) {
+        List<X509Certificate> path = new ArrayList<>(chain.length);
+        for (X509Certificate certificate : chain) {
+            if (anchorCertificates.contains(certificate)) {
+                break;
+            }
+            path.add(certificate);
+        }
+        return path;
+    }
+
+    private X509Certificate issuerOf(X509Certificate leaf, List<X509Certificate> path) {
+        if (path.size() > 1) {
+            return path.get(1);
+        }
+        return anchorCertificates.stream()
+            .filter(anchor -> anchor.getSubjectX500Principal().equals(leaf.getIssuerX500Principal()))
+            .findFirst()
+            .orElse(null);
+    }
+
+    private static List<byte[]> stapledResponses(SSLSession session) {
+        return session instanceof ExtendedSSLSession extendedSession ? extendedSession.getStatusResponses() : List.of();
+    }
+}
@@ -0,0 +1,280 @@
+package com.example.mtls;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.net.ssl.SSLHandshakeException;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Fixed-size ring of recent TLS and partner request failures. Recording claims a slot with one atomic increment
+// and stores references the failure already produced (certificate, digests, exception, URI), so a failure storm
+// allocates nothing here; text is only built when the ring is dumped or a periodic summary is logged.
+public class TlsFailureEvents {
+    private static final Logger logger = LoggerFactory.getLogger(TlsFailureEvents.class);
+    private static final String ALERT_PREFIX = "Received fatal alert: ";
+    // values() clones its array on every call, so the counter layout is computed once.
+    private static final int SOURCES = Source.values().length;
+    private static final int KINDS = Kind.values().length;
+    // Slot sequence while a writer fills the slot, and before the first write.
+    private static final long WRITING = -1;
+    private static final long EMPTY = -2;
+    private static final VarHandle SLOT_SEQUENCE;
+    static final TlsFailureEvents NONE = new TlsFailureEvents(0, Duration.ZERO);
+
+    static {
+        try {
+            SLOT_SEQUENCE = MethodHandles.lookup().findVarHandle(Slot.class, "sequence", long.class);
+        } catch (ReflectiveOperationException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+    private final long summaryIntervalMillis;
+    private final AtomicLong sequence = new AtomicLong();
+    // Per source and kind: events since the last summary, and since startup.
+    private final AtomicLongArray pending = new AtomicLongArray(SOURCES * KINDS);
+    private final AtomicLongArray totals = new AtomicLongArray(SOURCES * KINDS);
+    private final AtomicLong nextSummaryAt = new AtomicLong();
+
+    public TlsFailureEvents(PartnerMtlsProperties.FailureEvents settings) {
+        this(settings.getCapacity(), settings.getLogInterval());
+    }
+
+    TlsFailureEvents(int capacity, Duration summaryInterval) {
+        // Rounded up to a power of two so a slot index is a mask, not a division.
+        this.slots = new Slot[capacity <= 1 ? Math.max(capacity, 0) : Integer.highestOneBit(capacity - 1) << 1];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new Slot();
+        }
+        this.mask = slots.length - 1;
+        this.summaryIntervalMillis = summaryInterval.toMillis();
+    }
+
+    public enum Source {
+        TRUST_MANAGER, REQUEST
+    }
+
+    public enum Kind {
+        PIN_MISMATCH("pin_mismatch"),
+        UNTRUSTED_CERTIFICATE("untrusted_certificate"),
+        HOSTNAME_MISMATCH("hostname_mismatch"),
+        TIMEOUT("timeout"),
+        HANDSHAKE("handshake"),
+        IO("io");
+
+        private final String tag;
+
+        Kind(String tag) {
+            this.tag = tag;
+        }
+
+        public String tag() {
+            return tag;
+        }
+
+        static Kind of(Throwable throwable) {
+            for (Throwable current = throwable; current != null; current = current.getCause()) {
+                if (current instanceof PinMismatchException) {
+                    return PIN_MISMATCH;
+                }
+            }
+            for (Throwable current = throwable; current != null; current = current.getCause()) {
+                if (current instanceof CertificateException) {
+                    return UNTRUSTED_CERTIFICATE;
+                }
+                if (current instanceof SocketTimeoutException) {
+                    return TIMEOUT;
+                }
+            }
+            if (throwable instanceof SSLPeerUnverifiedException) {
+                return HOSTNAME_MISMATCH;
+            }
+            return throwable instanceof SSLHandshakeException ? HANDSHAKE : IO;
+        }
+    }
+
+    void pinMismatch(X509Certificate leaf, PartnerMtlsProperties.ServerValidationMode mode, byte[][] expected,
+                     byte[] actual) {
+        record(Source.TRUST_MANAGER, Kind.PIN_MISMATCH, null, leaf, mode, expected, actual, null);
+    }
+
+    void untrustedChain(X509Certificate leaf, CertificateException error) {
+        record(Source.TRUST_MANAGER, Kind.of(error), null, leaf, null, null, null, error);
+    }
+
+    void requestFailed(URI target, Throwable error) {
+        record(Source.REQUEST, Kind.of(error), target, null, null, null, null, rootCause(error));
+    }
+
+    private void record(Source source, Kind kind, URI target, X509Certificate leaf,
+                        PartnerMtlsProperties.ServerValidationMode mode, byte[][] expected, byte[] actual,
+                        Throwable error) {
+        if (slots.length == 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long seq = sequence.getAndIncrement();
+        Slot slot = slots[(int) (seq & mask)];
+        // Seqlock: readers discard a slot that is being written or changed while they read it. Once the ring wraps,
+        // two writers can land on one slot; only one may own it, and a slot never goes back to an older event.
+        long previous = slot.sequence;
+        if (previous != WRITING && previous < seq && SLOT_SEQUENCE.compareAndSet(slot, previous, WRITING)) {
+            VarHandle.storeStoreFence();
+        } else {
+            // Still counted and logged, just not kept in the ring.
+            slot = new Slot();
+        }
+        slot.epochMillis = now;
+        slot.source = source;
+        slot.kind = kind;
+        slot.target = target;
+        slot.leaf = leaf;
+        slot.mode = mode;
+        slot.expected = expected;
+        slot.actual = actual;
+        slot.error = error;
+        slot.sequence = seq;
+
+        int counter = source.ordinal() * KINDS + kind.ordinal();
+        pending.incrementAndGet(counter);
+        totals.incrementAndGet(counter);
+        long next = nextSummaryAt.get();
+        if (now >= next && nextSummaryAt.compareAndSet(next, now + summaryIntervalMillis)) {
+            // After a quiet interval the first failure is logged on its own; during a storm, one line per interval.
+            logSummary(now - next < summaryIntervalMillis, slot);
+        }
+    }
+
+    // Newest first; slots overwritten mid-read are skipped rather than reported torn.
+    public List<Event> recent() {
+        List<Event> events = new ArrayList<>();
+        long last = sequence.get() - 1;
+        for (long seq = last; seq >= 0 && seq > last - slots.length; seq--) {
+            Slot slot = slots[(int) (seq & mask)];
+            if (slot.sequence != seq) {
+                continue;
+            }
+            Event event = slot.toEvent();
+            VarHandle.acquireFence();
+            if (slot.sequence == seq) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    public Map<String, Map<String, Long>> totals() {
+        return counts(totals, false);
+    }
+
+    private void logSummary(boolean storm, Slot latest) {
+        Map<String, Map<String, Long>> counts = counts(pending, true);
+        Event event = latest.toEvent();
+        if (storm) {
+            logger.warn("TLS failures in the last {}s: {}; latest: {}", summaryIntervalMillis / 1000, counts, event);
+        } else {
+            logger.warn("TLS failure: {} (further failures summarized every {}s, details at /actuator/tlsfailures)",
+                event, summaryIntervalMillis / 1000);
+        }
+    }
+
+    private static Map<String, Map<String, Long>> counts(AtomicLongArray counters, boolean reset) {
+        Map<String, Map<String, Long>> counts = new LinkedHashMap<>();
+        for (Source source : Source.values()) {
+            for (Kind kind : Kind.values()) {
+                int index = source.ordinal() * KINDS + kind.ordinal();
+                long count = reset ? counters.getAndSet(index, 0) : counters.get(index);
+                if (count > 0) {
+                    counts.computeIfAbsent(source.name().toLowerCase(), key -> new LinkedHashMap<>())
+                        .put(kind.tag(), count);
+                }
+            }
+        }
+        return counts;
+    }
+
+    private static Throwable rootCause(Throwable throwable) {
+        Throwable current = throwable;
+        while (current.getCause() != null && current.getCause() != current) {
+            current = current.getCause();
+        }
+        return current;
+    }
+
+    public record Event(Instant at, Source source, String kind, String target, String subject, String alert,
+                        String error, String pinMode, List<String> expectedPins, String actualPin) {
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder(kind);
+            if (target != null) {
+                text.append(" to ").append(target);
+            }
+            if (subject != null) {
+                text.append(" subject=").append(subject);
+            }
+            if (alert != null) {
+                text.append(" alert=").append(alert);
+            } else if (error != null) {
+                text.append(" error=").append(error);
+            }
+            if (actualPin != null) {
+                text.append(" pin=").append(actualPin).append(" expected=").append(expectedPins);
+            }
+            return text.toString();
+        }
+    }
+
+    private static final class Slot {
+        private volatile long sequence = EMPTY;
+        private long epochMillis;
+        private Source source;
+        private Kind kind;
+        private URI target;
+        private X509Certificate leaf;
+        private PartnerMtlsProperties.ServerValidationMode mode;
+        private byte[][] expected;
+        private byte[] actual;
+        private Throwable error;
+
+        private Event toEvent() {
+            String message = error != null ? error.getMessage() : null;
+            String alert = message != null && message.startsWith(ALERT_PREFIX)
+                ? message.substring(ALERT_PREFIX.length()) : null;
+            List<String> expectedPins = null;
+            if (expected != null) {
+                expectedPins = new ArrayList<>(expected.length);
+                for (byte[] pin : expected) {
+                    expectedPins.add(pin(mode, pin));
+                }
+            }
+            return new Event(Instant.ofEpochMilli(epochMillis), source, kind.tag(),
+                target != null ? PartnerRestTemplateConfig.route(target) : null,
+                leaf != null ? leaf.getSubjectX500Principal().getName() : null, alert,
+                error != null ? error.getClass().getSimpleName() + ": " + message : null,
+                mode != null ? mode.name() : null, expectedPins, actual != null ? pin(mode, actual) : null);
+        }
+
+        // Rendered the way the pins are configured: hex fingerprints, Base64 SPKI hashes.
+        private static String pin(PartnerMtlsProperties.ServerValidationMode mode, byte[] digest) {
+            return mode == PartnerMtlsProperties.ServerValidationMode.PIN_FINGERPRINT
+                ? HexFormat.of().formatHex(digest) : Base64.getEncoder().encodeToString(digest);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.mtls;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.autoconfigure.health.HealthEndpointProperties;
+import org.springframework.boot.actuate.endpoint.SecurityContext;
+import org.springframework.boot.actuate.endpoint.Show;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+// Events carry partner routes, certificate subjects and pins, so they follow the health endpoint's show-details and
+// roles; totals are always shown, like the health status.
+@Component
+@Endpoint(id = "tlsfailures")
+public class TlsFailuresEndpoint {
+    private final TlsFailureEvents failureEvents;
+    private final Show showEvents;
+    private final Set<String> roles;
+
+    public TlsFailuresEndpoint(PartnerSslContextFactory sslContextFactory,
+                               ObjectProvider<HealthEndpointProperties> healthProperties) {
+        this.failureEvents = sslContextFactory.failureEvents();
+        HealthEndpointProperties health = healthProperties.getIfAvailable();
+        this.showEvents = health != null && health.getShowDetails() != null
+            ? health.getShowDetails() : Show.WHEN_AUTHORIZED;
+        this.roles = health != null ? health.getRoles() : Set.of();
+    }
+
+    @ReadOperation
+    public Report failures(SecurityContext securityContext) {
+        return new Report(failureEvents.totals(),
+            showEvents.isShown(securityContext, roles) ? failureEvents.recent() : null);
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Report(Map<String, Map<String, Long>> totals, List<TlsFailureEvents.Event> events) {
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.mtls;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.client5.http.io.LeaseRequest;
+import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactory;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class AdaptivePoolControllerTest {
+    private static final HttpRoute ROUTE = new HttpRoute(new HttpHost("https", "partner.example", 443), null, true);
+    private static final Timeout LEASE_TIMEOUT = Timeout.ofSeconds(1);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PartnerMtlsProperties.Pool pool = new PartnerMtlsProperties.Pool();
+    private InstrumentedConnectionManager connectionManager;
+
+    @BeforeEach
+    void setUp() {
+        pool.setMaxTotal(16);
+        pool.setMaxPerRoute(16);
+        // Ticks are driven by the test.
+        pool.getAdaptive().setInterval(Duration.ofHours(1));
+        connectionManager = new InstrumentedConnectionManager("acme", SSLConnectionSocketFactory.getSocketFactory(),
+            meterRegistry);
+        connectionManager.setMaxTotal(pool.getMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(pool.getMaxPerRoute());
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionManager.close();
+    }
+
+    @Test
+    void shrinksIdleRoutesMultiplicativelyDownToTheFloor() throws Exception {
+        AdaptivePoolController controller = connectionManager.adaptive(pool);
+        release(lease(1));
+
+        controller.adjust();
+        assertThat(connectionManager.getMaxPerRoute(ROUTE)).isEqualTo(12);
+        for (int i = 0; i < 10; i++) {
+            controller.adjust();
+        }
+
+        assertThat(connectionManager.getMaxPerRoute(ROUTE)).isEqualTo(pool.getAdaptive().getMinPerRoute());
+        assertThat(connectionManager.getMaxTotal()).isEqualTo(pool.getAdaptive().getMinTotal());
+        assertThat(meterRegistry.get("partner.mtls.pool.adaptive.route.max").tag("route", "https://partner.example:443")
+            .gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    void growsRoutesWhoseLeasesQueue() throws Exception {
+        AdaptivePoolController controller = connectionManager.adaptive(pool);
+        connectionManager.setMaxPerRoute(ROUTE, 2);
+        List<ConnectionEndpoint> held = lease(2);
+        LeaseRequest waiting = connectionManager.lease("waiting", ROUTE, LEASE_TIMEOUT, null);
+
+        controller.adjust();
+
+        assertThat(connectionManager.getMaxPerRoute(ROUTE)).isEqualTo(2 + pool.getAdaptive().getIncreaseStep());
+        assertThat(decisions("increase")).isEqualTo(1);
+        // The pool serves waiting leases on its next release, not when the limit changes.
+        release(held);
+        release(List.of(waiting.get(LEASE_TIMEOUT)));
+    }
+
+    @Test
+    void holdsGrowthWhileThePartnerSlowsDown() throws Exception {
+        pool.getAdaptive().setMinPerRoute(4);
+        AdaptivePoolController controller = connectionManager.adaptive(pool);
+        connectionManager.setMaxPerRoute(ROUTE, 4);
+        List<ConnectionEndpoint> fast = lease(1);
+        Thread.sleep(5);
+        release(fast);
+        controller.adjust();
+
+        List<ConnectionEndpoint> slow = lease(1);
+        Thread.sleep(100);
+        release(slow);
+        List<ConnectionEndpoint> held = lease(4);
+        LeaseRequest waiting = connectionManager.lease("waiting", ROUTE, LEASE_TIMEOUT, null);
+        controller.adjust();
+
+        assertThat(decisions("hold")).isEqualTo(1);
+        assertThat(connectionManager.getMaxPerRoute(ROUTE)).isEqualTo(4);
+        waiting.cancel();
+        release(held);
+    }
+
+    private List<ConnectionEndpoint> lease(int connections) throws Exception {
+        List<ConnectionEndpoint> endpoints = new ArrayList<>();
+        for (int i = 0; i < connections; i++) {
+            endpoints.add(connectionManager.lease("test-" + i, ROUTE, LEASE_TIMEOUT, null).get(LEASE_TIMEOUT));
+        }
+        return endpoints;
+    }
+
+    private void release(List<ConnectionEndpoint> endpoints) {
+        for (ConnectionEndpoint endpoint : endpoints) {
+            connectionManager.release(endpoint, null, TimeValue.NEG_ONE_MILLISECOND);
+        }
+    }
+
+    private double decisions(String decision) {
+        return meterRegistry.get("partner.mtls.pool.adaptive.decisions").tag("decision", decision).counter().count();
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.mtls;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Map;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.client.RestTemplate;
+
+class AliasSelectingX509KeyManagerTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void presentsTheAliasMappedToThePartnerHostAndCachesTheChoice() throws Exception {
+        KeyStore keyStore = multiAliasKeyStore();
+        AliasSelectingX509KeyManager keyManager = AliasSelectingX509KeyManager.load(keyStore,
+            LocalMtlsServer.PASSWORD.toCharArray(), Map.of("Partner-A.example", "partner-a"), "fallback", "test");
+        String keyType = keyStore.getKey("partner-a", LocalMtlsServer.PASSWORD.toCharArray()).getAlgorithm();
+
+        assertThat(keyManager.chooseEngineClientAlias(new String[] { keyType }, null, engine("partner-a.example")))
+            .isEqualTo("partner-a");
+        assertThat(keyManager.chooseEngineClientAlias(new String[] { keyType }, null, engine("partner-a.example")))
+            .isEqualTo("partner-a");
+        assertThat(keyManager.chooseEngineClientAlias(new String[] { keyType }, null, engine("partner-b.example")))
+            .isEqualTo("fallback");
+        assertThat(keyManager.chooseEngineClientAlias(new String[] { "EdDSA" }, null, engine("partner-a.example")))
+            .isNull();
+        assertThat(keyManager.cachedChoices()).isEqualTo(3);
+        assertThat(keyManager.getCertificateChain("partner-a")[0])
+            .isEqualTo(keyStore.getCertificateChain("partner-a")[0]);
+        assertThat(keyManager.getClientAliases(keyType, null)[0]).isEqualTo("fallback");
+
+        assertThatThrownBy(() -> AliasSelectingX509KeyManager.load(keyStore, LocalMtlsServer.PASSWORD.toCharArray(),
+            Map.of(), "missing", "test"))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("alias 'missing'");
+    }
+
+    @Test
+    void handshakeUsesTheMappedAliasAndFailsForUnmappedHosts() throws Exception {
+        Path keyStorePath = directory.resolve("clients.p12");
+        try (OutputStream outputStream = Files.newOutputStream(keyStorePath)) {
+            multiAliasKeyStore().store(outputStream, LocalMtlsServer.PASSWORD.toCharArray());
+        }
+        try (LocalMtlsServer server = LocalMtlsServer.start()) {
+            PartnerMtlsProperties properties = LocalMtlsServer.clientProperties();
+            properties.setClientKeystorePath(keyStorePath.toString());
+            properties.getClientAliases().put("localhost", "partner-a");
+            assertThat(call(properties, server)).contains("ok");
+
+            properties.getClientAliases().clear();
+            properties.getClientAliases().put("partner-b.example", "fallback");
+            assertThatThrownBy(() -> call(properties, server))
+                .rootCause()
+                .hasMessageContaining("No client certificate alias configured for partner host 'localhost'");
+        }
+    }
+
+    @Test
+    void reportsTheSoonestExpiringConfiguredCertificate() throws Exception {
+        KeyStore keyStore = multiAliasKeyStore();
+        KeyPair keyPair = KeyPairGenerator.getInstance("EC").generateKeyPair();
+        X509Certificate expiring = selfSigned(keyPair, Duration.ofDays(1));
+        keyStore.setKeyEntry("expiring", keyPair.getPrivate(), LocalMtlsServer.PASSWORD.toCharArray(),
+            new X509Certificate[] { expiring });
+        Path keyStorePath = directory.resolve("clients.p12");
+        try (OutputStream outputStream = Files.newOutputStream(keyStorePath)) {
+            keyStore.store(outputStream, LocalMtlsServer.PASSWORD.toCharArray());
+        }
+        PartnerMtlsProperties properties = LocalMtlsServer.clientProperties();
+        properties.setClientKeystorePath(keyStorePath.toString());
+        properties.getClientAliases().put("partner-a.example", "partner-a");
+        properties.getClientAliases().put("partner-b.example", "expiring");
+        PartnerSslContextFactory sslContextFactory = new PartnerSslContextFactory(properties);
+
+        sslContextFactory.build();
+        assertThat(sslContextFactory.clientCertificate()).isEqualTo(expiring);
+
+        properties.getClientAliases().remove("partner-b.example");
+        sslContextFactory.reload();
+        assertThat(sslContextFactory.clientCertificate()).isEqualTo(keyStore.getCertificateChain("partner-a")[0]);
+    }
+
+    // The client entry twice under other names, plus the server's key as an unrelated certificate.
+    private static KeyStore multiAliasKeyStore() throws Exception {
+        char[] password = LocalMtlsServer.PASSWORD.toCharArray();
+        KeyStore client = KeyStoreLoader.load(LocalMtlsServer.certPath("client.p12"), "PKCS12",
+            LocalMtlsServer.PASSWORD);
+        KeyStore server = KeyStoreLoader.load(LocalMtlsServer.certPath("server.p12"), "PKCS12",
+            LocalMtlsServer.PASSWORD);
+        String serverAlias = server.aliases().nextElement();
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        keyStore.load(null, null);
+        keyStore.setKeyEntry("other", server.getKey(serverAlias, password), password,
+            server.getCertificateChain(serverAlias));
+        keyStore.setKeyEntry("partner-a", client.getKey("client", password), password,
+            client.getCertificateChain("client"));
+        keyStore.setKeyEntry("fallback", client.getKey("client", password), password,
+            client.getCertificateChain("client"));
+        return keyStore;
+    }
+
+    private static X509Certificate selfSigned(KeyPair keyPair, Duration validity) throws Exception {
+        Instant now = Instant.now();
+        X500Name subject = new X500Name("CN=mtls-client-expiring");
+        JcaX509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(subject,
+            BigInteger.valueOf(now.toEpochMilli()), Date.from(now.minus(Duration.ofDays(1))),
+            Date.from(now.plus(validity)), subject, keyPair.getPublic());
+        return new JcaX509CertificateConverter()
+            .getCertificate(builder.build(new JcaContentSignerBuilder("SHA256withECDSA").build(keyPair.getPrivate())));
+    }
+
+    private static SSLEngine engine(String host) throws Exception {
+        return SSLContext.getDefault().createSSLEngine(host, 443);
+    }
+
+    private static String call(PartnerMtlsProperties properties, LocalMtlsServer server) throws Exception {
+        PartnerRestTemplateConfig config = new PartnerRestTemplateConfig(properties,
+            new PartnerSslContextFactory(properties), new SimpleMeterRegistry());
+        PoolingHttpClientConnectionManager connectionManager = config.partnerConnectionManager(
+            config.partnerSslContext());
+        try {
+            RestTemplate restTemplate = config.partnerRestTemplate(connectionManager);
+            return restTemplate.getForObject(server.uri(), String.class);
+        } finally {
+            connectionManager.close();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.mtls;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+class HedgingClientHttpRequestFactoryTest {
+    private static final URI URI = java.net.URI.create("https://partner.example/status");
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PartnerMtlsProperties.Hedging settings = new PartnerMtlsProperties.Hedging();
+
+    @Test
+    void hedgesSlowGetAndCancelsTheLoser() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch loserInterrupted = new CountDownLatch(1);
+        int slowAttempt = 21;
+        ClientHttpRequestFactory delegate = (uri, method) -> new MockClientHttpRequest(method, uri) {
+            @Override
+            protected ClientHttpResponse executeInternal() throws IOException {
+                if (attempts.incrementAndGet() == slowAttempt) {
+                    try {
+                        Thread.sleep(Duration.ofSeconds(10));
+                    } catch (InterruptedException ex) {
+                        loserInterrupted.countDown();
+                        throw new IOException("interrupted", ex);
+                    }
+                }
+                return new MockClientHttpResponse(new byte[0], HttpStatus.OK);
+            }
+        };
+        HedgingClientHttpRequestFactory factory = new HedgingClientHttpRequestFactory("acme", delegate, settings,
+            meterRegistry);
+        for (int i = 1; i < slowAttempt; i++) {
+            execute(factory, HttpMethod.GET).close();
+        }
+        assertThat(factory.hedgeDelayNanos()).isEqualTo(settings.getMinDelay().toNanos());
+
+        long start = System.nanoTime();
+        try (ClientHttpResponse response = execute(factory, HttpMethod.GET)) {
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        }
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+        assertThat(loserInterrupted.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(meterRegistry.get("partner.mtls.hedges").tag("outcome", "won").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void neverHedgesNonIdempotentMethods() throws Exception {
+        ClientHttpRequestFactory delegate = (uri, method) -> {
+            MockClientHttpRequest request = new MockClientHttpRequest(method, uri);
+            request.setResponse(new MockClientHttpResponse(new byte[0], HttpStatus.OK));
+            return request;
+        };
+        HedgingClientHttpRequestFactory factory = new HedgingClientHttpRequestFactory("acme", delegate, settings,
+            meterRegistry);
+
+        ClientHttpRequest request = factory.createRequest(URI, HttpMethod.POST);
+
+        assertThat(request).isInstanceOf(MockClientHttpRequest.class);
+    }
+
+    private static ClientHttpResponse execute(ClientHttpRequestFactory factory, HttpMethod method) throws IOException {
+        return factory.createRequest(URI, method).execute();
+    }
+}
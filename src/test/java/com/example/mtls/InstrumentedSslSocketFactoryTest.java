@@ -0,0 +1,92 @@
+package com.example.mtls;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.util.TimeValue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+class InstrumentedSslSocketFactoryTest {
+    private LocalMtlsServer server;
+    private PartnerMtlsProperties properties;
+    private PoolingHttpClientConnectionManager connectionManager;
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = LocalMtlsServer.start();
+        properties = LocalMtlsServer.clientProperties();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (connectionManager != null) {
+            connectionManager.close();
+        }
+        server.close();
+    }
+
+    @Test
+    void appliesHandshakeProfileAndRecordsNegotiatedParameters() throws Exception {
+        PartnerMtlsProperties.Handshake handshake = properties.getHandshake();
+        handshake.setProtocols(List.of("TLSv1.2"));
+        handshake.setCipherSuites(List.of("TLS_ECDHE_ECDSA_WITH_AES_128_GCM_SHA256",
+            "TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256"));
+        // A TLS 1.2 server signing with an EC certificate needs its curve among the offered groups.
+        handshake.setNamedGroups(List.of("x25519", "secp256r1"));
+        properties.validateAndLog();
+        PartnerRestTemplateConfig config = new PartnerRestTemplateConfig(properties,
+            new PartnerSslContextFactory(properties), meterRegistry);
+        connectionManager = config.partnerConnectionManager(config.partnerSslContext());
+        config.partnerRestTemplate(connectionManager).getForObject(server.uri(), String.class);
+
+        Timer handshakes = meterRegistry.get("partner.mtls.tls.handshake").tag("httpclient", "partner").timer();
+        assertThat(handshakes.getId().getTag("protocol")).isEqualTo("TLSv1.2");
+        assertThat(handshakes.getId().getTag("cipher")).endsWith("_WITH_AES_128_GCM_SHA256");
+        assertThat(handshakes.getId().getTag("peer_key")).matches("(EC|RSA)-\\d+");
+        // JUnit runs on a platform thread, so the handshake CPU time is measurable.
+        assertThat(meterRegistry.get("partner.mtls.tls.handshake.cpu").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void countsAFullHandshakeThenAResumedOne() throws Exception {
+        PartnerRestTemplateConfig config = new PartnerRestTemplateConfig(properties,
+            new PartnerSslContextFactory(properties), meterRegistry);
+        connectionManager = config.partnerConnectionManager(config.partnerSslContext());
+        RestTemplate restTemplate = config.partnerRestTemplate(connectionManager);
+
+        restTemplate.getForObject(server.uri(), String.class);
+        // The pooled connection would be reused; drop it so the second call needs a handshake of its own.
+        connectionManager.closeIdle(TimeValue.ZERO_MILLISECONDS);
+        restTemplate.getForObject(server.uri(), String.class);
+
+        assertThat(meterRegistry.get("partner.mtls.tls.session.resumption").tag("result", "miss").counter().count())
+            .isEqualTo(1);
+        assertThat(meterRegistry.get("partner.mtls.tls.session.resumption").tag("result", "hit").counter().count())
+            .isEqualTo(1);
+    }
+
+    @Test
+    void rejectsProfilesTheJvmCannotNegotiate() {
+        properties.getHandshake().setNamedGroups(List.of("x25519", "kyber768"));
+        assertThatThrownBy(properties::validateAndLog)
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("handshake.named-groups")
+            .hasMessageContaining("kyber768");
+
+        properties.getHandshake().setNamedGroups(List.of());
+        properties.getHandshake().setProtocols(List.of("TLSv1.3"));
+        properties.getHandshake().setCipherSuites(List.of("TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256"));
+        assertThatThrownBy(properties::validateAndLog)
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("handshake.cipher-suites");
+    }
+}
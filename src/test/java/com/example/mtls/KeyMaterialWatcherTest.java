@@ -0,0 +1,146 @@
+package com.example.mtls;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import javax.net.ssl.SSLContext;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.util.TimeValue;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.client.RestTemplate;
+
+class KeyMaterialWatcherTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void presentsTheRotatedCertificateOnTheNextHandshake() throws Exception {
+        Path keyStorePath = directory.resolve("client.p12");
+        Files.copy(LocalMtlsServer.certPath("client.p12"), keyStorePath);
+        PartnerMtlsProperties properties = LocalMtlsServer.clientProperties();
+        properties.setClientKeystorePath(keyStorePath.toString());
+        properties.getReload().setDebounce(Duration.ofMillis(50));
+        PartnerSslContextFactory sslContextFactory = new PartnerSslContextFactory(properties);
+        PartnerRestTemplateConfig config = new PartnerRestTemplateConfig(properties, sslContextFactory,
+            new SimpleMeterRegistry());
+        SSLContext sslContext = config.partnerSslContext();
+        PoolingHttpClientConnectionManager connectionManager = config.partnerConnectionManager(sslContext);
+        KeyMaterialWatcher watcher = new KeyMaterialWatcher(sslContextFactory,
+            new PartnerClientRegistry(properties, sslContextFactory, config), properties);
+        KeyPair keyPair = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+        X509Certificate rotated = selfSigned(keyPair);
+        try (LocalMtlsServer server = LocalMtlsServer.start(0, trustedClients(rotated))) {
+            RestTemplate restTemplate = config.partnerRestTemplate(connectionManager);
+            String before = restTemplate.getForObject(server.uri().resolve("/client-certificate"), String.class);
+            watcher.start();
+
+            replaceKeyStore(keyStorePath, keyPair.getPrivate(), rotated);
+            String expected = rotated.getSerialNumber().toString(16);
+            String presented = before;
+            long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (!expected.equals(presented) && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+                // Pooled connections keep their handshake until they expire; force a new one.
+                connectionManager.closeIdle(TimeValue.ZERO_MILLISECONDS);
+                presented = restTemplate.getForObject(server.uri().resolve("/client-certificate"), String.class);
+            }
+
+            assertThat(before).isNotEqualTo(expected);
+            assertThat(presented).isEqualTo(expected);
+            assertThat(sslContextFactory.clientCertificate()).isEqualTo(rotated);
+        } finally {
+            watcher.stop();
+            connectionManager.close();
+        }
+    }
+
+    @Test
+    void rebuildsRegistryClientsOfAPartnerWhoseKeyStoreRotated() throws Exception {
+        Path keyStorePath = directory.resolve("acme.p12");
+        Files.copy(LocalMtlsServer.certPath("client.p12"), keyStorePath);
+        PartnerMtlsProperties properties = LocalMtlsServer.clientProperties();
+        properties.getReload().setDebounce(Duration.ofMillis(50));
+        PartnerMtlsProperties.Partner acme = new PartnerMtlsProperties.Partner();
+        acme.setClientKeystorePath(keyStorePath.toString());
+        acme.setServerValidation(properties.getServerValidation());
+        properties.getPartners().put("acme", acme);
+        PartnerSslContextFactory sslContextFactory = new PartnerSslContextFactory(properties);
+        PartnerClientRegistry registry = new PartnerClientRegistry(properties, sslContextFactory,
+            new PartnerRestTemplateConfig(properties, sslContextFactory, new SimpleMeterRegistry()));
+        KeyMaterialWatcher watcher = new KeyMaterialWatcher(sslContextFactory, registry, properties);
+        KeyPair keyPair = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+        X509Certificate rotated = selfSigned(keyPair);
+        try (LocalMtlsServer server = LocalMtlsServer.start(0, trustedClients(rotated))) {
+            URI clientCertificate = server.uri().resolve("/client-certificate");
+            String before = registry.execute("acme", restTemplate -> restTemplate.getForObject(clientCertificate,
+                String.class));
+            watcher.start();
+
+            replaceKeyStore(keyStorePath, keyPair.getPrivate(), rotated);
+            String expected = rotated.getSerialNumber().toString(16);
+            String presented = before;
+            long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (!expected.equals(presented) && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+                presented = registry.execute("acme", restTemplate -> restTemplate.getForObject(clientCertificate,
+                    String.class));
+            }
+
+            assertThat(before).isNotEqualTo(expected);
+            assertThat(presented).isEqualTo(expected);
+        } finally {
+            watcher.stop();
+            registry.stop();
+        }
+    }
+
+    private static KeyStore trustedClients(X509Certificate rotated) throws Exception {
+        KeyStore trustedClients = KeyStoreLoader.load(LocalMtlsServer.certPath("server-truststore.p12"), "PKCS12",
+            LocalMtlsServer.PASSWORD);
+        trustedClients.setCertificateEntry("rotated", rotated);
+        return trustedClients;
+    }
+
+    private static X509Certificate selfSigned(KeyPair keyPair) throws Exception {
+        Instant now = Instant.now();
+        X500Name subject = new X500Name("CN=mtls-client-rotated");
+        JcaX509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(subject,
+            BigInteger.valueOf(now.toEpochMilli()), Date.from(now.minus(Duration.ofDays(1))),
+            Date.from(now.plus(Duration.ofDays(1))), subject, keyPair.getPublic());
+        return new JcaX509CertificateConverter()
+            .getCertificate(builder.build(new JcaContentSignerBuilder("SHA256withRSA").build(keyPair.getPrivate())));
+    }
+
+    // Written aside and moved into place, as a Secret update swaps the file rather than editing it.
+    private static void replaceKeyStore(Path keyStorePath, PrivateKey key, X509Certificate certificate)
+        throws Exception {
+        char[] password = LocalMtlsServer.PASSWORD.toCharArray();
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        keyStore.load(null, null);
+        keyStore.setKeyEntry("client", key, password, new X509Certificate[] { certificate });
+        Path staged = keyStorePath.resolveSibling("client.p12.tmp");
+        try (OutputStream outputStream = Files.newOutputStream(staged)) {
+            keyStore.store(outputStream, password);
+        }
+        Files.move(staged, keyStorePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.mtls;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.URIScheme;
+import org.apache.hc.core5.http.impl.bootstrap.HttpAsyncServer;
+import org.apache.hc.core5.http.nio.AsyncRequestConsumer;
+import org.apache.hc.core5.http.nio.AsyncServerRequestHandler;
+import org.apache.hc.core5.http.nio.entity.DiscardingEntityConsumer;
+import org.apache.hc.core5.http.nio.support.AsyncResponseBuilder;
+import org.apache.hc.core5.http.nio.support.BasicRequestConsumer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.http2.impl.nio.bootstrap.H2ServerBootstrap;
+import org.apache.hc.core5.http2.ssl.H2ServerTlsStrategy;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOSession;
+import org.apache.hc.core5.reactor.IOSessionListener;
+import org.apache.hc.core5.reactor.ListenerEndpoint;
+
+// HTTP/2-only mTLS partner stand-in; answers every request after a fixed delay so concurrent requests overlap.
+final class LocalH2MtlsServer implements AutoCloseable {
+    private final HttpAsyncServer server;
+    private final ScheduledExecutorService scheduler;
+    private final int port;
+    private final AtomicInteger connections;
+    private final AtomicInteger peakInFlight;
+
+    private LocalH2MtlsServer(HttpAsyncServer server, ScheduledExecutorService scheduler, int port,
+                              AtomicInteger connections, AtomicInteger peakInFlight) {
+        this.server = server;
+        this.scheduler = scheduler;
+        this.port = port;
+        this.connections = connections;
+        this.peakInFlight = peakInFlight;
+    }
+
+    static LocalH2MtlsServer start(Duration responseDelay)
+        throws IOException, GeneralSecurityException, InterruptedException, ExecutionException {
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(KeyStoreLoader.load(LocalMtlsServer.certPath("server.p12"), "PKCS12", LocalMtlsServer.PASSWORD),
+            LocalMtlsServer.PASSWORD.toCharArray());
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        tmf.init(KeyStoreLoader.load(LocalMtlsServer.certPath("server-truststore.p12"), "PKCS12",
+            LocalMtlsServer.PASSWORD));
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(kmf.getKeyManagers(), tmf.getTrustManagers(), null);
+
+        AtomicInteger connections = new AtomicInteger();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peakInFlight = new AtomicInteger();
+        HttpAsyncServer server = H2ServerBootstrap.bootstrap()
+            .setVersionPolicy(HttpVersionPolicy.FORCE_HTTP_2)
+            .setTlsStrategy(new H2ServerTlsStrategy(sslContext,
+                (endpoint, sslEngine) -> sslEngine.setNeedClientAuth(true), null))
+            .setIOSessionListener(new ConnectionCounter(connections))
+            .register("*", new AsyncServerRequestHandler<Message<HttpRequest, Void>>() {
+                @Override
+                public AsyncRequestConsumer<Message<HttpRequest, Void>> prepare(HttpRequest request,
+                        EntityDetails entityDetails, HttpContext context) {
+                    return new BasicRequestConsumer<>(entityDetails != null ? new DiscardingEntityConsumer<>() : null);
+                }
+
+                @Override
+                public void handle(Message<HttpRequest, Void> request, ResponseTrigger responseTrigger,
+                                   HttpContext context) {
+                    peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    scheduler.schedule(() -> {
+                        inFlight.decrementAndGet();
+                        try {
+                            responseTrigger.submitResponse(AsyncResponseBuilder.create(HttpStatus.SC_OK)
+                                .setEntity("{\"status\":\"ok\"}", ContentType.APPLICATION_JSON)
+                                .build(), context);
+                        } catch (Exception ex) {
+                            throw new IllegalStateException(ex);
+                        }
+                    }, responseDelay.toMillis(), TimeUnit.MILLISECONDS);
+                }
+            })
+            .create();
+        server.start();
+        ListenerEndpoint endpoint = server.listen(new InetSocketAddress("127.0.0.1", 0), URIScheme.HTTPS).get();
+        return new LocalH2MtlsServer(server, scheduler, ((InetSocketAddress) endpoint.getAddress()).getPort(),
+            connections, peakInFlight);
+    }
+
+    URI uri() {
+        return URI.create("https://localhost:" + port + "/");
+    }
+
+    int connections() {
+        return connections.get();
+    }
+
+    int peakInFlight() {
+        return peakInFlight.get();
+    }
+
+    @Override
+    public void close() {
+        server.close(CloseMode.IMMEDIATE);
+        scheduler.shutdownNow();
+    }
+
+    private record ConnectionCounter(AtomicInteger connections) implements IOSessionListener {
+        @Override
+        public void connected(IOSession session) {
+            connections.incrementAndGet();
+        }
+
+        @Override
+        public void startTls(IOSession session) {
+        }
+
+        @Override
+        public void inputReady(IOSession session) {
+        }
+
+        @Override
+        public void outputReady(IOSession session) {
+        }
+
+        @Override
+        public void timeout(IOSession session) {
+        }
+
+        @Override
+        public void exception(IOSession session, Exception ex) {
+        }
+
+        @Override
+        public void disconnected(IOSession session) {
+        }
+    }
+}
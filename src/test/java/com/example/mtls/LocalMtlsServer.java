@@ -0,0 +1,265 @@
+package com.example.mtls;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsExchange;
+import com.sun.net.httpserver.HttpsParameters;
+import com.sun.net.httpserver.HttpsServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.TrustManagerFactory;
+
+final class LocalMtlsServer implements AutoCloseable {
+    static final String PASSWORD = "changeit";
+
+    private final HttpsServer server;
+    private final ExecutorService executor;
+
+    private LocalMtlsServer(HttpsServer server, ExecutorService executor) {
+        this.server = server;
+        this.executor = executor;
+    }
+
+    // Standalone partner stand-in for local load tests: java -cp target/classes:target/test-classes
+    // com.example.mtls.LocalMtlsServer [port]
+    public static void main(String[] args) throws Exception {
+        // Without TCP_NODELAY small responses stall on delayed ACKs (~40 ms per request); set only here, since
+        // the property is JVM-wide and read once when the first server starts.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        LocalMtlsServer server = start(args.length > 0 ? Integer.parseInt(args[0]) : 9443);
+        System.out.println("Local mTLS server listening on " + server.uri() + " (certs: " + certPath("client.p12").getParent() + ")");
+        Thread.currentThread().join();
+    }
+
+    static LocalMtlsServer start() throws IOException, GeneralSecurityException {
+        return start(0);
+    }
+
+    static LocalMtlsServer start(int port) throws IOException, GeneralSecurityException {
+        return start(port, KeyStoreLoader.load(certPath("server-truststore.p12"), "PKCS12", PASSWORD));
+    }
+
+    // trustedClients: the client certificates (or CAs) the server accepts.
+    static LocalMtlsServer start(int port, KeyStore trustedClients) throws IOException, GeneralSecurityException {
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(KeyStoreLoader.load(certPath("server.p12"), "PKCS12", PASSWORD), PASSWORD.toCharArray());
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        tmf.init(trustedClients);
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(kmf.getKeyManagers(), tmf.getTrustManagers(), null);
+
+        HttpsServer server = HttpsServer.create(new InetSocketAddress("127.0.0.1", port), 128);
+        server.setHttpsConfigurator(new HttpsConfigurator(sslContext) {
+            @Override
+            public void configure(HttpsParameters params) {
+                SSLParameters sslParameters = sslContext.getDefaultSSLParameters();
+                sslParameters.setNeedClientAuth(true);
+                params.setSSLParameters(sslParameters);
+            }
+        });
+        server.createContext("/", exchange -> {
+            try (InputStream requestBody = exchange.getRequestBody()) {
+                requestBody.transferTo(OutputStream.nullOutputStream());
+            }
+            byte[] body = "{\"status\":\"ok\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream responseBody = exchange.getResponseBody()) {
+                responseBody.write(body);
+            }
+        });
+        // Streams "size" bytes of a repeating 0..250 pattern without holding them in memory.
+        server.createContext("/bytes", exchange -> {
+            long size = Long.parseLong(exchange.getRequestURI().getQuery().substring("size=".length()));
+            exchange.sendResponseHeaders(200, 0);
+            byte[] chunk = new byte[8192];
+            try (OutputStream responseBody = exchange.getResponseBody()) {
+                for (long sent = 0; sent < size; sent += chunk.length) {
+                    int length = (int) Math.min(chunk.length, size - sent);
+                    for (int i = 0; i < length; i++) {
+                        chunk[i] = (byte) ((sent + i) % 251);
+                    }
+                    responseBody.write(chunk, 0, length);
+                }
+            }
+        });
+        server.createContext("/status", exchange -> {
+            int code = Integer.parseInt(exchange.getRequestURI().getQuery().substring("code=".length()));
+            byte[] body = ("{\"status\":" + code + "}").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(code, body.length);
+            try (OutputStream responseBody = exchange.getResponseBody()) {
+                responseBody.write(body);
+            }
+        });
+        server.createContext("/upload", exchange -> {
+            long received;
+            try (InputStream requestBody = exchange.getRequestBody()) {
+                received = requestBody.transferTo(OutputStream.nullOutputStream());
+            }
+            byte[] body = Long.toString(received).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(201, body.length);
+            try (OutputStream responseBody = exchange.getResponseBody()) {
+                responseBody.write(body);
+            }
+        });
+        // Serial number (hex) of the client certificate presented in the handshake.
+        server.createContext("/client-certificate", exchange -> {
+            Certificate leaf = ((HttpsExchange) exchange).getSSLSession().getPeerCertificates()[0];
+            byte[] body = ((X509Certificate) leaf).getSerialNumber().toString(16).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream responseBody = exchange.getResponseBody()) {
+                responseBody.write(body);
+            }
+        });
+        // Echoes the request body, decoded per Content-Encoding and re-encoded with the first Accept-Encoding it
+        // knows; the X-Decoded-Length header reports the decoded request size.
+        server.createContext("/echo", exchange -> {
+            byte[] received;
+            String contentEncoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+            try (InputStream requestBody = decoding(exchange.getRequestBody(), contentEncoding)) {
+                received = requestBody.readAllBytes();
+            }
+            String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            String encoding = acceptEncoding == null ? null : Arrays.stream(acceptEncoding.split(","))
+                .map(String::trim)
+                .filter(token -> token.equals("gzip") || token.equals("zstd"))
+                .findFirst()
+                .orElse(null);
+            if (encoding != null) {
+                exchange.getResponseHeaders().add("Content-Encoding", encoding);
+            }
+            exchange.getResponseHeaders().add("X-Decoded-Length", Integer.toString(received.length));
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream responseBody = encoding(exchange.getResponseBody(), encoding)) {
+                responseBody.write(received);
+            }
+        });
+        // Platform threads: SSLStreams blocks inside synchronized code, which pins virtual threads, and a few
+        // concurrent handshakes then starve the clients' carriers on small machines.
+        ExecutorService executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.start();
+        return new LocalMtlsServer(server, executor);
+    }
+
+    private static InputStream decoding(InputStream body, String encoding) throws IOException {
+        if ("gzip".equals(encoding)) {
+            return new GZIPInputStream(body);
+        }
+        return "zstd".equals(encoding) ? Zstd.decoding(body) : body;
+    }
+
+    private static OutputStream encoding(OutputStream body, String encoding) throws IOException {
+        if ("gzip".equals(encoding)) {
+            return new GZIPOutputStream(body);
+        }
+        return "zstd".equals(encoding) ? Zstd.encoding(body) : body;
+    }
+
+    // Kept apart so zstd-jni is only loaded when a request uses it; main() runs with just the JDK on the classpath.
+    private static final class Zstd {
+        static InputStream decoding(InputStream body) throws IOException {
+            return new ZstdInputStream(body);
+        }
+
+        static OutputStream encoding(OutputStream body) throws IOException {
+            return new ZstdOutputStream(body);
+        }
+    }
+
+    static Path certPath(String name) {
+        try {
+            return Path.of(LocalMtlsServer.class.getResource("/certs/" + name).toURI());
+        } catch (URISyntaxException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    static PartnerMtlsProperties clientProperties() {
+        PartnerMtlsProperties properties = new PartnerMtlsProperties();
+        properties.setClientKeystorePath(certPath("client.p12").toString());
+        properties.setClientKeystorePassword(PASSWORD);
+        properties.getServerValidation().setTruststorePath(certPath("truststore.p12").toString());
+        properties.getServerValidation().setTruststorePassword(PASSWORD);
+        return properties;
+    }
+
+    // Exports the PKCS12 test material as PEM files: client certificate, PKCS#8 key and a CA bundle.
+    static PartnerMtlsProperties pemClientProperties(Path directory) throws IOException, GeneralSecurityException {
+        KeyStore clientStore = KeyStoreLoader.load(certPath("client.p12"), "PKCS12", PASSWORD);
+        Certificate[] chain = clientStore.getCertificateChain("client");
+        Key key = clientStore.getKey("client", PASSWORD.toCharArray());
+        Path certificate = Files.writeString(directory.resolve("tls.crt"), pem("CERTIFICATE", chain));
+        Path privateKey = Files.writeString(directory.resolve("tls.key"), pem("PRIVATE KEY", key.getEncoded()));
+        KeyStore trustStore = clientTrustStore();
+        List<Certificate> authorities = new ArrayList<>();
+        for (String alias : Collections.list(trustStore.aliases())) {
+            authorities.add(trustStore.getCertificate(alias));
+        }
+        // An unrelated certificate in the bundle must not matter.
+        authorities.add(chain[0]);
+        Path bundle = Files.writeString(directory.resolve("ca.crt"),
+            pem("CERTIFICATE", authorities.toArray(new Certificate[0])));
+
+        PartnerMtlsProperties properties = new PartnerMtlsProperties();
+        properties.setClientKeystoreType(PemKeyMaterial.TYPE);
+        properties.setClientKeystorePath(certificate.toString());
+        properties.setClientKeyPath(privateKey.toString());
+        properties.getServerValidation().setTruststoreType(PemKeyMaterial.TYPE);
+        properties.getServerValidation().setTruststorePath(bundle.toString());
+        return properties;
+    }
+
+    static String pem(String label, Certificate... certificates) throws CertificateEncodingException {
+        StringBuilder pem = new StringBuilder();
+        for (Certificate certificate : certificates) {
+            pem.append(pem(label, certificate.getEncoded()));
+        }
+        return pem.toString();
+    }
+
+    static String pem(String label, byte[] der) {
+        return "-----BEGIN " + label + "-----\n" + Base64.getMimeEncoder(64, new byte[] { '\n' }).encodeToString(der)
+            + "\n-----END " + label + "-----\n";
+    }
+
+    static KeyStore clientTrustStore() throws IOException, GeneralSecurityException {
+        return KeyStoreLoader.load(certPath("truststore.p12"), "PKCS12", PASSWORD);
+    }
+
+    URI uri() {
+        return URI.create("https://localhost:" + server.getAddress().getPort() + "/");
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.mtls;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AccessDescription;
+import org.bouncycastle.asn1.x509.AuthorityInformationAccess;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.asn1.x509.ExtendedKeyUsage;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.KeyPurposeId;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.cert.ocsp.BasicOCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.CertificateID;
+import org.bouncycastle.cert.ocsp.CertificateStatus;
+import org.bouncycastle.cert.ocsp.OCSPReq;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.bouncycastle.cert.ocsp.OCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.Req;
+import org.bouncycastle.cert.ocsp.RevokedStatus;
+import org.bouncycastle.cert.ocsp.jcajce.JcaBasicOCSPRespBuilder;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+
+// Stand-in CA and OCSP responder: issues leaf certificates pointing at itself and answers for them.
+final class LocalOcspResponder implements AutoCloseable {
+    private final HttpServer server;
+    private volatile KeyPair caKeyPair;
+    private volatile X509Certificate caCertificate;
+    private final Set<BigInteger> revoked = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicLong serials = new AtomicLong(1);
+    private volatile Duration validity = Duration.ofHours(1);
+    private volatile Duration age = Duration.ofMinutes(1);
+    private volatile boolean failing;
+
+    private LocalOcspResponder(HttpServer server, KeyPair caKeyPair, X509Certificate caCertificate) {
+        this.server = server;
+        this.caKeyPair = caKeyPair;
+        this.caCertificate = caCertificate;
+    }
+
+    static LocalOcspResponder start() throws IOException, GeneralSecurityException {
+        KeyPair caKeyPair = newKeyPair();
+        X509Certificate caCertificate = caCertificate(caKeyPair);
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 16);
+        LocalOcspResponder responder = new LocalOcspResponder(server, caKeyPair, caCertificate);
+        server.createContext("/ocsp", exchange -> {
+            responder.requests.incrementAndGet();
+            if (responder.failing) {
+                exchange.sendResponseHeaders(503, -1);
+                exchange.close();
+                return;
+            }
+            byte[] requestBody;
+            try (InputStream body = exchange.getRequestBody()) {
+                requestBody = body.readAllBytes();
+            }
+            byte[] response;
+            try {
+                Req request = new OCSPReq(requestBody).getRequestList()[0];
+                response = responder.respond(request.getCertID());
+            } catch (Exception ex) {
+                exchange.sendResponseHeaders(500, -1);
+                exchange.close();
+                return;
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/ocsp-response");
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(response);
+            }
+        });
+        server.start();
+        return responder;
+    }
+
+    X509Certificate issueLeaf() throws GeneralSecurityException, IOException {
+        Instant now = Instant.now();
+        JcaX509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(caCertificate,
+            BigInteger.valueOf(serials.incrementAndGet()), Date.from(now.minus(Duration.ofDays(1))),
+            Date.from(now.plus(Duration.ofDays(1))), new X500Name("CN=localhost"), newKeyPair().getPublic());
+        builder.addExtension(Extension.extendedKeyUsage, false, new ExtendedKeyUsage(KeyPurposeId.id_kp_serverAuth));
+        builder.addExtension(Extension.authorityInfoAccess, false, new AuthorityInformationAccess(
+            AccessDescription.id_ad_ocsp, new GeneralName(GeneralName.uniformResourceIdentifier, url())));
+        return sign(builder, caKeyPair);
+    }
+
+    // What a server would staple: a signed response obtained out of band, not counted as a request.
+    byte[] stapledResponseFor(X509Certificate certificate) throws Exception {
+        return respond(new CertificateID(new JcaDigestCalculatorProviderBuilder().build().get(CertificateID.HASH_SHA1),
+            new JcaX509CertificateHolder(caCertificate), certificate.getSerialNumber()));
+    }
+
+    KeyStore trustStore() throws GeneralSecurityException, IOException {
+        KeyStore trustStore = KeyStore.getInstance("PKCS12");
+        trustStore.load(null, null);
+        trustStore.setCertificateEntry("ca", caCertificate);
+        return trustStore;
+    }
+
+    X509Certificate caCertificate() {
+        return caCertificate;
+    }
+
+    // Same CA name, new key pair; certificates issued from now on and all responses are signed with the new key.
+    void rekey() throws GeneralSecurityException, IOException {
+        KeyPair keyPair = newKeyPair();
+        caCertificate = caCertificate(keyPair);
+        caKeyPair = keyPair;
+    }
+
+    void revoke(X509Certificate certificate) {
+        revoked.add(certificate.getSerialNumber());
+    }
+
+    // Null leaves nextUpdate out of the response.
+    void setValidity(Duration validity) {
+        this.validity = validity;
+    }
+
+    // How long before the response was produced its thisUpdate lies.
+    void setAge(Duration age) {
+        this.age = age;
+    }
+
+    void setFailing(boolean failing) {
+        this.failing = failing;
+    }
+
+    int requests() {
+        return requests.get();
+    }
+
+    String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/ocsp";
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private byte[] respond(CertificateID id) throws Exception {
+        Instant now = Instant.now();
+        CertificateStatus status = revoked.contains(id.getSerialNumber())
+            ? new RevokedStatus(Date.from(now.minus(Duration.ofHours(1))), CRLReason.keyCompromise)
+            : CertificateStatus.GOOD;
+        BasicOCSPRespBuilder builder = new JcaBasicOCSPRespBuilder(caKeyPair.getPublic(),
+            new JcaDigestCalculatorProviderBuilder().build().get(CertificateID.HASH_SHA1));
+        Duration validity = this.validity;
+        builder.addResponse(id, status, Date.from(now.minus(age)),
+            validity != null ? Date.from(now.plus(validity)) : null, null);
+        ContentSigner signer = new JcaContentSignerBuilder("SHA256withECDSA").build(caKeyPair.getPrivate());
+        return new OCSPRespBuilder().build(OCSPResp.SUCCESSFUL,
+            builder.build(signer, new X509CertificateHolder[] { new JcaX509CertificateHolder(caCertificate) },
+                Date.from(now))).getEncoded();
+    }
+
+    private static X509Certificate caCertificate(KeyPair caKeyPair) throws GeneralSecurityException, IOException {
+        Instant now = Instant.now();
+        X500Name caName = new X500Name("CN=Local Partner CA");
+        JcaX509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(caName, BigInteger.ONE,
+            Date.from(now.minus(Duration.ofDays(1))), Date.from(now.plus(Duration.ofDays(1))), caName,
+            caKeyPair.getPublic());
+        builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(true));
+        return sign(builder, caKeyPair);
+    }
+
+    private static X509Certificate sign(JcaX509v3CertificateBuilder builder, KeyPair issuerKeyPair)
+        throws GeneralSecurityException {
+        try {
+            ContentSigner signer = new JcaContentSignerBuilder("SHA256withECDSA").build(issuerKeyPair.getPrivate());
+            return new JcaX509CertificateConverter().getCertificate(builder.build(signer));
+        } catch (org.bouncycastle.operator.OperatorCreationException ex) {
+            throw new GeneralSecurityException(ex);
+        }
+    }
+
+    private static KeyPair newKeyPair() throws GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(256);
+        return generator.generateKeyPair();
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.mtls;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.core5.http.HttpVersion;
+import org.junit.jupiter.api.Test;
+
+class PartnerAsyncClientTest {
+    @Test
+    void multiplexesConcurrentRequestsOverOneConnection() throws Exception {
+        PartnerMtlsProperties properties = LocalMtlsServer.clientProperties();
+        properties.getAsync().setMaxConcurrentStreams(4);
+        try (LocalH2MtlsServer server = LocalH2MtlsServer.start(Duration.ofMillis(100));
+             PartnerAsyncClient client = asyncClient(properties)) {
+            List<CompletableFuture<SimpleHttpResponse>> responses = new ArrayList<>();
+            for (int i = 0; i < 12; i++) {
+                responses.add(client.get(server.uri()));
+            }
+
+            for (CompletableFuture<SimpleHttpResponse> response : responses) {
+                assertThat(response.get(10, TimeUnit.SECONDS).getVersion()).isEqualTo(HttpVersion.HTTP_2);
+            }
+            assertThat(server.connections()).isEqualTo(1);
+            assertThat(server.peakInFlight()).isBetween(2, 4);
+        }
+    }
+
+    @Test
+    void fallsBackToHttp1WhenThePartnerDoesNotNegotiateH2() throws Exception {
+        try (LocalMtlsServer server = LocalMtlsServer.start();
+             PartnerAsyncClient client = asyncClient(LocalMtlsServer.clientProperties())) {
+            SimpleHttpResponse first = client.get(server.uri()).get(10, TimeUnit.SECONDS);
+            SimpleHttpResponse second = client.get(server.uri()).get(10, TimeUnit.SECONDS);
+
+            assertThat(first.getCode()).isEqualTo(200);
+            assertThat(first.getVersion()).isEqualTo(HttpVersion.HTTP_1_1);
+            assertThat(second.getBodyText()).isEqualTo("{\"status\":\"ok\"}");
+        }
+    }
+
+    private static PartnerAsyncClient asyncClient(PartnerMtlsProperties properties) throws Exception {
+        return new PartnerAsyncClientConfig(properties)
+            .partnerAsyncClient(new PartnerSslContextFactory(properties).build());
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.mtls;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+class PartnerBulkCallerTest {
+    @Test
+    void returnsResultsInInputOrderWithinPoolConcurrency() throws Exception {
+        PartnerBulkCaller caller = new PartnerBulkCaller(new RestTemplate(), pool(4));
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        List<Integer> inputs = IntStream.range(0, 50).boxed().toList();
+
+        List<PartnerBulkCaller.Result<Integer>> results = caller.callAll(inputs, (restTemplate, input) -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep((50 - input) % 7);
+            inFlight.decrementAndGet();
+            return input * 2;
+        }, Duration.ofSeconds(10));
+
+        assertThat(results).extracting(PartnerBulkCaller.Result::value)
+            .containsExactlyElementsOf(inputs.stream().map(i -> i * 2).toList());
+        assertThat(maxInFlight.get()).isLessThanOrEqualTo(4);
+    }
+
+    @Test
+    void reportsCallsPastTheDeadlineAsTimeouts() throws Exception {
+        PartnerBulkCaller caller = new PartnerBulkCaller(new RestTemplate(), pool(2));
+
+        List<PartnerBulkCaller.Result<String>> results = caller.callAll(List.of("fast", "slow"), (restTemplate, input) -> {
+            if (input.equals("slow")) {
+                Thread.sleep(5_000);
+            }
+            return input;
+        }, Duration.ofMillis(200));
+
+        assertThat(results.get(0).isSuccess()).isTrue();
+        assertThat(results.get(0).value()).isEqualTo("fast");
+        assertThat(results.get(1).error()).isInstanceOf(TimeoutException.class);
+    }
+
+    @Test
+    void followsThePoolLimitsAsTheyChange() throws Exception {
+        PoolingHttpClientConnectionManager pool = pool(4);
+        PartnerBulkCaller caller = new PartnerBulkCaller(new RestTemplate(), pool);
+
+        pool.setMaxTotal(2);
+        assertThat(maxInFlight(caller, 20)).isLessThanOrEqualTo(2);
+        assertThat(caller.getMaxConcurrency()).isEqualTo(2);
+
+        pool.setMaxTotal(8);
+        pool.setDefaultMaxPerRoute(6);
+        assertThat(maxInFlight(caller, 20)).isBetween(5, 6);
+        assertThat(caller.getMaxConcurrency()).isEqualTo(6);
+    }
+
+    private static int maxInFlight(PartnerBulkCaller caller, int calls) throws InterruptedException {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        caller.callAll(IntStream.range(0, calls).boxed().toList(), (restTemplate, input) -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(50);
+            inFlight.decrementAndGet();
+            return input;
+        }, Duration.ofSeconds(10));
+        return maxInFlight.get();
+    }
+
+    private static PoolingHttpClientConnectionManager pool(int maxPerRoute) {
+        PoolingHttpClientConnectionManager pool = new PoolingHttpClientConnectionManager();
+        pool.setDefaultMaxPerRoute(maxPerRoute);
+        return pool;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.mtls;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class PartnerCircuitBreakerTest {
+    private static final long FAST = Duration.ofMillis(10).toNanos();
+    private static final long SLOW = Duration.ofSeconds(3).toNanos();
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+    private final PartnerMtlsProperties.CircuitBreaker settings = new PartnerMtlsProperties.CircuitBreaker();
+
+    @Test
+    void opensOnSustainedFailuresAndRecoversThroughHalfOpen() {
+        settings.setMinimumCalls(10);
+        settings.setHalfOpenCalls(2);
+        PartnerCircuitBreaker breaker = new PartnerCircuitBreaker("acme", settings, clock::get);
+
+        for (int i = 0; i < 10; i++) {
+            PartnerCircuitBreaker.Phase admitted = breaker.tryAcquire();
+            assertThat(admitted).isNotNull();
+            breaker.record(admitted, FAST, i % 2 == 0);
+        }
+        assertThat(breaker.state()).isEqualTo(PartnerCircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).isNull();
+
+        clock.addAndGet(settings.getOpenDuration().toNanos());
+        PartnerCircuitBreaker.Phase first = breaker.tryAcquire();
+        PartnerCircuitBreaker.Phase second = breaker.tryAcquire();
+        assertThat(first).isNotNull();
+        assertThat(second).isNotNull();
+        assertThat(breaker.tryAcquire()).isNull();
+        assertThat(breaker.state()).isEqualTo(PartnerCircuitBreaker.State.HALF_OPEN);
+
+        breaker.record(first, FAST, false);
+        breaker.record(second, FAST, false);
+        assertThat(breaker.state()).isEqualTo(PartnerCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void opensOnSlowCallsAndReopensOnFailedTrial() {
+        settings.setMinimumCalls(5);
+        PartnerCircuitBreaker breaker = new PartnerCircuitBreaker("acme", settings, clock::get);
+
+        for (int i = 0; i < 5; i++) {
+            breaker.record(breaker.tryAcquire(), SLOW, false);
+        }
+        assertThat(breaker.state()).isEqualTo(PartnerCircuitBreaker.State.OPEN);
+
+        clock.addAndGet(settings.getOpenDuration().toNanos());
+        breaker.record(breaker.tryAcquire(), SLOW, false);
+        assertThat(breaker.state()).isEqualTo(PartnerCircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void ignoresResultsOfCallsAdmittedBeforeTheCircuitOpened() {
+        settings.setMinimumCalls(5);
+        PartnerCircuitBreaker breaker = new PartnerCircuitBreaker("acme", settings, clock::get);
+        PartnerCircuitBreaker.Phase straggler = breaker.tryAcquire();
+        for (int i = 0; i < 5; i++) {
+            breaker.record(breaker.tryAcquire(), FAST, true);
+        }
+        clock.addAndGet(settings.getOpenDuration().toNanos());
+        PartnerCircuitBreaker.Phase trial = breaker.tryAcquire();
+
+        breaker.record(straggler, SLOW, true);
+        assertThat(breaker.state()).isEqualTo(PartnerCircuitBreaker.State.HALF_OPEN);
+
+        breaker.record(trial, SLOW, false);
+        assertThat(breaker.state()).isEqualTo(PartnerCircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void forgetsFailuresOutsideTheWindow() {
+        settings.setMinimumCalls(10);
+        PartnerCircuitBreaker breaker = new PartnerCircuitBreaker("acme", settings, clock::get);
+
+        for (int i = 0; i < 9; i++) {
+            breaker.record(breaker.tryAcquire(), FAST, true);
+        }
+        clock.addAndGet(settings.getWindow().toNanos());
+        breaker.record(breaker.tryAcquire(), FAST, true);
+
+        assertThat(breaker.state()).isEqualTo(PartnerCircuitBreaker.State.CLOSED);
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.mtls;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PartnerClientRegistryTest {
+    private LocalMtlsServer server;
+    private PartnerMtlsProperties properties;
+    private PartnerSslContextFactory sslContextFactory;
+    private PartnerClientRegistry registry;
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = LocalMtlsServer.start();
+        properties = LocalMtlsServer.clientProperties();
+        properties.getPartners().put("acme", partner());
+        properties.getPartners().put("globex", partner());
+        properties.getRegistry().setMaxActive(1);
+        sslContextFactory = new PartnerSslContextFactory(properties);
+        registry = new PartnerClientRegistry(properties, sslContextFactory,
+            new PartnerRestTemplateConfig(properties, sslContextFactory, meterRegistry));
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.stop();
+        server.close();
+    }
+
+    @Test
+    void buildsClientsLazilyAndEvictsLeastRecentlyUsed() {
+        assertThat(registry.activePartners()).isEmpty();
+
+        String body = get("acme");
+        PartnerClientRegistry.Entry entry = registry.acquire("acme");
+        PartnerClientRegistry.PartnerClient acme = entry.client();
+        registry.release(entry);
+        get("globex");
+
+        assertThat(body).contains("ok");
+        assertThat(registry.activePartners()).containsExactly("globex");
+        assertThat(acme.connectionManager().getTotalStats().getAvailable()).isZero();
+        // Both partners share the client keystore and truststore, parsed once.
+        assertThat(sslContextFactory.sharedMaterialCount()).isEqualTo(2);
+    }
+
+    @Test
+    void closesIdlePartnersAndReleasesSharedMaterial() {
+        properties.getRegistry().setIdleTimeout(Duration.ofNanos(1));
+        get("acme");
+
+        registry.sweep();
+
+        assertThat(registry.activePartners()).isEmpty();
+        assertThat(sslContextFactory.sharedMaterialCount()).isZero();
+        assertThat(get("acme")).contains("ok");
+    }
+
+    @Test
+    void keepsAnEvictedPartnerOpenUntilItsCallReturns() {
+        PartnerClientRegistry.Entry entry = registry.acquire("acme");
+        PartnerClientRegistry.PartnerClient acme = entry.client();
+        get("globex");
+
+        // Evicted by globex, but the call that already holds the client still goes through.
+        assertThat(registry.activePartners()).containsExactly("globex");
+        assertThat(acme.restTemplate().getForObject(server.uri(), String.class)).contains("ok");
+
+        registry.release(entry);
+        assertThatThrownBy(() -> acme.restTemplate().getForObject(server.uri(), String.class))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("Connection pool shut down");
+    }
+
+    @Test
+    void keepsTheRebuiltPartnersMetersWhenItsEvictedPredecessorCloses() {
+        PartnerClientRegistry.Entry evicted = registry.acquire("acme");
+        get("globex");
+        // Rebuilt under the same name while the evicted client still serves its call.
+        get("acme");
+
+        registry.release(evicted);
+
+        Timer leaseWait = meterRegistry.get("partner.mtls.pool.lease.wait").tag("httpclient", "acme").timer();
+        long leases = leaseWait.count();
+        get("acme");
+        assertThat(leaseWait.count()).isEqualTo(leases + 1);
+        assertThat(meterRegistry.get("httpcomponents.httpclient.pool.total.connections")
+            .tags("httpclient", "acme", "state", "available").gauge().value()).isEqualTo(1);
+        assertThat(meterRegistry.get("partner.mtls.pool.stale.dropped").tag("httpclient", "acme").counter())
+            .isNotNull();
+        // Meters of other components are left to their owners.
+        assertThat(meterRegistry.find("partner.mtls.calls.rejected").tag("httpclient", "acme").counters())
+            .isNotEmpty();
+    }
+
+    @Test
+    void rejectsUnknownPartner() {
+        assertThatThrownBy(() -> get("initech"))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("initech");
+    }
+
+    private String get(String partner) {
+        return registry.execute(partner, restTemplate -> restTemplate.getForObject(server.uri(), String.class));
+    }
+
+    private static PartnerMtlsProperties.Partner partner() {
+        PartnerMtlsProperties.Partner partner = new PartnerMtlsProperties.Partner();
+        partner.setServerValidation(LocalMtlsServer.clientProperties().getServerValidation());
+        return partner;
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.mtls;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.RequestEntity;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.web.client.RestTemplate;
+
+class PartnerCompressionInterceptorTest {
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void gzipsLargeRequestsAndDecodesGzipResponses() throws Exception {
+        byte[] payload = "{\"sku\":\"A-1\",\"quantity\":1},".repeat(2000).getBytes(StandardCharsets.UTF_8);
+        try (LocalMtlsServer server = LocalMtlsServer.start()) {
+            PartnerMtlsProperties properties = LocalMtlsServer.clientProperties();
+            properties.getCompression().setEnabled(true);
+            PartnerRestTemplateConfig config = new PartnerRestTemplateConfig(properties,
+                new PartnerSslContextFactory(properties), meterRegistry);
+            PoolingHttpClientConnectionManager connectionManager = config.partnerConnectionManager(
+                config.partnerSslContext());
+            try {
+                RestTemplate restTemplate = config.partnerRestTemplate(connectionManager);
+                ResponseEntity<byte[]> response = echo(restTemplate, server, payload);
+
+                assertThat(response.getBody()).isEqualTo(payload);
+                assertThat(response.getHeaders().getFirst("X-Decoded-Length"))
+                    .isEqualTo(Integer.toString(payload.length));
+                assertThat(response.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+                assertThat(counter("partner.mtls.compression.saved", "request", "gzip"))
+                    .isGreaterThan(payload.length / 2);
+                assertThat(counter("partner.mtls.compression.saved", "response", "gzip"))
+                    .isGreaterThan(payload.length / 2);
+                assertThat(meterRegistry.get("partner.mtls.compression.cpu").tag("direction", "request")
+                    .tag("encoding", "gzip").timer().count()).isEqualTo(1);
+
+                // Below min-size the body goes out as is.
+                double wire = counter("partner.mtls.compression.wire", "request", "gzip");
+                echo(restTemplate, server, "{\"sku\":\"A-1\"}".getBytes(StandardCharsets.UTF_8));
+                assertThat(counter("partner.mtls.compression.wire", "request", "gzip")).isEqualTo(wire);
+            } finally {
+                connectionManager.close();
+            }
+        }
+    }
+
+    @Test
+    void usesZstdWhenConfiguredAndSendsIncompressibleBodiesAsIs() throws Exception {
+        byte[] payload = "{\"event\":\"shipped\"},".repeat(1000).getBytes(StandardCharsets.UTF_8);
+        byte[] random = new byte[4096];
+        new Random(42).nextBytes(random);
+        try (LocalMtlsServer server = LocalMtlsServer.start()) {
+            PartnerMtlsProperties properties = LocalMtlsServer.clientProperties();
+            properties.getCompression().setEnabled(true);
+            properties.getCompression().setRequestEncoding(PartnerMtlsProperties.ContentCoding.ZSTD);
+            properties.getCompression().setAcceptEncodings(
+                List.of(PartnerMtlsProperties.ContentCoding.ZSTD, PartnerMtlsProperties.ContentCoding.GZIP));
+            PartnerRestTemplateConfig config = new PartnerRestTemplateConfig(properties,
+                new PartnerSslContextFactory(properties), meterRegistry);
+            PoolingHttpClientConnectionManager connectionManager = config.partnerConnectionManager(
+                config.partnerSslContext());
+            try {
+                RestTemplate restTemplate = config.partnerRestTemplate(connectionManager);
+                // Twice, so the second call runs on the pooled context and scratch buffer.
+                echo(restTemplate, server, payload);
+                assertThat(echo(restTemplate, server, payload).getBody()).isEqualTo(payload);
+                assertThat(counter("partner.mtls.compression.saved", "request", "zstd"))
+                    .isGreaterThan(payload.length);
+                assertThat(counter("partner.mtls.compression.saved", "response", "zstd"))
+                    .isGreaterThan(payload.length);
+
+                double wire = counter("partner.mtls.compression.wire", "request", "zstd");
+                assertThat(echo(restTemplate, server, random).getBody()).isEqualTo(random);
+                assertThat(counter("partner.mtls.compression.wire", "request", "zstd")).isEqualTo(wire);
+            } finally {
+                connectionManager.close();
+            }
+        }
+    }
+
+    @Test
+    void rejectsGzipBodiesWhoseTrailerDoesNotMatch() throws Exception {
+        byte[] payload = "{\"sku\":\"A-1\"},".repeat(500).getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+            out.write(payload);
+        }
+        byte[] intact = gzipped.toByteArray();
+        byte[] badCrc = intact.clone();
+        badCrc[badCrc.length - 8] ^= 1;
+        byte[] badLength = intact.clone();
+        badLength[badLength.length - 4] ^= 1;
+        PartnerCompressionInterceptor interceptor = new PartnerCompressionInterceptor("partner",
+            new PartnerMtlsProperties.Compression(), meterRegistry);
+
+        assertThat(decode(interceptor, intact)).isEqualTo(payload);
+        assertThatThrownBy(() -> decode(interceptor, badCrc))
+            .isInstanceOf(ZipException.class)
+            .hasMessageContaining("CRC-32");
+        assertThatThrownBy(() -> decode(interceptor, badLength))
+            .isInstanceOf(ZipException.class)
+            .hasMessageContaining("length");
+    }
+
+    private static byte[] decode(PartnerCompressionInterceptor interceptor, byte[] gzipped) throws Exception {
+        MockClientHttpRequest request = new MockClientHttpRequest(HttpMethod.GET, URI.create("https://partner/"));
+        try (ClientHttpResponse response = interceptor.intercept(request, new byte[0], (req, body) -> {
+            MockClientHttpResponse partner = new MockClientHttpResponse(gzipped, HttpStatus.OK);
+            partner.getHeaders().set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            return partner;
+        })) {
+            return response.getBody().readAllBytes();
+        }
+    }
+
+    private static ResponseEntity<byte[]> echo(RestTemplate restTemplate, LocalMtlsServer server, byte[] body) {
+        URI uri = server.uri().resolve("/echo");
+        return restTemplate.exchange(RequestEntity.post(uri).body(body), byte[].class);
+    }
+
+    private double counter(String name, String direction, String encoding) {
+        return meterRegistry.get(name).tag("direction", direction).tag("encoding", encoding).counter().count();
+    }
+}
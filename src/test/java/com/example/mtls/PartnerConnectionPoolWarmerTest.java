@@ -0,0 +1,59 @@
+package com.example.mtls;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PartnerConnectionPoolWarmerTest {
+    private LocalMtlsServer server;
+    private PoolingHttpClientConnectionManager connectionManager;
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = LocalMtlsServer.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (connectionManager != null) {
+            connectionManager.close();
+        }
+        server.close();
+    }
+
+    @Test
+    void opensDistinctConnectionsThatTheFirstRequestReuses() throws Exception {
+        PartnerMtlsProperties properties = LocalMtlsServer.clientProperties();
+        properties.getPool().getWarmup().setEnabled(true);
+        properties.getPool().getWarmup().setConnectionsPerRoute(3);
+        properties.getPool().getWarmup().setTargets(List.of(server.uri()));
+        PartnerRestTemplateConfig config = new PartnerRestTemplateConfig(properties,
+            new PartnerSslContextFactory(properties), meterRegistry);
+        connectionManager = config.partnerConnectionManager(config.partnerSslContext());
+        PartnerMtlsStatus status = config.partnerMtlsStatus();
+
+        new PartnerConnectionPoolWarmer(connectionManager, properties, status).run();
+
+        assertThat(status.warmup()).isEqualTo(new PartnerMtlsStatus.Warmup(3, 3));
+        assertThat(connectionManager.getTotalStats().getAvailable()).isEqualTo(3);
+        assertThat(handshakes()).isEqualTo(3);
+
+        String body = config.partnerRestTemplate(connectionManager).getForObject(server.uri(), String.class);
+
+        assertThat(body).contains("ok");
+        assertThat(handshakes()).isEqualTo(3);
+        assertThat(connectionManager.getTotalStats().getAvailable()).isEqualTo(3);
+    }
+
+    private long handshakes() {
+        return meterRegistry.find("partner.mtls.tls.handshake").timers().stream().mapToLong(Timer::count).sum();
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.mtls;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+class PartnerMtlsHealthConfigTest {
+    private LocalMtlsServer server;
+    private PartnerMtlsProperties properties;
+    private PartnerSslContextFactory sslContextFactory;
+    private PartnerRestTemplateConfig config;
+    private PoolingHttpClientConnectionManager connectionManager;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = LocalMtlsServer.start();
+        properties = LocalMtlsServer.clientProperties();
+        properties.getHealth().setProbeUrl(server.uri().toString());
+        sslContextFactory = new PartnerSslContextFactory(properties);
+        config = new PartnerRestTemplateConfig(properties, sslContextFactory, new SimpleMeterRegistry());
+        connectionManager = config.partnerConnectionManager(config.partnerSslContext());
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionManager.close();
+        server.close();
+    }
+
+    @Test
+    void readinessWaitsForTheFirstRoundTrip() {
+        PartnerMtlsStatus status = config.partnerMtlsStatus();
+        assertThat(readiness(status).getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+
+        new PartnerMtlsReadinessProbe(config.partnerRestTemplate(connectionManager), properties, status).probe();
+
+        Health health = readiness(status);
+        assertThat(health.getStatus()).isEqualTo(Status.UP);
+        assertThat(status.roundTrip().result()).isEqualTo("200");
+        assertThat(status.lastSuccessfulHandshake().result()).startsWith("TLSv1.");
+        assertThat(health.getDetails()).containsKeys("keyMaterial", "roundTrip", "lastHandshake", "poolWarmup");
+    }
+
+    @Test
+    void livenessReportsKeyMaterialAndDaysUntilExpiry() {
+        properties.getHealth().setExpiryWarning(Duration.ofDays(100_000));
+        assertThat(PartnerMtlsHealthConfig.liveness(null, properties.getHealth(), Instant.now()).getStatus())
+            .isEqualTo(Status.DOWN);
+
+        Health health = PartnerMtlsHealthConfig.liveness(sslContextFactory.clientCertificate(),
+            properties.getHealth(), Instant.now());
+
+        assertThat(health.getStatus()).isEqualTo(Status.UP);
+        Map<?, ?> keyMaterial = (Map<?, ?>) health.getDetails().get("keyMaterial");
+        assertThat((long) keyMaterial.get("daysUntilExpiry")).isPositive();
+        assertThat(keyMaterial.get("expiringSoon")).isEqualTo(true);
+    }
+
+    private Health readiness(PartnerMtlsStatus status) {
+        return PartnerMtlsHealthConfig.readiness(sslContextFactory.clientCertificate(), status, properties,
+            Instant.now());
+    }
+}
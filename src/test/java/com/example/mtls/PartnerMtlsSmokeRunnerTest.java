@@ -0,0 +1,59 @@
+package com.example.mtls;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PartnerMtlsSmokeRunnerTest {
+    private LocalMtlsServer server;
+    private PoolingHttpClientConnectionManager connectionManager;
+    private PartnerMtlsSmokeRunner runner;
+    private final PartnerMtlsProperties properties = LocalMtlsServer.clientProperties();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = LocalMtlsServer.start();
+        properties.getSmoke().setUrl(server.uri().toString());
+        properties.getSmoke().setMode(PartnerMtlsProperties.SmokeMode.LOAD);
+        properties.getSmoke().getLoad().setConcurrency(4);
+        properties.getSmoke().getLoad().setDuration(Duration.ofSeconds(1));
+        PartnerRestTemplateConfig config = new PartnerRestTemplateConfig(properties,
+            new PartnerSslContextFactory(properties), meterRegistry);
+        connectionManager = config.partnerConnectionManager(config.partnerSslContext());
+        runner = new PartnerMtlsSmokeRunner(config.partnerRestTemplate(connectionManager), properties, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionManager.close();
+        server.close();
+    }
+
+    @Test
+    void loadModeReportsLatencyAndConnectionReuse() {
+        PartnerMtlsSmokeRunner.LoadReport report = runner.runLoad();
+
+        assertThat(report.errors()).isZero();
+        assertThat(report.requests()).isGreaterThan(100);
+        assertThat(report.latencies().getValueAtPercentile(99)).isPositive();
+        assertThat(report.handshakes()).isBetween(1L, 4L);
+        assertThat(report.reusedConnections()).isEqualTo(report.requests() - report.handshakes());
+    }
+
+    @Test
+    void fixedRateLoadHoldsTheTargetRate() {
+        properties.getSmoke().getLoad().setRate(200);
+
+        PartnerMtlsSmokeRunner.LoadReport report = runner.runLoad();
+
+        assertThat(report.errors()).isZero();
+        assertThat(report.requests()).isBetween(180L, 200L);
+    }
+}
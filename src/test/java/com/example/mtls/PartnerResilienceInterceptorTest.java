@@ -0,0 +1,55 @@
+package com.example.mtls;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.net.URI;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+class PartnerResilienceInterceptorTest {
+    private final MockClientHttpRequest request = new MockClientHttpRequest(HttpMethod.GET,
+        URI.create("https://partner.example/orders"));
+
+    @Test
+    void holdsTheInFlightPermitUntilTheResponseIsClosed() throws Exception {
+        PartnerMtlsProperties.Resilience settings = new PartnerMtlsProperties.Resilience();
+        settings.setMaxInFlight(1);
+        PartnerResilienceInterceptor interceptor = new PartnerResilienceInterceptor("acme", settings,
+            new SimpleMeterRegistry());
+        ClientHttpRequestExecution ok = (req, body) -> new MockClientHttpResponse(new byte[0], HttpStatus.OK);
+
+        ClientHttpResponse first = interceptor.intercept(request, new byte[0], ok);
+        assertThatThrownBy(() -> interceptor.intercept(request, new byte[0], ok))
+            .isInstanceOf(PartnerCallRejectedException.class)
+            .extracting("reason").isEqualTo(PartnerCallRejectedException.Reason.CONCURRENCY_LIMIT);
+
+        first.close();
+        first.close();
+        ClientHttpResponse second = interceptor.intercept(request, new byte[0], ok);
+        assertThatThrownBy(() -> interceptor.intercept(request, new byte[0], ok))
+            .isInstanceOf(PartnerCallRejectedException.class);
+        second.close();
+    }
+
+    @Test
+    void releasesThePermitWhenTheCallFails() throws Exception {
+        PartnerMtlsProperties.Resilience settings = new PartnerMtlsProperties.Resilience();
+        settings.setMaxInFlight(1);
+        PartnerResilienceInterceptor interceptor = new PartnerResilienceInterceptor("acme", settings,
+            new SimpleMeterRegistry());
+
+        assertThatThrownBy(() -> interceptor.intercept(request, new byte[0], (req, body) -> {
+            throw new IOException("connection reset");
+        })).isInstanceOf(IOException.class);
+        interceptor.intercept(request, new byte[0],
+            (req, body) -> new MockClientHttpResponse(new byte[0], HttpStatus.OK)).close();
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.mtls;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.unit.DataSize;
+
+class PartnerResponseCacheInterceptorTest {
+    private final AtomicLong clock = new AtomicLong();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PartnerMtlsProperties.Cache settings = new PartnerMtlsProperties.Cache();
+
+    @Test
+    void servesFreshHitsAndRevalidatesStaleEntriesWithEtag() throws Exception {
+        List<String> ifNoneMatch = new ArrayList<>();
+        ClientHttpRequestExecution upstream = (request, body) -> {
+            ifNoneMatch.add(request.getHeaders().getFirst("If-None-Match"));
+            if (request.getHeaders().getIfNoneMatch().contains("\"v1\"")) {
+                return new MockClientHttpResponse(new byte[0], HttpStatus.NOT_MODIFIED);
+            }
+            return okResponse("rates-v1", "\"v1\"");
+        };
+        PartnerResponseCacheInterceptor cache = interceptor();
+
+        assertThat(get(cache, "/rates", upstream)).isEqualTo("rates-v1");
+        assertThat(get(cache, "/rates", upstream)).isEqualTo("rates-v1");
+        clock.addAndGet(settings.getTtl().toNanos());
+        assertThat(get(cache, "/rates", upstream)).isEqualTo("rates-v1");
+
+        assertThat(ifNoneMatch).containsExactly(null, "\"v1\"");
+        assertThat(count("hit")).isEqualTo(1);
+        assertThat(count("miss")).isEqualTo(1);
+        assertThat(count("revalidated")).isEqualTo(1);
+    }
+
+    @Test
+    void coalescesConcurrentIdenticalGets() throws Exception {
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ClientHttpRequestExecution upstream = (request, body) -> {
+            upstreamCalls.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                throw new IOException(ex);
+            }
+            return okResponse("currencies", null);
+        };
+        PartnerResponseCacheInterceptor cache = interceptor();
+
+        List<Future<String>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> get(cache, "/currencies", upstream)));
+            }
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<String> result : results) {
+                assertThat(result.get()).isEqualTo("currencies");
+            }
+        }
+
+        assertThat(upstreamCalls).hasValue(1);
+        assertThat(count("coalesced") + count("hit")).isEqualTo(7);
+    }
+
+    @Test
+    void keepsCallersWithDifferentCredentialsApart() throws Exception {
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ClientHttpRequestExecution upstream = (request, body) -> {
+            upstreamCalls.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                throw new IOException(ex);
+            }
+            return okResponse("balance of " + request.getHeaders().getFirst("Authorization"), null);
+        };
+        PartnerResponseCacheInterceptor cache = interceptor();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> alice = executor.submit(() -> get(cache, "/balance", upstream,
+                "Authorization", "Bearer alice", "traceparent", "00-a-01-01"));
+            Future<String> bob = executor.submit(() -> get(cache, "/balance", upstream,
+                "Authorization", "Bearer bob", "traceparent", "00-b-01-01"));
+            Thread.sleep(200);
+            release.countDown();
+
+            assertThat(alice.get()).isEqualTo("balance of Bearer alice");
+            assertThat(bob.get()).isEqualTo("balance of Bearer bob");
+        }
+        // A different trace context alone still hits the entry.
+        assertThat(get(cache, "/balance", upstream, "Authorization", "Bearer bob", "traceparent", "00-c-01-01"))
+            .isEqualTo("balance of Bearer bob");
+        assertThat(upstreamCalls).hasValue(2);
+        assertThat(count("coalesced")).isZero();
+        assertThat(count("hit")).isEqualTo(1);
+    }
+
+    @Test
+    void doesNotStoreResponsesThatVaryOnAnIgnoredHeader() throws Exception {
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        ClientHttpRequestExecution upstream = (request, body) -> {
+            upstreamCalls.incrementAndGet();
+            MockClientHttpResponse response = okResponse("sampled", null);
+            response.getHeaders().setVary(List.of("traceparent"));
+            return response;
+        };
+        PartnerResponseCacheInterceptor cache = interceptor();
+
+        get(cache, "/sampled", upstream);
+        get(cache, "/sampled", upstream);
+
+        assertThat(upstreamCalls).hasValue(2);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntriesBeyondMaxSize() throws Exception {
+        settings.setMaxSize(DataSize.ofBytes(1024));
+        settings.setMaxEntrySize(DataSize.ofBytes(512));
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        ClientHttpRequestExecution upstream = (request, body) -> {
+            upstreamCalls.incrementAndGet();
+            return okResponse("x".repeat(400), null);
+        };
+        PartnerResponseCacheInterceptor cache = interceptor();
+
+        get(cache, "/a", upstream);
+        get(cache, "/b", upstream);
+        get(cache, "/a", upstream);
+        get(cache, "/c", upstream);
+        get(cache, "/a", upstream);
+        get(cache, "/b", upstream);
+
+        assertThat(upstreamCalls).hasValue(4);
+        assertThat(cache.size()).isLessThanOrEqualTo(1024);
+    }
+
+    private PartnerResponseCacheInterceptor interceptor() {
+        return new PartnerResponseCacheInterceptor("acme", settings, meterRegistry, clock::get);
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("partner.mtls.cache.requests").tag("result", result).counter().count();
+    }
+
+    // headers: alternating names and values.
+    private static String get(PartnerResponseCacheInterceptor cache, String path,
+                              ClientHttpRequestExecution upstream, String... headers) throws IOException {
+        MockClientHttpRequest request = new MockClientHttpRequest(HttpMethod.GET,
+            URI.create("https://partner.example" + path));
+        for (int i = 0; i < headers.length; i += 2) {
+            request.getHeaders().add(headers[i], headers[i + 1]);
+        }
+        try (ClientHttpResponse response = cache.intercept(request, new byte[0], upstream)) {
+            return StreamUtils.copyToString(response.getBody(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static MockClientHttpResponse okResponse(String body, String etag) {
+        MockClientHttpResponse response = new MockClientHttpResponse(body.getBytes(StandardCharsets.UTF_8),
+            HttpStatus.OK);
+        if (etag != null) {
+            response.getHeaders().setETag(etag);
+        }
+        return response;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.mtls;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.util.TimeValue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+
+class PartnerRestTemplateConfigTest {
+    private LocalMtlsServer server;
+    private PoolingHttpClientConnectionManager connectionManager;
+    private RestTemplate restTemplate;
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = LocalMtlsServer.start();
+        PartnerMtlsProperties properties = LocalMtlsServer.clientProperties();
+        PartnerRestTemplateConfig config = new PartnerRestTemplateConfig(properties,
+            new PartnerSslContextFactory(properties), meterRegistry);
+        connectionManager = config.partnerConnectionManager(config.partnerSslContext());
+        restTemplate = config.partnerRestTemplate(connectionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionManager.close();
+        server.close();
+    }
+
+    @Test
+    void reusesPooledConnectionAcrossRequests() {
+        ResponseEntity<String> first = restTemplate.getForEntity(server.uri(), String.class);
+        ResponseEntity<String> second = restTemplate.getForEntity(server.uri(), String.class);
+
+        assertThat(first.getStatusCode().is2xxSuccessful()).isTrue();
+        assertThat(second.getBody()).contains("ok");
+        assertThat(resumptions("miss")).isEqualTo(1);
+        assertThat(connectionManager.getTotalStats().getAvailable()).isEqualTo(1);
+    }
+
+    @Test
+    void resumesTlsSessionOnReconnect() {
+        restTemplate.getForEntity(server.uri(), String.class);
+        connectionManager.closeIdle(TimeValue.ZERO_MILLISECONDS);
+        restTemplate.getForEntity(server.uri(), String.class);
+
+        assertThat(resumptions("miss")).isEqualTo(1);
+        assertThat(resumptions("hit")).isEqualTo(1);
+    }
+
+    @Test
+    void recordsHandshakeLeaseAndRequestTimers() {
+        restTemplate.getForEntity(server.uri(), String.class);
+
+        assertThat(meterRegistry.get("partner.mtls.tls.handshake").tag("resumed", "false").timer().count())
+            .isEqualTo(1);
+        assertThat(meterRegistry.get("partner.mtls.pool.lease.wait").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("partner.mtls.requests")
+            .tag("route", PartnerRestTemplateConfig.route(server.uri()))
+            .tag("status", "200")
+            .timer().count()).isEqualTo(1);
+    }
+
+    private double resumptions(String result) {
+        return meterRegistry.get("partner.mtls.tls.session.resumption").tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.mtls;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.time.Duration;
+import javax.net.ssl.SSLHandshakeException;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.NoHttpResponseException;
+import org.apache.hc.core5.http.message.BasicHttpRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+
+class PartnerRetryStrategyTest {
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void retriesOnlyIdempotentRequestsThatHitAStaleConnection() {
+        PartnerMtlsProperties.Retry settings = new PartnerMtlsProperties.Retry();
+        PartnerRetryStrategy strategy = new PartnerRetryStrategy("partner", settings, meterRegistry);
+        NoHttpResponseException noResponse = new NoHttpResponseException("partner failed to respond");
+
+        assertThat(strategy.retryRequest(request("GET"), noResponse, 1, null)).isTrue();
+        assertThat(strategy.retryRequest(request("PUT"), new SocketException("Connection reset"), 2, null)).isTrue();
+        assertThat(strategy.retryRequest(request("GET"), noResponse, 3, null)).isFalse();
+        assertThat(strategy.retryRequest(request("POST"), noResponse, 1, null)).isFalse();
+        HttpRequest keyed = request("POST");
+        keyed.addHeader("Idempotency-Key", "order-42");
+        assertThat(strategy.retryRequest(keyed, noResponse, 1, null)).isTrue();
+        assertThat(strategy.retryRequest(request("GET"), new ConnectException("Connection refused"), 1, null))
+            .isFalse();
+        assertThat(strategy.retryRequest(request("GET"), new SSLHandshakeException("bad_certificate"), 1, null))
+            .isFalse();
+
+        assertThat(retries("retried")).isEqualTo(3);
+        assertThat(retries("attempts_exhausted")).isEqualTo(1);
+        assertThat(retries("not_idempotent")).isEqualTo(1);
+        assertThat(strategy.getRetryInterval(request("GET"), noResponse, 3, null).toMilliseconds())
+            .isBetween(0L, 100L);
+    }
+
+    @Test
+    void stopsRetryingOnceTheBudgetIsSpent() {
+        PartnerMtlsProperties.Retry settings = new PartnerMtlsProperties.Retry();
+        settings.setMinRetriesPerSecond(0);
+        settings.setBudgetRatio(0.5);
+        PartnerRetryStrategy strategy = new PartnerRetryStrategy("partner", settings, meterRegistry);
+        NoHttpResponseException noResponse = new NoHttpResponseException("partner failed to respond");
+
+        // With no floor the bucket holds a single retry.
+        assertThat(strategy.retryRequest(request("GET"), noResponse, 1, null)).isTrue();
+        assertThat(strategy.retryRequest(request("GET"), noResponse, 1, null)).isFalse();
+        assertThat(retries("budget_exhausted")).isEqualTo(1);
+
+        // Two requests at ratio 0.5 earn it back.
+        strategy.budget().deposit();
+        strategy.budget().deposit();
+        assertThat(strategy.budget().available()).isEqualTo(1);
+        assertThat(strategy.retryRequest(request("GET"), noResponse, 1, null)).isTrue();
+    }
+
+    @Test
+    void dropsConnectionClosedByThePartnerWhileIdleInsteadOfFailingTheRequest() throws Exception {
+        LocalMtlsServer server = LocalMtlsServer.start();
+        PartnerMtlsProperties properties = LocalMtlsServer.clientProperties();
+        properties.getPool().setValidateAfterInactivity(Duration.ZERO);
+        PartnerRestTemplateConfig config = new PartnerRestTemplateConfig(properties,
+            new PartnerSslContextFactory(properties), meterRegistry);
+        PoolingHttpClientConnectionManager connectionManager = config.partnerConnectionManager(
+            config.partnerSslContext());
+        try {
+            RestTemplate restTemplate = config.partnerRestTemplate(connectionManager);
+            restTemplate.getForEntity(server.uri(), String.class);
+
+            // Restarting on the same port closes the pooled keep-alive connection, as an idle-timeout would.
+            int port = server.uri().getPort();
+            server.close();
+            server = LocalMtlsServer.start(port);
+            ResponseEntity<String> response = restTemplate.getForEntity(server.uri(), String.class);
+
+            assertThat(response.getStatusCode().is2xxSuccessful()).isTrue();
+            assertThat(meterRegistry.get("partner.mtls.pool.stale.dropped").counter().count()).isEqualTo(1);
+        } finally {
+            connectionManager.close();
+            server.close();
+        }
+    }
+
+    private static HttpRequest request(String method) {
+        return new BasicHttpRequest(method, "/orders");
+    }
+
+    private double retries(String outcome) {
+        return meterRegistry.get("partner.mtls.retries").tag("outcome", outcome).counter().count();
+    }
+}
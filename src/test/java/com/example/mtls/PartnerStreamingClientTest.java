@@ -0,0 +1,124 @@
+package com.example.mtls;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.HttpClientErrorException;
+
+class PartnerStreamingClientTest {
+    private static final long SIZE = 32L * 1024 * 1024 + 17;
+
+    @TempDir
+    Path tempDir;
+
+    private LocalMtlsServer server;
+    private PoolingHttpClientConnectionManager connectionManager;
+    private PartnerStreamingClient client;
+    private final PartnerMtlsProperties properties = LocalMtlsServer.clientProperties();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = LocalMtlsServer.start();
+        properties.getResilience().setMaxInFlight(1);
+        PartnerRestTemplateConfig config = new PartnerRestTemplateConfig(properties,
+            new PartnerSslContextFactory(properties), meterRegistry);
+        connectionManager = config.partnerConnectionManager(config.partnerSslContext());
+        client = config.partnerStreamingClient(connectionManager);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        client.close();
+        connectionManager.close();
+        server.close();
+    }
+
+    @Test
+    void streamsDownloadToFileAndReusesConnection() throws Exception {
+        Path target = tempDir.resolve("export.bin");
+
+        long transferred = client.download(uri("/bytes?size=" + SIZE), target);
+
+        assertThat(transferred).isEqualTo(SIZE);
+        assertThat(Files.size(target)).isEqualTo(SIZE);
+        try (InputStream content = Files.newInputStream(target)) {
+            content.skipNBytes(SIZE - 1);
+            assertThat(content.read()).isEqualTo((int) ((SIZE - 1) % 251));
+        }
+        assertThat(client.buffers().pooled()).isEqualTo(1);
+        assertThat(connectionManager.getTotalStats().getAvailable()).isEqualTo(1);
+    }
+
+    @Test
+    void streamsUploadFromFileAndStream() throws Exception {
+        Path source = tempDir.resolve("upload.bin");
+        try (OutputStream out = Files.newOutputStream(source)) {
+            byte[] chunk = new byte[1024 * 1024];
+            for (int i = 0; i < 16; i++) {
+                out.write(chunk);
+            }
+        }
+
+        int fromFile = client.upload(HttpMethod.PUT, uri("/upload"), source, MediaType.APPLICATION_OCTET_STREAM);
+        int chunked;
+        try (InputStream in = Files.newInputStream(source)) {
+            chunked = client.upload(HttpMethod.POST, uri("/upload"), in, -1, MediaType.APPLICATION_OCTET_STREAM);
+        }
+
+        assertThat(fromFile).isEqualTo(201);
+        assertThat(chunked).isEqualTo(201);
+        assertThat(meterRegistry.get("partner.mtls.transfer.bytes").tag("direction", "upload").counter().count())
+            .isEqualTo(2.0 * Files.size(source));
+    }
+
+    @Test
+    void surfacesErrorStatusWithoutBufferingTheBody() {
+        assertThatThrownBy(() -> client.download(uri("/status?code=404"), OutputStream.nullOutputStream()))
+            .isInstanceOfSatisfying(HttpClientErrorException.NotFound.class,
+                ex -> assertThat(ex.getResponseBodyAsString()).isEqualTo("{\"status\":404}"));
+    }
+
+    @Test
+    void holdsAnInFlightPermitForTheWholeTransfer() throws Exception {
+        List<Throwable> whileUploading = new ArrayList<>();
+        InputStream source = new ByteArrayInputStream(new byte[64 * 1024]) {
+            @Override
+            public synchronized int read(byte[] buffer, int offset, int length) {
+                if (whileUploading.isEmpty()) {
+                    whileUploading.add(catchThrowable(() ->
+                        client.download(uri("/bytes?size=16"), OutputStream.nullOutputStream())));
+                }
+                return super.read(buffer, offset, length);
+            }
+        };
+
+        client.upload(HttpMethod.POST, uri("/upload"), source, -1, MediaType.APPLICATION_OCTET_STREAM);
+
+        assertThat(whileUploading).singleElement().isInstanceOfSatisfying(PartnerCallRejectedException.class,
+            ex -> assertThat(ex.getReason()).isEqualTo(PartnerCallRejectedException.Reason.CONCURRENCY_LIMIT));
+        assertThat(client.download(uri("/bytes?size=16"), OutputStream.nullOutputStream())).isEqualTo(16);
+    }
+
+    private URI uri(String pathAndQuery) {
+        return server.uri().resolve(pathAndQuery);
+    }
+}
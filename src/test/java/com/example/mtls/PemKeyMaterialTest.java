@@ -0,0 +1,65 @@
+package com.example.mtls;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import javax.net.ssl.X509ExtendedKeyManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.ResponseEntity;
+
+class PemKeyMaterialTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void handshakesWithPemCertificateKeyAndCaBundle() throws Exception {
+        PartnerMtlsProperties properties = LocalMtlsServer.pemClientProperties(tempDir);
+        properties.validateAndLog();
+        PartnerRestTemplateConfig config = new PartnerRestTemplateConfig(properties,
+            new PartnerSslContextFactory(properties), new SimpleMeterRegistry());
+
+        try (LocalMtlsServer server = LocalMtlsServer.start();
+             PoolingHttpClientConnectionManager connectionManager =
+                 config.partnerConnectionManager(config.partnerSslContext())) {
+            ResponseEntity<String> response = config.partnerRestTemplate(connectionManager)
+                .getForEntity(server.uri(), String.class);
+
+            assertThat(response.getBody()).contains("ok");
+        }
+    }
+
+    @Test
+    void readsKeyAndChainFromOneFile() throws Exception {
+        PartnerMtlsProperties properties = LocalMtlsServer.pemClientProperties(tempDir);
+        Path combined = tempDir.resolve("client.pem");
+        Files.writeString(combined, Files.readString(Path.of(properties.getClientKeyPath()))
+            + Files.readString(Path.of(properties.getClientKeystorePath())));
+
+        X509ExtendedKeyManager keyManager = PemKeyMaterial.keyManager(combined, null);
+        KeyStore bundle = PemKeyMaterial.trustStore(Path.of(properties.getServerValidation().getTruststorePath()));
+
+        String alias = keyManager.chooseClientAlias(new String[] { "RSA", "EC" }, null, null);
+        assertThat(keyManager.getPrivateKey(alias).getAlgorithm()).isEqualTo("EC");
+        assertThat(keyManager.getCertificateChain(alias)[0].getSubjectX500Principal().getName())
+            .isEqualTo("CN=mtls-client");
+        assertThat(keyManager.chooseClientAlias(new String[] { "RSA" }, null, null)).isNull();
+        assertThat(bundle.size()).isEqualTo(2);
+    }
+
+    @Test
+    void rejectsTraditionalKeyFormatsWithConversionHint() throws Exception {
+        Path key = Files.writeString(tempDir.resolve("legacy.key"),
+            LocalMtlsServer.pem("EC PRIVATE KEY", new byte[] { 1, 2, 3 }));
+
+        assertThatThrownBy(() -> PemKeyMaterial.privateKey(key))
+            .isInstanceOf(GeneralSecurityException.class)
+            .hasMessageContaining("openssl pkcs8 -topk8 -nocrypt");
+    }
+}
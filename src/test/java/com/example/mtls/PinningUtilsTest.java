@@ -14,6 +14,15 @@ class PinningUtilsTest {
         assertThat(PinningUtils.normalizeHexFingerprint(input)).isEqualTo("90c0efbc967947df");
     }
 
+    @Test
+    void decodesFingerprintIntoRawDigestBytes() {
+        byte[] decoded = PinningUtils.decodeHexFingerprint(
+            "90:C0:EF:BC:96:79:47:DF:58:CD:95:C9:3D:D2:DA:C9:32:5A:2C:91:63:B6:5E:A0:87:BE:7A:16:23:6F:92:79");
+        assertThat(decoded).hasSize(32);
+        assertThat(decoded[0]).isEqualTo((byte) 0x90);
+        assertThat(decoded[31]).isEqualTo((byte) 0x79);
+    }
+
     @Test
     void calculatesFingerprintAndSpkiPins() throws Exception {
         X509Certificate certificate = loadCertificate();
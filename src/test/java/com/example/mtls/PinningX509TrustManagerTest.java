@@ -0,0 +1,75 @@
+package com.example.mtls;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.InputStream;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.List;
+import javax.net.ssl.X509TrustManager;
+import org.junit.jupiter.api.Test;
+
+class PinningX509TrustManagerTest {
+    private static final String FINGERPRINT = "90:C0:EF:BC:96:79:47:DF:58:CD:95:C9:3D:D2:DA:C9:"
+        + "32:5A:2C:91:63:B6:5E:A0:87:BE:7A:16:23:6F:92:79";
+    private static final String SPKI = "xkvcWc4qi4imQvQ2w559daHgN0x/baVpKnlPanbTbqM=";
+    private static final String OTHER_SPKI = "AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA=";
+
+    @Test
+    void acceptsLeafMatchingAnyConfiguredPin() throws Exception {
+        X509Certificate[] chain = { loadCertificate() };
+
+        PinningX509TrustManager fingerprint = new PinningX509TrustManager(acceptAll(),
+            PartnerMtlsProperties.ServerValidationMode.PIN_FINGERPRINT, FINGERPRINT);
+        PinningX509TrustManager spki = new PinningX509TrustManager(acceptAll(),
+            PartnerMtlsProperties.ServerValidationMode.PIN_SPKI, List.of(OTHER_SPKI, SPKI));
+
+        assertThatCode(() -> fingerprint.checkServerTrusted(chain, "ECDHE_RSA")).doesNotThrowAnyException();
+        assertThatCode(() -> spki.checkServerTrusted(chain, "ECDHE_RSA")).doesNotThrowAnyException();
+        assertThatCode(() -> spki.checkServerTrusted(chain, "ECDHE_RSA")).doesNotThrowAnyException();
+    }
+
+    @Test
+    void rejectsLeafMatchingNoPin() throws Exception {
+        X509Certificate[] chain = { loadCertificate() };
+        PinningX509TrustManager trustManager = new PinningX509TrustManager(acceptAll(),
+            PartnerMtlsProperties.ServerValidationMode.PIN_SPKI, List.of(OTHER_SPKI));
+
+        assertThatThrownBy(() -> trustManager.checkServerTrusted(chain, "ECDHE_RSA"))
+            .isInstanceOf(CertificateException.class)
+            .hasMessageContaining("SPKI pin mismatch");
+    }
+
+    @Test
+    void rejectsMalformedPinsAtConstruction() {
+        assertThatThrownBy(() -> new PinningX509TrustManager(acceptAll(),
+            PartnerMtlsProperties.ServerValidationMode.PIN_FINGERPRINT, "90:C0:EF"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static X509TrustManager acceptAll() {
+        return new X509TrustManager() {
+            @Override
+            public void checkClientTrusted(X509Certificate[] chain, String authType) {
+            }
+
+            @Override
+            public void checkServerTrusted(X509Certificate[] chain, String authType) {
+            }
+
+            @Override
+            public X509Certificate[] getAcceptedIssuers() {
+                return new X509Certificate[0];
+            }
+        };
+    }
+
+    private X509Certificate loadCertificate() throws Exception {
+        try (InputStream inputStream = getClass().getResourceAsStream("/certs/test-cert.pem")) {
+            CertificateFactory factory = CertificateFactory.getInstance("X.509");
+            return (X509Certificate) factory.generateCertificate(inputStream);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.mtls;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+import java.security.KeyStore;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.List;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509ExtendedTrustManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RevocationCheckingX509TrustManagerTest {
+    private LocalOcspResponder responder;
+    private RevocationCache cache;
+    private final PartnerMtlsProperties.Revocation settings = new PartnerMtlsProperties.Revocation();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        responder = LocalOcspResponder.start();
+        settings.setEnabled(true);
+        cache = new RevocationCache(settings);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.close();
+        responder.close();
+    }
+
+    @Test
+    void acceptsGoodCertificateAndReusesCachedResponse() throws Exception {
+        RevocationCheckingX509TrustManager trustManager = trustManager(false);
+        X509Certificate[] chain = chain(responder.issueLeaf());
+
+        trustManager.checkServerTrusted(chain, "ECDHE_ECDSA");
+        trustManager.checkServerTrusted(chain, "ECDHE_ECDSA");
+
+        assertThat(responder.requests()).isEqualTo(1);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsRevokedCertificate() throws Exception {
+        X509Certificate leaf = responder.issueLeaf();
+        responder.revoke(leaf);
+
+        assertThatThrownBy(() -> trustManager(true).checkServerTrusted(chain(leaf), "ECDHE_ECDSA"))
+            .isInstanceOf(CertificateException.class)
+            .hasMessageContaining("revoked");
+    }
+
+    @Test
+    void prefersStapledResponseOverResponder() throws Exception {
+        X509Certificate leaf = responder.issueLeaf();
+
+        trustManager(false).checkRevocation(chain(leaf), List.of(responder.stapledResponseFor(leaf)));
+
+        assertThat(responder.requests()).isZero();
+    }
+
+    @Test
+    void refreshesInBackgroundBeforeNextUpdate() throws Exception {
+        responder.setValidity(Duration.ofSeconds(2));
+        trustManager(false).checkServerTrusted(chain(responder.issueLeaf()), "ECDHE_ECDSA");
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> responder.requests() >= 2);
+    }
+
+    @Test
+    void unreachableResponderFollowsSoftFailSetting() throws Exception {
+        X509Certificate[] chain = chain(responder.issueLeaf());
+        responder.close();
+
+        assertThatCode(() -> trustManager(true).checkServerTrusted(chain, "ECDHE_ECDSA")).doesNotThrowAnyException();
+        assertThatThrownBy(() -> trustManager(false).checkServerTrusted(chain, "ECDHE_ECDSA"))
+            .isInstanceOf(CertificateException.class)
+            .hasMessageContaining("unreachable");
+    }
+
+    @Test
+    void keepsResponsesWithoutNextUpdateOnlyWhileTheJdkWouldAcceptThem() throws Exception {
+        X509Certificate leaf = responder.issueLeaf();
+        responder.setValidity(null);
+        responder.setAge(Duration.ofMinutes(16));
+
+        cache.ocspResponse(leaf, responder.caCertificate());
+        cache.ocspResponse(leaf, responder.caCertificate());
+        assertThat(responder.requests()).isEqualTo(2);
+
+        responder.setAge(Duration.ofMinutes(1));
+        cache.ocspResponse(leaf, responder.caCertificate());
+        cache.ocspResponse(leaf, responder.caCertificate());
+        assertThat(responder.requests()).isEqualTo(3);
+    }
+
+    @Test
+    void remembersAFailedFetchForFailureTtl() throws Exception {
+        settings.setFailureTtl(Duration.ofMillis(500));
+        X509Certificate[] chain = chain(responder.issueLeaf());
+        responder.setFailing(true);
+
+        trustManager(true).checkServerTrusted(chain, "ECDHE_ECDSA");
+        trustManager(true).checkServerTrusted(chain, "ECDHE_ECDSA");
+        assertThat(responder.requests()).isEqualTo(1);
+
+        responder.setFailing(false);
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+            assertThatCode(() -> trustManager(false).checkServerTrusted(chain, "ECDHE_ECDSA"))
+                .doesNotThrowAnyException());
+        assertThat(responder.requests()).isEqualTo(2);
+    }
+
+    @Test
+    void doesNotServeAResponseCachedForTheIssuersPreviousKey() throws Exception {
+        X509Certificate leaf = responder.issueLeaf();
+        cache.ocspResponse(leaf, responder.caCertificate());
+
+        responder.rekey();
+        cache.ocspResponse(leaf, responder.caCertificate());
+
+        assertThat(responder.requests()).isEqualTo(2);
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    private RevocationCheckingX509TrustManager trustManager(boolean softFail) throws Exception {
+        KeyStore trustStore = responder.trustStore();
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        tmf.init(trustStore);
+        return new RevocationCheckingX509TrustManager((X509ExtendedTrustManager) tmf.getTrustManagers()[0],
+            trustStore, cache, softFail);
+    }
+
+    private X509Certificate[] chain(X509Certificate leaf) {
+        return new X509Certificate[] { leaf, responder.caCertificate() };
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.mtls;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import javax.net.ssl.SSLHandshakeException;
+import javax.net.ssl.X509TrustManager;
+import org.junit.jupiter.api.Test;
+
+class TlsFailureEventsTest {
+    private static final String OTHER_SPKI = "AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA=";
+    private static final String SPKI = "xkvcWc4qi4imQvQ2w559daHgN0x/baVpKnlPanbTbqM=";
+
+    @Test
+    void recordsPinMismatchWithSubjectAndPins() throws Exception {
+        TlsFailureEvents events = new TlsFailureEvents(16, Duration.ofSeconds(10));
+        X509Certificate leaf = loadCertificate();
+        PinningX509TrustManager trustManager = new PinningX509TrustManager(acceptAll(),
+            PartnerMtlsProperties.ServerValidationMode.PIN_SPKI, List.of(OTHER_SPKI), events);
+
+        assertThatThrownBy(() -> trustManager.checkServerTrusted(new X509Certificate[] { leaf }, "ECDHE_RSA"))
+            .isInstanceOf(PinMismatchException.class);
+
+        TlsFailureEvents.Event event = events.recent().get(0);
+        assertThat(event.source()).isEqualTo(TlsFailureEvents.Source.TRUST_MANAGER);
+        assertThat(event.kind()).isEqualTo("pin_mismatch");
+        assertThat(event.subject()).isEqualTo(leaf.getSubjectX500Principal().getName());
+        assertThat(event.expectedPins()).containsExactly(OTHER_SPKI);
+        assertThat(event.actualPin()).isEqualTo(SPKI);
+    }
+
+    @Test
+    void keepsOnlyTheNewestEventsAndCountsEveryOne() {
+        TlsFailureEvents events = new TlsFailureEvents(3, Duration.ofSeconds(10));
+        for (int i = 0; i < 10; i++) {
+            events.requestFailed(URI.create("https://partner.example/orders/" + i),
+                new SSLHandshakeException("Received fatal alert: bad_certificate"));
+        }
+
+        // Capacity rounds up to 4.
+        List<TlsFailureEvents.Event> recent = events.recent();
+        assertThat(recent).hasSize(4);
+        assertThat(recent.get(0).target()).isEqualTo("https://partner.example:443");
+        assertThat(recent.get(0).alert()).isEqualTo("bad_certificate");
+        assertThat(recent).allMatch(event -> event.kind().equals("handshake"));
+        assertThat(events.totals()).isEqualTo(Map.of("request", Map.of("handshake", 10L)));
+    }
+
+    @Test
+    void neverReportsATornEventWhileWritersLapTheRing() throws Exception {
+        TlsFailureEvents events = new TlsFailureEvents(4, Duration.ofHours(1));
+        int writers = 4;
+        int perWriter = 20_000;
+        CountDownLatch done = new CountDownLatch(writers);
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < perWriter; i++) {
+                    int n = writer * perWriter + i;
+                    events.requestFailed(URI.create("https://p" + n + ".example/"),
+                        new SSLHandshakeException("Received fatal alert: a" + n));
+                }
+                done.countDown();
+            });
+        }
+        while (done.getCount() > 0) {
+            for (TlsFailureEvents.Event event : events.recent()) {
+                String n = event.alert().substring(1);
+                assertThat(event.target()).isEqualTo("https://p" + n + ".example:443");
+            }
+        }
+        done.await();
+
+        assertThat(events.recent()).hasSizeLessThanOrEqualTo(4);
+        assertThat(events.totals()).isEqualTo(Map.of("request", Map.of("handshake", (long) writers * perWriter)));
+    }
+
+    private static X509TrustManager acceptAll() {
+        return new X509TrustManager() {
+            @Override
+            public void checkClientTrusted(X509Certificate[] chain, String authType) {
+            }
+
+            @Override
+            public void checkServerTrusted(X509Certificate[] chain, String authType) {
+            }
+
+            @Override
+            public X509Certificate[] getAcceptedIssuers() {
+                return new X509Certificate[0];
+            }
+        };
+    }
+
+    private X509Certificate loadCertificate() throws Exception {
+        try (InputStream inputStream = getClass().getResourceAsStream("/certs/test-cert.pem")) {
+            CertificateFactory factory = CertificateFactory.getInstance("X.509");
+            return (X509Certificate) factory.generateCertificate(inputStream);
+        }
+    }
+}
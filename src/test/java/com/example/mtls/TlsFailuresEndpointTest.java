@@ -0,0 +1,45 @@
+package com.example.mtls;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.security.Principal;
+import javax.net.ssl.SSLHandshakeException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.boot.actuate.autoconfigure.health.HealthEndpointProperties;
+import org.springframework.boot.actuate.endpoint.SecurityContext;
+import org.springframework.boot.actuate.endpoint.Show;
+
+class TlsFailuresEndpointTest {
+    @Test
+    void showsEventsOnlyWhereHealthDetailsAreShown() {
+        PartnerSslContextFactory sslContextFactory = new PartnerSslContextFactory(new PartnerMtlsProperties());
+        sslContextFactory.failureEvents().requestFailed(URI.create("https://partner.example/orders"),
+            new SSLHandshakeException("Received fatal alert: bad_certificate"));
+        HealthEndpointProperties health = new HealthEndpointProperties();
+        health.setShowDetails(Show.WHEN_AUTHORIZED);
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("health", health);
+        TlsFailuresEndpoint endpoint = new TlsFailuresEndpoint(sslContextFactory,
+            beanFactory.getBeanProvider(HealthEndpointProperties.class));
+
+        TlsFailuresEndpoint.Report anonymous = endpoint.failures(SecurityContext.NONE);
+        TlsFailuresEndpoint.Report authenticated = endpoint.failures(new SecurityContext() {
+            @Override
+            public Principal getPrincipal() {
+                return () -> "operator";
+            }
+
+            @Override
+            public boolean isUserInRole(String role) {
+                return false;
+            }
+        });
+
+        assertThat(anonymous.totals()).isEqualTo(authenticated.totals()).isNotEmpty();
+        assertThat(anonymous.events()).isNull();
+        assertThat(authenticated.events()).singleElement()
+            .satisfies(event -> assertThat(event.alert()).isEqualTo("bad_certificate"));
+    }
+}
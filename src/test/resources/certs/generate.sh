@@ -0,0 +1,19 @@
+#!/bin/sh
+# Regenerates the self-signed test key material used by tests and benchmarks (password: changeit).
+set -e
+cd "$(dirname "$0")"
+rm -f client.p12 server.p12 truststore.p12 server-truststore.p12
+
+keytool -genkeypair -alias partner -keyalg EC -groupname secp256r1 -dname CN=localhost \
+  -ext san=dns:localhost,ip:127.0.0.1 -validity 36500 \
+  -keystore server.p12 -storetype PKCS12 -storepass changeit
+keytool -genkeypair -alias client -keyalg EC -groupname secp256r1 -dname CN=mtls-client \
+  -validity 36500 -keystore client.p12 -storetype PKCS12 -storepass changeit
+
+keytool -exportcert -rfc -alias partner -keystore server.p12 -storepass changeit > partner.pem
+keytool -exportcert -rfc -alias client -keystore client.p12 -storepass changeit > client.pem
+keytool -importcert -noprompt -alias partner -file partner.pem \
+  -keystore truststore.p12 -storetype PKCS12 -storepass changeit
+keytool -importcert -noprompt -alias client -file client.pem \
+  -keystore server-truststore.p12 -storetype PKCS12 -storepass changeit
+rm -f partner.pem client.pem